@@ -0,0 +1,54 @@
+package au.com.addstar.slackapi;
+
+import java.util.Collections;
+import java.util.Map;
+
+import au.com.addstar.slackapi.objects.Message;
+import au.com.addstar.slackapi.objects.ObjectID;
+
+/**
+ * The outcome of {@link SlackAPI#broadcast(Message, MessageOptions, java.util.Collection)}
+ * for each conversation
+ */
+@SuppressWarnings("WeakerAccess")
+public class BroadcastResult
+{
+    private final Map<ObjectID, Message> sent;
+    private final Map<ObjectID, Exception> failed;
+
+    BroadcastResult(Map<ObjectID, Message> sent, Map<ObjectID, Exception> failed)
+    {
+        this.sent = Collections.unmodifiableMap(sent);
+        this.failed = Collections.unmodifiableMap(failed);
+    }
+
+    /**
+     * @return the message sent to each conversation it was sent to
+     */
+    public Map<ObjectID, Message> getSent()
+    {
+        return sent;
+    }
+
+    /**
+     * @return why the message could not be sent, for each conversation it was not sent to
+     */
+    public Map<ObjectID, Exception> getFailed()
+    {
+        return failed;
+    }
+
+    /**
+     * @return true if the message was sent to every conversation
+     */
+    public boolean isSuccess()
+    {
+        return failed.isEmpty();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BroadcastResult{sent=" + sent.size() + ", failed=" + failed.keySet() + "}";
+    }
+}
@@ -9,7 +9,6 @@ import au.com.addstar.slackapi.objects.Message;
 import au.com.addstar.slackapi.objects.NormalChannel;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -24,12 +23,12 @@ import au.com.addstar.slackapi.internal.SlackConstants;
 @Deprecated
 public class ChannelManager
 {
-    private Gson gson;
+    private JsonCodec codec;
     private SlackConnection connection;
 
     ChannelManager(SlackAPI main)
     {
-        gson = main.getGson();
+        codec = main.getCodec();
         connection = main.getSlack();
     }
 
@@ -65,7 +64,7 @@ public class ChannelManager
             .build();
 
         JsonObject raw = connection.callMethodHandled(SlackConstants.CHANNEL_INFO, params);
-        return gson.fromJson(raw.getAsJsonObject("channel"), NormalChannel.class);
+        return codec.decode(raw.getAsJsonObject("channel"), NormalChannel.class);
     }
 
     public List<NormalChannel> getChannels() throws SlackException, IOException
@@ -90,7 +89,7 @@ public class ChannelManager
         ImmutableList.Builder<NormalChannel> channels = ImmutableList.builder();
 
         for (JsonElement rawChannel : rawList)
-            channels.add(gson.fromJson(rawChannel, NormalChannel.class));
+            channels.add(codec.decode(rawChannel, NormalChannel.class));
 
         return channels.build();
     }
@@ -103,13 +102,14 @@ public class ChannelManager
         JsonArray rawList = raw.getAsJsonArray("messages");
         List<Message> messages = new ArrayList<>();
         for (JsonElement message : rawList){
-            messages.add(gson.fromJson(message,Message.class));
+            messages.add(codec.decode(message,Message.class));
         }
         for (Message message: messages) {
             Map<String, Object> p = ImmutableMap.<String, Object>builder()
                     .put("channel",id)
-                    .put("ts",message.getTimestamp())
+                    .put("ts",message.getTs())
                     .build();
+            connection.getRateLimits().acquire(SlackConstants.CHAT_DELETE, MessageOptions.Priority.Bulk);
             connection.callMethodHandled(SlackConstants.CHAT_DELETE,p );
         }
         return true;
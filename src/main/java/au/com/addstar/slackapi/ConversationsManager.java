@@ -6,7 +6,6 @@ import au.com.addstar.slackapi.internal.SlackConstants;
 import au.com.addstar.slackapi.internal.SlackConversationType;
 import au.com.addstar.slackapi.objects.*;
 import com.google.common.collect.ImmutableMap;
-import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -21,12 +20,12 @@ import java.util.Map;
  * Created by benjamincharlton on 19/02/2019.
  */
 public class ConversationsManager {
-    private Gson gson;
+    private JsonCodec codec;
     private SlackConnection connection;
 
 
     ConversationsManager(SlackAPI main) {
-        gson = main.getGson();
+        codec = main.getCodec();
         connection = main.getSlack();
     }
     
@@ -53,7 +52,7 @@ public class ConversationsManager {
                 .put("channel", conversationID);
         final Map<String, Object> params = mapBuilder.build();
         final JsonObject result = this.connection.callMethodHandled(SlackConstants.CONVERSATION_INFO, params);
-        return this.gson.fromJson(result.get("channel").getAsJsonObject(),Conversation.class);
+        return this.codec.decode(result.get("channel").getAsJsonObject(),Conversation.class);
     }
     
     /**
@@ -81,7 +80,7 @@ public class ConversationsManager {
         final JsonObject result = this.connection.callMethodHandled(SlackConstants.CONVERSATION_LIST, params);
         final JsonArray array = result.getAsJsonArray("channels");
         for(final JsonElement object:array){
-            conversations.add(this.gson.fromJson(object,Conversation.class));
+            conversations.add(this.codec.decode(object,Conversation.class));
         }
         return conversations;
     }
@@ -104,19 +103,20 @@ public class ConversationsManager {
      */
     public boolean purgeChannel (final Conversation c)  throws SlackException, IOException{
         final Map<String, Object> params = ImmutableMap.<String, Object>builder()
-                .put("channel",c.getId().getId())
+                .put("channel",c.getId().toString())
                 .build();
         final JsonObject raw = this.connection.callMethodHandled(SlackConstants.CONVERSATION_HISTORY,params);
         final JsonArray rawList = raw.getAsJsonArray("messages");
         final List<Message> messages = new ArrayList<>();
         for (final JsonElement message : rawList){
-            messages.add(this.gson.fromJson(message,Message.class));
+            messages.add(this.codec.decode(message,Message.class));
         }
         for (final Message message: messages) {
             final Map<String, Object> p = ImmutableMap.<String, Object>builder()
-                    .put("channel",c.getId().getId())
-                    .put("ts",message.getTimestamp())
+                    .put("channel",c.getId().toString())
+                    .put("ts",message.getTs())
                     .build();
+            this.connection.getRateLimits().acquire(SlackConstants.CHAT_DELETE, MessageOptions.Priority.Bulk);
             this.connection.callMethodHandled(SlackConstants.CHAT_DELETE,p );
         }
         return true;
@@ -130,7 +130,7 @@ public class ConversationsManager {
         final JsonArray rawList = raw.getAsJsonArray("members");
         final List<ObjectID> users = new ArrayList<>();
         for (final JsonElement user : rawList) {
-            users.add(new ObjectID(user.getAsString()));
+            users.add(ObjectID.of(user.getAsString()));
         }
         return users;
     }
@@ -155,7 +155,7 @@ public class ConversationsManager {
         builder.put("return_im",true);
         final Map<String, Object> params = builder.build();
         final JsonObject raw = this.connection.callMethodHandled(SlackConstants.CONVERSATION_OPEN,params);
-        final Conversation con = this.gson.fromJson(raw.get("channel"),Conversation.class);
+        final Conversation con = this.codec.decode(raw.get("channel"),Conversation.class);
         return con;
     }
     
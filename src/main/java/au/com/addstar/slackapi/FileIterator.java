@@ -0,0 +1,101 @@
+package au.com.addstar.slackapi;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import au.com.addstar.slackapi.exceptions.SlackException;
+import au.com.addstar.slackapi.internal.SlackConnection;
+import au.com.addstar.slackapi.internal.SlackConstants;
+import au.com.addstar.slackapi.internal.Utilities;
+import au.com.addstar.slackapi.objects.FileObject;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Iterates over the results of files.list, fetching one page at a time as it is needed.
+ * Only the current page is held in memory.
+ */
+public class FileIterator
+{
+    private static final TypeToken<List<FileObject>> PAGE_TYPE = new TypeToken<List<FileObject>>(){};
+
+    private final JsonCodec codec;
+    private final SlackConnection connection;
+    private final Map<String, Object> params;
+
+    private List<FileObject> page = Collections.emptyList();
+    private int index;
+    private int nextPage = 1;
+    private int pages = 1;
+    private int total = -1;
+
+    FileIterator(JsonCodec codec, SlackConnection connection, FileQuery query)
+    {
+        this.codec = codec;
+        this.connection = connection;
+
+        params = new HashMap<>();
+        params.put("count", query.getPageSize());
+        if (query.getChannel() != null)
+            params.put("channel", query.getChannel());
+        if (query.getUser() != null)
+            params.put("user", query.getUser());
+        if (query.getTypes() != null)
+            params.put("types", query.getTypes());
+        if (query.getFrom() != null)
+            params.put("ts_from", query.getFrom().toMillis() / 1000);
+        if (query.getTo() != null)
+            params.put("ts_to", query.getTo().toMillis() / 1000);
+    }
+
+    public boolean hasNext() throws IOException, SlackException
+    {
+        while (index >= page.size())
+        {
+            if (nextPage > pages)
+                return false;
+            fetch(nextPage++);
+        }
+        return true;
+    }
+
+    public FileObject next() throws IOException, SlackException
+    {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        return page.get(index++);
+    }
+
+    /**
+     * @return the number of files that match, or -1 before the first page is fetched
+     */
+    public int getTotal()
+    {
+        return total;
+    }
+
+    private void fetch(int number) throws IOException, SlackException
+    {
+        params.put("page", number);
+        connection.getRateLimits().acquire(SlackConstants.FILE_LIST);
+        JsonObject result = connection.callMethodHandled(SlackConstants.FILE_LIST, params);
+
+        List<FileObject> files = codec.decode(result.get("files"), PAGE_TYPE.getType());
+        page = files == null ? Collections.emptyList() : files;
+        index = 0;
+
+        JsonElement paging = result.get("paging");
+        if (paging != null && paging.isJsonObject())
+        {
+            pages = Utilities.getAsInt(paging.getAsJsonObject().get("pages"));
+            total = Utilities.getAsInt(paging.getAsJsonObject().get("total"));
+        }
+        else
+            pages = number;
+    }
+}
@@ -0,0 +1,272 @@
+package au.com.addstar.slackapi;
+
+import au.com.addstar.slackapi.exceptions.SlackException;
+import au.com.addstar.slackapi.exceptions.SlackRequestLimitException;
+import au.com.addstar.slackapi.internal.MultipartBody;
+import au.com.addstar.slackapi.internal.SlackConnection;
+import au.com.addstar.slackapi.internal.SlackConstants;
+import au.com.addstar.slackapi.objects.FileObject;
+import com.google.common.base.Joiner;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.JsonObject;
+
+import javax.net.ssl.HttpsURLConnection;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Uploads, downloads and lists files.
+ * <p>
+ * Files are streamed from disk or from a stream as they are sent, and downloads are copied
+ * through a fixed size buffer, so transfers of any size use a fixed amount of memory.
+ * Uploads are spaced out to stay under the rate limit tier of files.upload, including
+ * uploads running at the same time.
+ */
+public class FileManager {
+    private static final int MAX_CONCURRENT_UPLOADS = 4;
+    private static final int MAX_RESUME_ATTEMPTS = 3;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String PART_SUFFIX = ".part";
+
+    private JsonCodec codec;
+    private SlackConnection connection;
+    private ExecutorService executor;
+
+    FileManager(SlackAPI main) {
+        this(main.getCodec(), main.getSlack());
+    }
+
+    FileManager(JsonCodec codec, SlackConnection connection) {
+        this.codec = codec;
+        this.connection = connection;
+    }
+
+    /**
+     * Uploads a file from disk
+     * @param file the file
+     * @param upload the details of the upload
+     * @return the uploaded file
+     * @throws IOException if the file cannot be read or sent
+     * @throws SlackException if slack rejected the upload
+     */
+    public FileObject upload(final Path file, final FileUpload upload) throws IOException, SlackException {
+        final MultipartBody body = this.createBody(upload);
+        body.file("file", upload.getFilename(), file);
+        return this.send(body, upload);
+    }
+
+    /**
+     * Uploads a file from a stream
+     * @param in the contents of the file, it is read to the end but not closed
+     * @param length the number of bytes in the stream, or -1 if it is not known
+     * @param upload the details of the upload
+     * @return the uploaded file
+     * @throws IOException if the stream cannot be read or sent
+     * @throws SlackException if slack rejected the upload
+     */
+    public FileObject upload(final InputStream in, final long length, final FileUpload upload) throws IOException, SlackException {
+        final MultipartBody body = this.createBody(upload);
+        body.file("file", upload.getFilename(), in, length);
+        return this.send(body, upload);
+    }
+
+    /**
+     * Uploads a file from disk in the background
+     * @param file the file
+     * @param upload the details of the upload
+     * @return a future for the uploaded file
+     */
+    public CompletableFuture<FileObject> uploadAsync(final Path file, final FileUpload upload) {
+        final CompletableFuture<FileObject> future = new CompletableFuture<>();
+        this.getExecutor().execute(() -> {
+            try {
+                future.complete(this.upload(file, upload));
+            } catch (final IOException | SlackException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Downloads a file to disk.
+     * The file is downloaded to the target name with {@value #PART_SUFFIX} added, and moved to
+     * the target once it is complete, replacing anything already there. If that part file is
+     * left from an interrupted download only the rest of the file is downloaded. Transfers
+     * that fail part way are resumed from where they stopped a few times before giving up.
+     * @param file the file
+     * @param target where to save the file
+     * @param listener told how much of the file has been downloaded, may be null
+     * @return the size of the downloaded file
+     * @throws IOException if the file cannot be downloaded or saved
+     */
+    public long download(final FileObject file, final Path target, final ProgressListener listener) throws IOException {
+        final URI url = getDownloadUrl(file);
+        final Path part = target.resolveSibling(target.getFileName() + PART_SUFFIX);
+        final long size;
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            size = this.downloadPart(url, file.getSize(), channel, listener);
+        }
+        try {
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final AtomicMoveNotSupportedException e) {
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return size;
+    }
+
+    private long downloadPart(final URI url, final long expected, final FileChannel channel, final ProgressListener listener) throws IOException {
+        for (int attempt = 0; ; ++attempt) {
+            long offset = channel.size();
+            if (expected > 0 && offset > expected) {
+                // Not a partial download of this file
+                channel.truncate(0);
+                offset = 0;
+            } else if (expected > 0 && offset == expected) {
+                return offset;
+            }
+            final long written;
+            try {
+                written = this.transfer(url, offset, channel, true, expected, listener);
+            } catch (final SlackRequestLimitException e) {
+                throw e;
+            } catch (final IOException e) {
+                if (attempt >= MAX_RESUME_ATTEMPTS) {
+                    throw e;
+                }
+                continue;
+            }
+            if (expected <= 0 || channel.size() == expected) {
+                return channel.size();
+            }
+            if (written < 0) {
+                // Slack said the part was already complete but it is not the size of this file
+                channel.truncate(0);
+            }
+            if (attempt >= MAX_RESUME_ATTEMPTS) {
+                throw new IOException("Download of " + url + " did not match the size of the file");
+            }
+        }
+    }
+
+    /**
+     * Downloads a file to a channel
+     * @param file the file
+     * @param offset the number of bytes of the file already downloaded, to resume a download
+     * @param target where to write the file, starting from the offset
+     * @param listener told how much of the file has been downloaded, may be null
+     * @return the number of bytes written
+     * @throws IOException if the file cannot be downloaded, or the download cannot be resumed
+     */
+    public long download(final FileObject file, final long offset, final WritableByteChannel target, final ProgressListener listener) throws IOException {
+        return Math.max(0, this.transfer(getDownloadUrl(file), offset, target, false, file.getSize(), listener));
+    }
+
+    /**
+     * Lists files
+     * @param query which files to list
+     * @return an iterator that fetches the files a page at a time
+     */
+    public FileIterator listFiles(final FileQuery query) {
+        return new FileIterator(this.codec, this.connection, query);
+    }
+
+    private static URI getDownloadUrl(final FileObject file) {
+        final URI url = file.getUrlPrivateDownload() != null ? file.getUrlPrivateDownload() : file.getUrlPrivate();
+        if (url == null) {
+            throw new IllegalArgumentException("File " + file.getId() + " has no private url");
+        }
+        return url;
+    }
+
+    /**
+     * @return the number of bytes written, or -1 if slack answered that the offset is at the end of the file
+     */
+    private long transfer(final URI url, final long offset, final WritableByteChannel target, final boolean canRestart,
+                          final long size, final ProgressListener listener) throws IOException {
+        final HttpsURLConnection connection = this.connection.openDownload(url, offset);
+        try {
+            final int code = connection.getResponseCode();
+            if (code == 416) {
+                // Nothing left to download
+                return -1;
+            }
+
+            long position = offset;
+            if (offset > 0 && code != 206) {
+                // The range was ignored and the whole file is being sent
+                if (!canRestart) {
+                    throw new IOException("Download of " + url + " cannot be resumed");
+                }
+                final FileChannel file = (FileChannel) target;
+                file.truncate(0);
+                file.position(0);
+                position = 0;
+            } else if (target instanceof FileChannel) {
+                ((FileChannel) target).position(offset);
+            }
+
+            final long start = position;
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            try (ReadableByteChannel source = Channels.newChannel(connection.getInputStream())) {
+                while (source.read(buffer) != -1) {
+                    buffer.flip();
+                    position += buffer.remaining();
+                    while (buffer.hasRemaining()) {
+                        target.write(buffer);
+                    }
+                    buffer.clear();
+                    if (listener != null) {
+                        listener.onProgress(position, size > 0 ? size : -1);
+                    }
+                }
+            }
+            return position - start;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private MultipartBody createBody(final FileUpload upload) {
+        final MultipartBody body = new MultipartBody()
+                .field("filename", upload.getFilename())
+                .field("title", upload.getTitle())
+                .field("filetype", upload.getFileType())
+                .field("initial_comment", upload.getInitialComment())
+                .field("thread_ts", upload.getThreadTs());
+        if (upload.getChannels() != null && !upload.getChannels().isEmpty()) {
+            body.field("channels", Joiner.on(',').join(upload.getChannels()));
+        }
+        return body;
+    }
+
+    private FileObject send(final MultipartBody body, final FileUpload upload) throws IOException, SlackException {
+        this.connection.getRateLimits().acquire(SlackConstants.FILE_UPLOAD);
+        final JsonObject result = this.connection.callMethodHandled(SlackConstants.FILE_UPLOAD, body, upload.getListener());
+        return this.codec.decode(result.get("file"), FileObject.class);
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (this.executor == null) {
+            this.executor = Executors.newFixedThreadPool(MAX_CONCURRENT_UPLOADS, new ThreadFactoryBuilder()
+                    .setNameFormat("slack-upload-%d")
+                    .setDaemon(true)
+                    .build());
+        }
+        return this.executor;
+    }
+}
@@ -0,0 +1,30 @@
+package au.com.addstar.slackapi;
+
+import au.com.addstar.slackapi.objects.ObjectID;
+import au.com.addstar.slackapi.objects.SlackTimestamp;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Which files to list with {@link FileManager#listFiles(FileQuery)}, every filter is optional
+ */
+@Builder
+@Getter
+public class FileQuery
+{
+    public static final FileQuery ALL = builder().build();
+
+    private ObjectID channel;
+    private ObjectID user;
+    /**
+     * Comma separated slack file types eg. "images,zips"
+     */
+    private String types;
+    private SlackTimestamp from;
+    private SlackTimestamp to;
+    /**
+     * The number of files fetched with each request
+     */
+    @Builder.Default
+    private int pageSize = 100;
+}
@@ -0,0 +1,41 @@
+package au.com.addstar.slackapi;
+
+import java.util.List;
+
+import au.com.addstar.slackapi.objects.ObjectID;
+import au.com.addstar.slackapi.objects.SlackTimestamp;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * The details of a file to upload with {@link FileManager}
+ */
+@Builder
+@Getter
+public class FileUpload
+{
+    /**
+     * The name of the file as shown in slack
+     */
+    @NonNull
+    private String filename;
+    private String title;
+    /**
+     * The slack file type eg. "text", detected from the contents when null
+     */
+    private String fileType;
+    private String initialComment;
+    /**
+     * The conversations to share the file to, it is private to the uploader when null
+     */
+    private List<ObjectID> channels;
+    /**
+     * The message to share the file as a reply to, channels must have a single conversation
+     */
+    private SlackTimestamp threadTs;
+    /**
+     * Told how much of the file has been sent, may be null
+     */
+    private ProgressListener listener;
+}
@@ -11,7 +11,6 @@ import au.com.addstar.slackapi.internal.SlackConstants;
 import au.com.addstar.slackapi.objects.GroupChannel;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -24,12 +23,12 @@ import com.google.gson.JsonObject;
 @Deprecated
 public class GroupManager
 {
-    private Gson gson;
+    private JsonCodec codec;
     private SlackConnection connection;
 
     GroupManager(SlackAPI main)
     {
-        gson = main.getGson();
+        codec = main.getCodec();
         connection = main.getSlack();
     }
 
@@ -55,7 +54,7 @@ public class GroupManager
         ImmutableList.Builder<GroupChannel> groups = ImmutableList.builder();
 
         for (JsonElement rawGroup : rawList)
-            groups.add(gson.fromJson(rawGroup, GroupChannel.class));
+            groups.add(codec.decode(rawGroup, GroupChannel.class));
 
         return groups.build();
     }
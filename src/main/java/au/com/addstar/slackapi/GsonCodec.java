@@ -0,0 +1,102 @@
+package au.com.addstar.slackapi;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+
+import au.com.addstar.slackapi.objects.Attachment;
+import au.com.addstar.slackapi.objects.BaseObject;
+import au.com.addstar.slackapi.objects.Message;
+import au.com.addstar.slackapi.objects.blocks.Block;
+import au.com.addstar.slackapi.objects.blocks.composition.CompositionObject;
+import au.com.addstar.slackapi.objects.blocks.elements.Element;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * The default codec, using the streaming gson adapters of the model objects.
+ * Parsed json is read in place, so objects can hold on to the parts they decode lazily.
+ */
+public class GsonCodec implements JsonCodec
+{
+    private final Gson gson;
+
+    public GsonCodec()
+    {
+        GsonBuilder builder = new GsonBuilder();
+        BaseObject.addGsonAdapters(builder);
+        builder.registerTypeAdapterFactory(Message.getGsonAdapter());
+        Attachment.addGsonAdapters(builder);
+        Block.addGsonAdapters(builder);
+        CompositionObject.addGsonAdapters(builder);
+        Element.addGsonAdapters(builder);
+        gson = builder.create();
+    }
+
+    /**
+     * @return the gson instance with every model adapter registered
+     */
+    public Gson getGson()
+    {
+        return gson;
+    }
+
+    @Override
+    public <T> T decode(Reader in, Type type) throws IOException
+    {
+        try
+        {
+            return gson.fromJson(in, type);
+        }
+        catch (JsonIOException e)
+        {
+            throw new IOException(e.getMessage(), e.getCause());
+        }
+    }
+
+    @Override
+    public void encode(Object value, Writer out) throws IOException
+    {
+        try
+        {
+            gson.toJson(value, out);
+        }
+        catch (JsonIOException e)
+        {
+            throw new IOException(e.getMessage(), e.getCause());
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T decode(JsonElement json, Type type)
+    {
+        if (json == null)
+            return null;
+
+        TypeAdapter<T> adapter = (TypeAdapter<T>) gson.getAdapter(TypeToken.get(type));
+        if (json.isJsonObject())
+        {
+            // Lets the object keep parts of the tree it does not need yet without copying them
+            adapter = BaseObject.treeAdapter(adapter, json.getAsJsonObject());
+        }
+        return adapter.fromJsonTree(json);
+    }
+
+    @Override
+    public String encode(Object value)
+    {
+        return gson.toJson(value);
+    }
+
+    @Override
+    public JsonElement encodeTree(Object value)
+    {
+        return gson.toJsonTree(value);
+    }
+}
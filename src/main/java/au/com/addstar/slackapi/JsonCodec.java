@@ -0,0 +1,81 @@
+package au.com.addstar.slackapi;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+
+import com.google.gson.JsonElement;
+
+/**
+ * Encodes and decodes the model objects to and from json.
+ * <p>
+ * The model objects read and write themselves through Gson (see
+ * {@link au.com.addstar.slackapi.objects.BaseObject}) and responses from slack arrive as
+ * parsed Gson trees, so {@link GsonCodec} is the only codec. This interface is what the
+ * managers are given, a caller can pass their own to {@link SlackAPI#SlackAPI(String, JsonCodec)}
+ * to wrap the gson codec, for example to time or log what is decoded.
+ * <p>
+ * Codecs must be safe to use from multiple threads.
+ */
+public interface JsonCodec
+{
+    /**
+     * Reads a value
+     * @param in the json text
+     * @param type the type to read
+     * @param <T> the type to read
+     * @return the value, or null if the json was null
+     * @throws IOException if the json cannot be read
+     */
+    <T> T decode(Reader in, Type type) throws IOException;
+
+    /**
+     * Writes a value
+     * @param value the value to write
+     * @param out where to write the json text
+     * @throws IOException if the json cannot be written
+     */
+    void encode(Object value, Writer out) throws IOException;
+
+    /**
+     * Reads a value from parsed json
+     * @param json the json
+     * @param type the type to read
+     * @param <T> the type to read
+     * @return the value, or null if the json was null
+     */
+    <T> T decode(JsonElement json, Type type);
+
+    /**
+     * Reads a value from parsed json
+     * @param json the json
+     * @param type the class to read
+     * @param <T> the class to read
+     * @return the value, or null if the json was null
+     */
+    default <T> T decode(JsonElement json, Class<T> type)
+    {
+        return decode(json, (Type) type);
+    }
+
+    /**
+     * @param value the value to write
+     * @return the value as json text
+     */
+    String encode(Object value);
+
+    /**
+     * @param value the value to write
+     * @return the value as parsed json, so it can have options added before it is sent
+     */
+    JsonElement encodeTree(Object value);
+
+    /**
+     * @return a new gson codec
+     */
+    static JsonCodec getDefault()
+    {
+        return new GsonCodec();
+    }
+}
@@ -0,0 +1,103 @@
+package au.com.addstar.slackapi;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Wraps a listener to record how long each call takes, and optionally moves
+ * it onto its own executor once it exceeds the listener budget
+ */
+class ListenerHandle
+{
+    final RealTimeListener listener;
+    final ListenerStats stats = new ListenerStats();
+    private final long listenerBudget;
+    private final boolean quarantineSlowListeners;
+    // Set by whichever thread finds the listener over budget
+    private volatile ExecutorService executor;
+
+    /**
+     * @param listener the listener
+     * @param listenerBudget the time in nanoseconds a call may take, or 0 for no budget
+     * @param quarantineSlowListeners true to move the listener onto its own executor once over budget
+     */
+    ListenerHandle(RealTimeListener listener, long listenerBudget, boolean quarantineSlowListeners)
+    {
+        this.listener = listener;
+        this.listenerBudget = listenerBudget;
+        this.quarantineSlowListeners = quarantineSlowListeners;
+    }
+
+    void deliver(Consumer<RealTimeListener> call)
+    {
+        ExecutorService executor = this.executor;
+        if (executor != null)
+        {
+            try
+            {
+                executor.execute(() -> invoke(call));
+                return;
+            }
+            catch (RejectedExecutionException e)
+            {
+                // Shut down, call it here so it still gets the call
+            }
+        }
+        invoke(call);
+    }
+
+    private void invoke(Consumer<RealTimeListener> call)
+    {
+        long start = System.nanoTime();
+        try
+        {
+            call.accept(listener);
+        }
+        catch (Throwable e)
+        {
+            stats.recordError(e);
+            e.printStackTrace();
+        }
+        finally
+        {
+            long elapsed = System.nanoTime() - start;
+            stats.record(elapsed);
+            if (listenerBudget > 0 && elapsed > listenerBudget)
+                onOverBudget(elapsed);
+        }
+    }
+
+    private void onOverBudget(long elapsed)
+    {
+        if (!stats.isSlow())
+        {
+            stats.markSlow();
+            System.err.println("Slack listener " + listener + " took " + TimeUnit.NANOSECONDS.toMillis(elapsed) + "ms, over the budget of " + TimeUnit.NANOSECONDS.toMillis(listenerBudget) + "ms");
+        }
+        if (quarantineSlowListeners && executor == null)
+        {
+            synchronized (this)
+            {
+                if (executor == null)
+                {
+                    executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                            .setNameFormat("SlackRTM-listener-%d")
+                            .setDaemon(true)
+                            .build());
+                    stats.markQuarantined();
+                }
+            }
+        }
+    }
+
+    void shutdown()
+    {
+        if (executor != null)
+            executor.shutdown();
+    }
+}
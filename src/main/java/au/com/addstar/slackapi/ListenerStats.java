@@ -0,0 +1,150 @@
+package au.com.addstar.slackapi;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timing and error counts for a single {@link RealTimeListener}.
+ * Latencies are kept in a histogram of power of 2 microsecond buckets,
+ * bucket {@code n} holds calls that took less than {@code 2^n} microseconds.
+ */
+@SuppressWarnings("WeakerAccess")
+public class ListenerStats
+{
+    private static final int BUCKETS = 32;
+
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    private volatile Throwable lastError;
+    private volatile boolean slow;
+    private volatile boolean quarantined;
+
+    void record(long nanos)
+    {
+        invocations.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+        histogram.incrementAndGet(bucketFor(nanos));
+    }
+
+    void recordError(Throwable error)
+    {
+        errors.increment();
+        lastError = error;
+    }
+
+    void markSlow()
+    {
+        slow = true;
+    }
+
+    void markQuarantined()
+    {
+        quarantined = true;
+    }
+
+    private static int bucketFor(long nanos)
+    {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    public long getInvocations()
+    {
+        return invocations.sum();
+    }
+
+    public long getErrors()
+    {
+        return errors.sum();
+    }
+
+    /**
+     * @return the most recent exception thrown by the listener, or null
+     */
+    public Throwable getLastError()
+    {
+        return lastError;
+    }
+
+    public long getMeanLatency(TimeUnit unit)
+    {
+        long count = invocations.sum();
+        if (count == 0)
+            return 0;
+        return unit.convert(totalNanos.sum() / count, TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxLatency(TimeUnit unit)
+    {
+        return unit.convert(maxNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets an upper bound for the latency at the given percentile
+     *
+     * @param percentile between 0 and 100
+     * @param unit       the unit to return
+     * @return the upper bound of the histogram bucket containing the percentile
+     */
+    public long getLatencyPercentile(double percentile, TimeUnit unit)
+    {
+        long[] counts = getHistogram();
+        long total = 0;
+        for (long count : counts)
+            total += count;
+        if (total == 0)
+            return 0;
+
+        long target = (long) Math.ceil(total * (percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length; ++i)
+        {
+            seen += counts[i];
+            if (seen >= target)
+                return unit.convert(1L << i, TimeUnit.MICROSECONDS);
+        }
+        return unit.convert(1L << (BUCKETS - 1), TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * @return a copy of the latency histogram
+     */
+    public long[] getHistogram()
+    {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; ++i)
+            counts[i] = histogram.get(i);
+        return counts;
+    }
+
+    /**
+     * @return true if the listener has exceeded the budget set by {@link RealTimeOptions#getListenerBudget()}
+     */
+    public boolean isSlow()
+    {
+        return slow;
+    }
+
+    /**
+     * @return true if the listener has been moved onto its own executor
+     */
+    public boolean isQuarantined()
+    {
+        return quarantined;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("invocations=%d errors=%d mean=%dus p99<=%dus max=%dus%s%s", getInvocations(), getErrors(),
+                getMeanLatency(TimeUnit.MICROSECONDS), getLatencyPercentile(99, TimeUnit.MICROSECONDS),
+                getMaxLatency(TimeUnit.MICROSECONDS), slow ? " slow" : "", quarantined ? " quarantined" : "");
+    }
+}
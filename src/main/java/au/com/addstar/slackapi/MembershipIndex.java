@@ -0,0 +1,266 @@
+package au.com.addstar.slackapi;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import au.com.addstar.slackapi.internal.CompactBitmap;
+import au.com.addstar.slackapi.internal.ObjectIDMap;
+import au.com.addstar.slackapi.objects.ObjectID;
+
+/**
+ * Which users are members of which conversations.
+ * <p>
+ * Users and conversations are each given a dense int slot the first time they are seen.
+ * The members of each conversation, and the conversations of each user, are kept as
+ * {@link CompactBitmap}s of those slots, so checking a membership is two slot lookups and
+ * a bit test, and intersections and unions work on whole bitmaps at a time.
+ * <p>
+ * Safe to use from multiple threads.
+ */
+@SuppressWarnings("WeakerAccess")
+public class MembershipIndex
+{
+    private final ObjectIDMap<Integer> userSlots = new ObjectIDMap<>();
+    private final List<ObjectID> users = new ArrayList<>();
+    private final List<CompactBitmap> conversationsByUser = new ArrayList<>();
+
+    private final ObjectIDMap<Integer> conversationSlots = new ObjectIDMap<>();
+    private final List<ObjectID> conversations = new ArrayList<>();
+    private final List<CompactBitmap> membersByConversation = new ArrayList<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Replaces the members of a conversation
+     * @param conversation the conversation id
+     * @param members the user ids of every member
+     */
+    public void setMembers(ObjectID conversation, Collection<ObjectID> members)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            int slot = conversationSlot(conversation);
+            CompactBitmap old = membersByConversation.get(slot);
+            old.forEach(user -> conversationsByUser.get(user).remove(slot));
+
+            CompactBitmap bitmap = new CompactBitmap();
+            for (ObjectID member : members)
+            {
+                int user = userSlot(member);
+                bitmap.add(user);
+                conversationsByUser.get(user).add(slot);
+            }
+            membersByConversation.set(slot, bitmap);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addMember(ObjectID conversation, ObjectID user)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            int conversationSlot = conversationSlot(conversation);
+            int userSlot = userSlot(user);
+            membersByConversation.get(conversationSlot).add(userSlot);
+            conversationsByUser.get(userSlot).add(conversationSlot);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeMember(ObjectID conversation, ObjectID user)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            Integer conversationSlot = conversationSlots.get(conversation);
+            Integer userSlot = userSlots.get(user);
+            if (conversationSlot == null || userSlot == null)
+                return;
+            membersByConversation.get(conversationSlot).remove(userSlot);
+            conversationsByUser.get(userSlot).remove(conversationSlot);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forgets every member of a conversation
+     * @param conversation the conversation id
+     */
+    public void removeConversation(ObjectID conversation)
+    {
+        setMembers(conversation, Collections.emptyList());
+    }
+
+    public boolean isMember(ObjectID conversation, ObjectID user)
+    {
+        lock.readLock().lock();
+        try
+        {
+            Integer conversationSlot = conversationSlots.get(conversation);
+            Integer userSlot = userSlots.get(user);
+            return conversationSlot != null && userSlot != null
+                    && membersByConversation.get(conversationSlot).contains(userSlot);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getMemberCount(ObjectID conversation)
+    {
+        lock.readLock().lock();
+        try
+        {
+            Integer slot = conversationSlots.get(conversation);
+            return slot == null ? 0 : membersByConversation.get(slot).cardinality();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param conversation the conversation id
+     * @return the user ids of the members
+     */
+    public List<ObjectID> getMembers(ObjectID conversation)
+    {
+        lock.readLock().lock();
+        try
+        {
+            Integer slot = conversationSlots.get(conversation);
+            if (slot == null)
+                return Collections.emptyList();
+            return resolve(membersByConversation.get(slot), users);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param user the user id
+     * @return the ids of the conversations the user is a member of
+     */
+    public List<ObjectID> getConversations(ObjectID user)
+    {
+        lock.readLock().lock();
+        try
+        {
+            Integer slot = userSlots.get(user);
+            if (slot == null)
+                return Collections.emptyList();
+            return resolve(conversationsByUser.get(slot), conversations);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param conversations the conversation ids
+     * @return the user ids that are members of every conversation
+     */
+    public List<ObjectID> getCommonMembers(Collection<ObjectID> conversations)
+    {
+        if (conversations.isEmpty())
+            return Collections.emptyList();
+
+        lock.readLock().lock();
+        try
+        {
+            CompactBitmap result = null;
+            for (ObjectID conversation : conversations)
+            {
+                Integer slot = conversationSlots.get(conversation);
+                if (slot == null)
+                    return Collections.emptyList();
+                CompactBitmap members = membersByConversation.get(slot);
+                result = result == null ? members : CompactBitmap.and(result, members);
+                if (result.isEmpty())
+                    return Collections.emptyList();
+            }
+            return resolve(result, users);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param conversations the conversation ids
+     * @return the user ids that are members of any of the conversations
+     */
+    public List<ObjectID> getAllMembers(Collection<ObjectID> conversations)
+    {
+        lock.readLock().lock();
+        try
+        {
+            CompactBitmap result = new CompactBitmap();
+            for (ObjectID conversation : conversations)
+            {
+                Integer slot = conversationSlots.get(conversation);
+                if (slot != null)
+                    result = CompactBitmap.or(result, membersByConversation.get(slot));
+            }
+            return resolve(result, users);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int userSlot(ObjectID user)
+    {
+        Integer slot = userSlots.get(user);
+        if (slot == null)
+        {
+            slot = users.size();
+            users.add(user);
+            conversationsByUser.add(new CompactBitmap());
+            userSlots.put(user, slot);
+        }
+        return slot;
+    }
+
+    private int conversationSlot(ObjectID conversation)
+    {
+        Integer slot = conversationSlots.get(conversation);
+        if (slot == null)
+        {
+            slot = conversations.size();
+            conversations.add(conversation);
+            membersByConversation.add(new CompactBitmap());
+            conversationSlots.put(conversation, slot);
+        }
+        return slot;
+    }
+
+    private static List<ObjectID> resolve(CompactBitmap slots, List<ObjectID> ids)
+    {
+        List<ObjectID> result = new ArrayList<>(slots.cardinality());
+        slots.forEach(slot -> result.add(ids.get(slot)));
+        return result;
+    }
+}
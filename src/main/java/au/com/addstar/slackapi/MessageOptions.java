@@ -33,6 +33,12 @@ public class MessageOptions
     private List<Attachment> attachments;
     private List<Block> blocks;
     private boolean format = false;
+    /**
+     * The lane the message waits in when chat.postMessage is near its rate limit in the channel.
+     * When null the message is sent straight away without waiting on the limit,
+     * and broadcasts wait in the bulk lane.
+     */
+    private Priority priority;
 
     public enum ParseMode
     {
@@ -40,4 +46,11 @@ public class MessageOptions
         Partial,
         None
     }
+
+    public enum Priority
+    {
+        Critical,
+        Normal,
+        Bulk
+    }
 }
@@ -0,0 +1,439 @@
+package au.com.addstar.slackapi;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import au.com.addstar.slackapi.exceptions.SlackMesssageInvalidException;
+import au.com.addstar.slackapi.internal.MessageValidator;
+import au.com.addstar.slackapi.internal.SlackConstants;
+import au.com.addstar.slackapi.objects.ObjectID;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * A message that has been serialized once so it can be sent many times with only a few
+ * values changed.
+ * <p>
+ * Any string in the message may contain slots written as {@code {{name}}}, names may use
+ * letters, digits, '_', '-' and '.'. The message is split into UTF-8 byte segments around
+ * the slots when it is compiled, so filling it is a copy of the segments with each value
+ * JSON escaped in between.
+ * <p>
+ * The rest of the message is checked against slacks limits when it is compiled. For each string
+ * with slots the compiler records how many characters are left for the values under the limit
+ * of that string, so filling only has to add up the lengths of the values.
+ * <p>
+ * Create templates with {@link SlackAPI#compileTemplate(au.com.addstar.slackapi.objects.Message, MessageOptions)}.
+ * Templates are immutable and can be shared between threads.
+ */
+public final class MessageTemplate
+{
+    // '#' is not allowed in slot names so this cannot clash with a user slot, it is only
+    // placed by the compiler as the value of the last member
+    private static final String CHANNEL_SLOT = "#channel";
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final byte[][] segments;
+    private final String[] slots;
+    // The budget each slot shares with the other slots in the same string, -1 if it is not limited
+    private final int[] slotBudgets;
+    // The characters left for the values of the string of each budget
+    private final int[] budgets;
+    private final String[] budgetViolations;
+    private final Set<String> slotNames;
+    private final ObjectID channel;
+    private final int literalLength;
+
+    private MessageTemplate(List<byte[]> segments, List<String> slots, Budgets budgets, ObjectID channel)
+    {
+        this.segments = segments.toArray(new byte[0][]);
+        this.slots = slots.toArray(new String[0]);
+        this.channel = channel;
+
+        this.slotBudgets = new int[this.slots.length];
+        for (int i = 0; i < this.slotBudgets.length; ++i)
+            this.slotBudgets[i] = this.slots[i].equals(CHANNEL_SLOT) ? -1 : budgets.slotBudgets.get(i);
+        this.budgets = new int[budgets.budgets.size()];
+        for (int i = 0; i < this.budgets.length; ++i)
+            this.budgets[i] = budgets.budgets.get(i);
+        this.budgetViolations = budgets.violations.toArray(new String[0]);
+
+        Set<String> names = new LinkedHashSet<>(slots);
+        names.remove(CHANNEL_SLOT);
+        this.slotNames = Collections.unmodifiableSet(names);
+
+        int length = 0;
+        for (byte[] segment : this.segments)
+            length += segment.length;
+        this.literalLength = length;
+    }
+
+    /**
+     * Compiles a serialized message
+     * @param message the message json, including the options
+     * @param channel the channel to send to when none is given while filling, may be null
+     * @return the template
+     */
+    static MessageTemplate compile(JsonObject message, ObjectID channel)
+    {
+        return compile(message, channel, true);
+    }
+
+    /**
+     * Compiles a serialized message that only has the channel as a slot, any {@code {{name}}}
+     * in the message is sent as it is
+     * @param message the message json, including the options
+     * @return the template
+     */
+    static MessageTemplate compileChannelOnly(JsonObject message)
+    {
+        return compile(message, null, false);
+    }
+
+    private static MessageTemplate compile(JsonObject message, ObjectID channel, boolean userSlots)
+    {
+        JsonObject copy = message.deepCopy();
+        copy.remove("channel");
+        String json = copy.toString();
+        // Everything up to the closing brace, the channel is added as the last member
+        int end = json.length() - 1;
+
+        List<byte[]> segments = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+        int start = 0;
+        int open = userSlots ? nextSlot(json, 0) : -1;
+        while (open >= 0 && open < end)
+        {
+            int close = json.indexOf("}}", open + 2);
+            segments.add(json.substring(start, open).getBytes(StandardCharsets.UTF_8));
+            slots.add(json.substring(open + 2, close));
+            start = close + 2;
+            open = nextSlot(json, start);
+        }
+
+        Budgets budgets = new Budgets();
+        if (userSlots)
+        {
+            MessageValidator.findLengthLimits(copy, SlackConstants.CHAT_POST, budgets);
+            // The strings are visited in the order they are written so the slots line up
+            budgets.visit(copy);
+            if (budgets.slotBudgets.size() != slots.size())
+                throw new IllegalStateException("The slots of the message could not be matched to its strings");
+        }
+
+        String separator = copy.size() == 0 ? "" : ",";
+        segments.add((json.substring(start, end) + separator + "\"channel\":\"").getBytes(StandardCharsets.UTF_8));
+        slots.add(CHANNEL_SLOT);
+        segments.add("\"}".getBytes(StandardCharsets.UTF_8));
+
+        return new MessageTemplate(segments, slots, budgets, channel);
+    }
+
+    /**
+     * Finds the next slot
+     * @param text the text to look in
+     * @param from where to start looking
+     * @return the index of the opening braces of the slot, or -1 if there are no more
+     */
+    private static int nextSlot(String text, int from)
+    {
+        int open = text.indexOf("{{", from);
+        while (open >= 0)
+        {
+            int close = text.indexOf("}}", open + 2);
+            if (close < 0)
+                return -1;
+            if (isSlotName(text.substring(open + 2, close)))
+                return open;
+            open = text.indexOf("{{", open + 1);
+        }
+        return -1;
+    }
+
+    private static boolean isSlotName(String name)
+    {
+        if (name.isEmpty())
+            return false;
+
+        for (int i = 0; i < name.length(); ++i)
+        {
+            char c = name.charAt(i);
+            if (!(Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.'))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the names of the slots in this template
+     */
+    public Set<String> getSlotNames()
+    {
+        return slotNames;
+    }
+
+    /**
+     * @return the channel the message is sent to by default, may be null
+     */
+    public ObjectID getChannel()
+    {
+        return channel;
+    }
+
+    /**
+     * Fills the template for the default channel
+     * @param values the value for each slot, written with {@link String#valueOf(Object)}
+     * @return the UTF-8 encoded message json
+     * @throws IllegalArgumentException if a slot has no value, there is no channel or a filled string is too long
+     */
+    public byte[] fill(Map<String, ?> values)
+    {
+        return fill(channel, values);
+    }
+
+    /**
+     * Fills the template
+     * @param channel the channel to send to
+     * @param values the value for each slot, written with {@link String#valueOf(Object)}
+     * @return the UTF-8 encoded message json
+     * @throws IllegalArgumentException if a slot has no value, there is no channel or a filled string is too long
+     */
+    public byte[] fill(ObjectID channel, Map<String, ?> values)
+    {
+        List<String> violations = new ArrayList<>(0);
+        byte[] filled = fill(channel, values, violations);
+        if (filled == null)
+            throw new IllegalArgumentException(String.join(", ", violations));
+        return filled;
+    }
+
+    /**
+     * Fills the template, checking the filled strings are within slacks limits
+     * @param channel the channel to send to
+     * @param values the value for each slot, written with {@link String#valueOf(Object)}
+     * @return the UTF-8 encoded message json
+     * @throws IllegalArgumentException if a slot has no value or there is no channel
+     * @throws SlackMesssageInvalidException if a filled string is too long
+     */
+    byte[] fillChecked(ObjectID channel, Map<String, ?> values) throws SlackMesssageInvalidException
+    {
+        List<String> violations = new ArrayList<>(0);
+        byte[] filled = fill(channel, values, violations);
+        if (filled == null)
+            throw new SlackMesssageInvalidException("INVALID OBJECT", violations);
+        return filled;
+    }
+
+    /**
+     * @return the filled message, or null if a filled string is too long
+     */
+    private byte[] fill(ObjectID channel, Map<String, ?> values, List<String> violations)
+    {
+        if (channel == null)
+            throw new IllegalArgumentException("No channel was given for the message");
+
+        String[] filled = new String[slots.length];
+        int[] used = new int[budgets.length];
+        int estimate = literalLength;
+        for (int i = 0; i < slots.length; ++i)
+        {
+            String value;
+            if (slots[i].equals(CHANNEL_SLOT))
+                value = channel.toString();
+            else
+            {
+                Object raw = values.get(slots[i]);
+                if (raw == null && !values.containsKey(slots[i]))
+                    throw new IllegalArgumentException("No value was given for the slot " + slots[i]);
+                value = String.valueOf(raw);
+            }
+            filled[i] = value;
+            if (slotBudgets[i] >= 0)
+                used[slotBudgets[i]] += value.length();
+            estimate += value.length() + (value.length() >> 3) + 8;
+        }
+
+        for (int i = 0; i < budgets.length; ++i)
+        {
+            if (used[i] > budgets[i])
+                violations.add(budgetViolations[i]);
+        }
+        if (!violations.isEmpty())
+            return null;
+
+        byte[] out = new byte[estimate];
+        int pos = 0;
+        for (int i = 0; i < slots.length; ++i)
+        {
+            out = ensure(out, pos, segments[i].length);
+            System.arraycopy(segments[i], 0, out, pos, segments[i].length);
+            pos += segments[i].length;
+            String value = filled[i];
+            // Worst case is 6 bytes per char for a \\u escape
+            out = ensure(out, pos, value.length() * 6);
+            pos = writeEscaped(value, out, pos);
+        }
+        byte[] last = segments[slots.length];
+        out = ensure(out, pos, last.length);
+        System.arraycopy(last, 0, out, pos, last.length);
+        pos += last.length;
+
+        return pos == out.length ? out : Arrays.copyOf(out, pos);
+    }
+
+    private static byte[] ensure(byte[] buffer, int pos, int needed)
+    {
+        if (pos + needed <= buffer.length)
+            return buffer;
+        return Arrays.copyOf(buffer, Math.max(buffer.length * 2, pos + needed));
+    }
+
+    /**
+     * Writes the value as the contents of a JSON string in UTF-8
+     */
+    private static int writeEscaped(String value, byte[] out, int pos)
+    {
+        int length = value.length();
+        for (int i = 0; i < length; ++i)
+        {
+            char c = value.charAt(i);
+            if (c < 0x80)
+            {
+                switch (c)
+                {
+                    case '"':
+                    case '\\':
+                        out[pos++] = '\\';
+                        out[pos++] = (byte) c;
+                        break;
+                    case '\n':
+                        out[pos++] = '\\';
+                        out[pos++] = 'n';
+                        break;
+                    case '\r':
+                        out[pos++] = '\\';
+                        out[pos++] = 'r';
+                        break;
+                    case '\t':
+                        out[pos++] = '\\';
+                        out[pos++] = 't';
+                        break;
+                    default:
+                        if (c < 0x20)
+                            pos = writeUnicodeEscape(c, out, pos);
+                        else
+                            out[pos++] = (byte) c;
+                }
+            }
+            else if (c < 0x800)
+            {
+                out[pos++] = (byte) (0xC0 | (c >> 6));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+            else if (c == 0x2028 || c == 0x2029)
+                pos = writeUnicodeEscape(c, out, pos);
+            else if (Character.isSurrogate(c))
+            {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1)))
+                {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    out[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                    out[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    out[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    out[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+                }
+                else
+                    out[pos++] = '?';
+            }
+            else
+            {
+                out[pos++] = (byte) (0xE0 | (c >> 12));
+                out[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return pos;
+    }
+
+    private static int writeUnicodeEscape(char c, byte[] out, int pos)
+    {
+        out[pos++] = '\\';
+        out[pos++] = 'u';
+        out[pos++] = HEX[(c >> 12) & 0xF];
+        out[pos++] = HEX[(c >> 8) & 0xF];
+        out[pos++] = HEX[(c >> 4) & 0xF];
+        out[pos++] = HEX[c & 0xF];
+        return pos;
+    }
+
+    /**
+     * Works out how many characters the slots of each limited string can use
+     */
+    private static class Budgets implements MessageValidator.LengthLimits
+    {
+        private final Map<JsonElement, Integer> limits = new IdentityHashMap<>();
+        private final List<Integer> slotBudgets = new ArrayList<>();
+        private final List<Integer> budgets = new ArrayList<>();
+        private final List<String> violations = new ArrayList<>();
+        private final Map<JsonElement, String> paths = new IdentityHashMap<>();
+
+        @Override
+        public void limit(JsonElement value, String path, int max)
+        {
+            limits.put(value, max);
+            paths.put(value, path);
+        }
+
+        void visit(JsonElement json)
+        {
+            if (json.isJsonObject())
+            {
+                for (Map.Entry<String, JsonElement> member : json.getAsJsonObject().entrySet())
+                {
+                    addString(member.getKey(), null);
+                    visit(member.getValue());
+                }
+            }
+            else if (json.isJsonArray())
+            {
+                for (JsonElement element : json.getAsJsonArray())
+                    visit(element);
+            }
+            else if (json.isJsonPrimitive() && json.getAsJsonPrimitive().isString())
+                addString(json.getAsString(), json);
+        }
+
+        private void addString(String text, JsonElement value)
+        {
+            int count = 0;
+            int slotLength = 0;
+            for (int open = nextSlot(text, 0); open >= 0; )
+            {
+                int close = text.indexOf("}}", open + 2);
+                ++count;
+                slotLength += close + 2 - open;
+                open = nextSlot(text, close + 2);
+            }
+            if (count == 0)
+                return;
+
+            int budget = -1;
+            Integer limit = value == null ? null : limits.get(value);
+            if (limit != null)
+            {
+                budget = budgets.size();
+                budgets.add(limit - (text.length() - slotLength));
+                violations.add(SlackConstants.CHAT_POST + " : " + paths.get(value) + " is longer than " + limit + " characters");
+            }
+            for (int i = 0; i < count; ++i)
+                slotBudgets.add(budget);
+        }
+    }
+}
@@ -0,0 +1,681 @@
+package au.com.addstar.slackapi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+
+import au.com.addstar.slackapi.exceptions.SlackAuthException;
+import au.com.addstar.slackapi.exceptions.SlackException;
+import au.com.addstar.slackapi.exceptions.SlackRequestLimitException;
+import au.com.addstar.slackapi.internal.MessageValidator;
+import au.com.addstar.slackapi.internal.SlackConnection;
+import au.com.addstar.slackapi.internal.SlackConstants;
+import au.com.addstar.slackapi.objects.Message;
+import au.com.addstar.slackapi.objects.ObjectID;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+/**
+ * A queue of messages to post that is kept on disk, so messages survive restarts and outages.
+ * <p>
+ * {@link #send(Message, MessageOptions, String)} serializes the message, adds it to the
+ * current batch and waits until a commit thread has appended that batch to a log in the outbox
+ * directory and forced it to disk, so the message survives a crash once send returns. Messages
+ * sent at the same time share one write and force. {@link #enqueue(Message, MessageOptions, String)}
+ * adds the message without waiting, it is lost if the process dies before the batch is written.
+ * A drain thread then posts the messages in order, within the chat.postMessage rate limit of each channel,
+ * waiting longer between retries while slack cannot be reached or reports trouble on its side.
+ * Once posted, an ack is written to the log. A message slack rejects for good, such as one for
+ * an unknown channel, is acked too and reported to the {@link OutboxOptions#getListener() listener}.
+ * <p>
+ * Messages without an ack are posted again when the outbox is next opened, so each message is
+ * posted at least once, a message posted just before a crash may be posted twice. Each message
+ * has an idempotency key, a key that is still in the log is not added again so retrying a send
+ * does not queue the message twice. The keys are only known to the outbox, slack never sees
+ * them.
+ * <p>
+ * The log is split into segments. A segment is deleted once its messages and those of all older
+ * segments have been posted. Close the outbox when shutting down so the last batch is written.
+ */
+public class Outbox implements Closeable
+{
+    private static final byte MESSAGE = 1;
+    private static final byte ACK = 2;
+    // type, length, crc
+    private static final int HEADER_SIZE = 9;
+    private static final int MAX_KEY_LENGTH = 0xFFFF;
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final long MIN_RETRY_DELAY = 1000;
+    // Errors slack returns when it is having trouble, not because of the message
+    private static final Set<String> TRANSIENT_ERRORS = ImmutableSet.of(
+            "internal_error", "fatal_error", "service_unavailable", "request_timeout");
+
+    private final SlackAPI api;
+    private final SlackConnection connection;
+    private final Path directory;
+    private final OutboxOptions options;
+    private final Thread committer;
+    private final Thread drainer;
+
+    // Guarded by this
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final Set<String> keys = new HashSet<>();
+    private final Deque<Entry> ready = new ArrayDeque<>();
+    private ByteArrayOutputStream batch = new ByteArrayOutputStream();
+    private List<Entry> batchEntries = new ArrayList<>();
+    private Segment active;
+    private long appendedSeq;
+    private long committedSeq;
+    private IOException commitFailure;
+    private boolean closed;
+    private boolean drained;
+
+    // Only used by the commit thread once started
+    private FileChannel activeChannel;
+
+    Outbox(SlackAPI api, SlackConnection connection, Path directory, OutboxOptions options) throws IOException
+    {
+        this.api = api;
+        this.connection = connection;
+        this.directory = directory;
+        this.options = options;
+
+        Files.createDirectories(directory);
+        replay();
+
+        ThreadFactory factory = new ThreadFactoryBuilder()
+                .setNameFormat("slack-outbox-%d")
+                .setDaemon(true)
+                .build();
+        committer = factory.newThread(this::commitLoop);
+        drainer = factory.newThread(this::drainLoop);
+        committer.start();
+        drainer.start();
+    }
+
+    /**
+     * Adds a message to the outbox with a new idempotency key, waiting until it is on disk
+     * @param message the message, its conversation is where it is sent
+     * @return the idempotency key of the message
+     * @throws IOException if the message could not be written
+     * @throws SlackException if the message is not valid
+     */
+    public String send(Message message) throws IOException, SlackException
+    {
+        return send(message, MessageOptions.DEFAULT);
+    }
+
+    /**
+     * Adds a message to the outbox with a new idempotency key, waiting until it is on disk
+     * @param message the message, its conversation is where it is sent
+     * @param options the options to send the message with
+     * @return the idempotency key of the message
+     * @throws IOException if the message could not be written
+     * @throws SlackException if the message is not valid
+     */
+    public String send(Message message, MessageOptions options) throws IOException, SlackException
+    {
+        String key = UUID.randomUUID().toString();
+        send(message, options, key);
+        return key;
+    }
+
+    /**
+     * Adds a message to the outbox unless a message with the same key is already in it,
+     * waiting until the batch it was added to is on disk.
+     *
+     * @param message the message, its conversation is where it is sent
+     * @param options the options to send the message with
+     * @param key the idempotency key of the message
+     * @return true if the message was added, false if the key was already in the outbox
+     * @throws IOException if the message could not be written, or the wait was interrupted
+     * @throws SlackException if the message is not valid
+     * @throws IllegalStateException if the outbox has been closed
+     */
+    public boolean send(Message message, MessageOptions options, String key) throws IOException, SlackException
+    {
+        long seq = add(message, options, key);
+        if (seq < 0)
+            return false;
+
+        synchronized (this)
+        {
+            try
+            {
+                waitForCommit(seq);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for the outbox to be written");
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a message to the outbox unless a message with the same key is already in it.
+     * This returns once the message is in the current batch, it is lost if the process
+     * dies before the batch is written. Use {@link #flush()} to wait until it is on disk.
+     *
+     * @param message the message, its conversation is where it is sent
+     * @param options the options to send the message with
+     * @param key the idempotency key of the message
+     * @return true if the message was added, false if the key was already in the outbox
+     * @throws IOException if the outbox can no longer be written
+     * @throws SlackException if the message is not valid
+     * @throws IllegalStateException if the outbox has been closed
+     */
+    public boolean enqueue(Message message, MessageOptions options, String key) throws IOException, SlackException
+    {
+        return add(message, options, key) >= 0;
+    }
+
+    /**
+     * @return the sequence of the append, or -1 if the key was already in the outbox
+     */
+    private long add(Message message, MessageOptions options, String key) throws IOException, SlackException
+    {
+        if (message.getConversationID() == null)
+            throw new IllegalArgumentException("The message has no conversation");
+        if (key.getBytes(StandardCharsets.UTF_8).length > MAX_KEY_LENGTH)
+            throw new IllegalArgumentException("The key is too long");
+
+        JsonObject obj = api.getCodec().encodeTree(message).getAsJsonObject();
+        api.addDefaultOptions(obj, options);
+        MessageValidator.validateMessage(obj, SlackConstants.CHAT_POST);
+        byte[] payload = obj.toString().getBytes(StandardCharsets.UTF_8);
+
+        synchronized (this)
+        {
+            if (closed)
+                throw new IllegalStateException("The outbox has been closed");
+            if (commitFailure != null)
+                throw new IOException("The outbox can no longer be written", commitFailure);
+            if (!keys.add(key))
+                return -1;
+
+            batchEntries.add(new Entry(key, message.getConversationID(), payload));
+            append(record(MESSAGE, key, payload));
+            return appendedSeq;
+        }
+    }
+
+    /**
+     * Waits until every message added so far is on disk
+     * @throws IOException if the messages could not be written
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized void flush() throws IOException, InterruptedException
+    {
+        waitForCommit(appendedSeq);
+    }
+
+    // Guarded by this
+    private void waitForCommit(long target) throws IOException, InterruptedException
+    {
+        while (committedSeq < target)
+        {
+            if (commitFailure != null)
+                throw new IOException("The outbox can no longer be written", commitFailure);
+            wait();
+        }
+    }
+
+    /**
+     * @return the number of messages that have not been posted yet
+     */
+    public synchronized int getPendingCount()
+    {
+        return ready.size() + batchEntries.size();
+    }
+
+    /**
+     * Writes the last batch and stops posting, messages that were not posted are kept
+     * until the outbox is opened again
+     * @throws IOException if the last batch could not be written
+     */
+    @Override
+    public void close() throws IOException
+    {
+        synchronized (this)
+        {
+            if (closed)
+                return;
+            closed = true;
+            notifyAll();
+        }
+
+        drainer.interrupt();
+        try
+        {
+            drainer.join();
+            committer.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        activeChannel.close();
+
+        synchronized (this)
+        {
+            if (commitFailure != null)
+                throw new IOException("The outbox could not be written", commitFailure);
+        }
+    }
+
+    // Guarded by this
+    private void append(byte[] record)
+    {
+        batch.write(record, 0, record.length);
+        ++appendedSeq;
+        notifyAll();
+    }
+
+    private void commitLoop()
+    {
+        while (true)
+        {
+            byte[] data;
+            List<Entry> entries;
+            long seq;
+            Segment written;
+            synchronized (this)
+            {
+                // Acks can still be added until the drainer has stopped
+                while (batch.size() == 0 && !(closed && drained))
+                {
+                    try
+                    {
+                        wait();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        return;
+                    }
+                }
+                if (batch.size() == 0)
+                    return;
+
+                data = batch.toByteArray();
+                entries = batchEntries;
+                seq = appendedSeq;
+                written = active;
+                batch = new ByteArrayOutputStream();
+                batchEntries = new ArrayList<>();
+            }
+
+            try
+            {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining())
+                    activeChannel.write(buffer);
+                activeChannel.force(false);
+
+                if (activeChannel.size() >= options.getSegmentSize())
+                    roll();
+            }
+            catch (IOException e)
+            {
+                System.err.println("Unable to write to the outbox in " + directory);
+                e.printStackTrace();
+                synchronized (this)
+                {
+                    commitFailure = e;
+                    notifyAll();
+                }
+                return;
+            }
+
+            synchronized (this)
+            {
+                for (Entry entry : entries)
+                {
+                    entry.segment = written;
+                    ++written.outstanding;
+                    written.keys.add(entry.key);
+                }
+                ready.addAll(entries);
+                committedSeq = seq;
+                removeDelivered();
+                notifyAll();
+            }
+        }
+    }
+
+    private void drainLoop()
+    {
+        long delay = MIN_RETRY_DELAY;
+        try
+        {
+            while (true)
+            {
+                Entry entry;
+                synchronized (this)
+                {
+                    while (ready.isEmpty() && !closed)
+                        wait();
+                    if (closed)
+                        return;
+                    entry = ready.peekFirst();
+                }
+
+                try
+                {
+                    connection.getRateLimits().acquire(SlackConstants.CHAT_POST, entry.channel, MessageOptions.Priority.Normal);
+                    connection.callMethodHandled(SlackConstants.CHAT_POST, entry.payload);
+                    delay = MIN_RETRY_DELAY;
+                }
+                catch (SlackRequestLimitException e)
+                {
+                    Thread.sleep(Math.max(0, e.getRetryTime() - System.currentTimeMillis()));
+                    continue;
+                }
+                catch (InterruptedIOException e)
+                {
+                    // Closed while waiting on the rate limit
+                    return;
+                }
+                catch (IOException e)
+                {
+                    Thread.sleep(delay);
+                    delay = Math.min(delay * 2, Math.max(MIN_RETRY_DELAY, options.getMaxRetryDelay()));
+                    continue;
+                }
+                catch (SlackException e)
+                {
+                    if (isTransient(e))
+                    {
+                        // Slack is having trouble or the token is being replaced, the message itself is fine
+                        Thread.sleep(delay);
+                        delay = Math.min(delay * 2, Math.max(MIN_RETRY_DELAY, options.getMaxRetryDelay()));
+                        continue;
+                    }
+                    // Retrying will not help, so it is acked to stop it blocking the rest
+                    dropped(entry, e);
+                }
+
+                synchronized (this)
+                {
+                    ready.pollFirst();
+                    --entry.segment.outstanding;
+                    append(record(ACK, entry.key, null));
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            // Closed
+        }
+        finally
+        {
+            synchronized (this)
+            {
+                drained = true;
+                notifyAll();
+            }
+        }
+    }
+
+    private static boolean isTransient(SlackException e)
+    {
+        return e instanceof SlackAuthException || TRANSIENT_ERRORS.contains(e.getCode());
+    }
+
+    private void dropped(Entry entry, SlackException e)
+    {
+        OutboxListener listener = options.getListener();
+        if (listener == null)
+        {
+            System.err.println("Slack rejected the message " + entry.key + " from the outbox, it will not be sent");
+            e.printStackTrace();
+            return;
+        }
+        try
+        {
+            listener.onDropped(entry.key, e);
+        }
+        catch (RuntimeException ex)
+        {
+            System.err.println("The outbox listener failed for the message " + entry.key);
+            ex.printStackTrace();
+        }
+    }
+
+    private void roll() throws IOException
+    {
+        Segment next;
+        synchronized (this)
+        {
+            next = new Segment(active.id + 1, directory.resolve(segmentName(active.id + 1)));
+        }
+        FileChannel channel = FileChannel.open(next.path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        activeChannel.close();
+        activeChannel = channel;
+        synchronized (this)
+        {
+            segments.add(next);
+            active = next;
+        }
+    }
+
+    // Guarded by this
+    private void removeDelivered()
+    {
+        while (!segments.isEmpty())
+        {
+            Segment oldest = segments.peekFirst();
+            if (oldest == active || oldest.outstanding > 0)
+                break;
+
+            segments.removeFirst();
+            keys.removeAll(oldest.keys);
+            try
+            {
+                Files.deleteIfExists(oldest.path);
+            }
+            catch (IOException e)
+            {
+                System.err.println("Unable to delete the outbox segment " + oldest.path);
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void replay() throws IOException
+    {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX))
+        {
+            for (Path file : stream)
+                files.add(file);
+        }
+        // The names are zero padded so they sort by id
+        files.sort(null);
+
+        Map<String, Entry> pending = new LinkedHashMap<>();
+        Set<String> seen = new HashSet<>();
+        long lastId = 0;
+        for (Path file : files)
+        {
+            String name = file.getFileName().toString();
+            long id;
+            try
+            {
+                id = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+            }
+            catch (NumberFormatException e)
+            {
+                continue;
+            }
+
+            Segment segment = new Segment(id, file);
+            segments.add(segment);
+            lastId = id;
+            readSegment(segment, pending, seen);
+        }
+
+        synchronized (this)
+        {
+            ready.addAll(pending.values());
+            for (Segment segment : segments)
+                keys.addAll(segment.keys);
+
+            active = new Segment(lastId + 1, directory.resolve(segmentName(lastId + 1)));
+            segments.add(active);
+            activeChannel = FileChannel.open(active.path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            removeDelivered();
+        }
+    }
+
+    private void readSegment(Segment segment, Map<String, Entry> pending, Set<String> seen) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment.path));
+        CRC32 crc = new CRC32();
+        while (buffer.hasRemaining())
+        {
+            int start = buffer.position();
+            boolean valid = buffer.remaining() >= HEADER_SIZE;
+            byte type = 0;
+            int length = 0;
+            if (valid)
+            {
+                type = buffer.get();
+                length = buffer.getInt();
+                int expected = buffer.getInt();
+                valid = length >= 2 && length <= buffer.remaining();
+                if (valid)
+                {
+                    crc.reset();
+                    crc.update(buffer.array(), buffer.position(), length);
+                    valid = (int) crc.getValue() == expected;
+                }
+            }
+
+            if (!valid)
+            {
+                // A write that was cut off, everything after it is lost too
+                System.err.println("Truncating the outbox segment " + segment.path + " at " + start);
+                try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.WRITE))
+                {
+                    channel.truncate(start);
+                }
+                return;
+            }
+
+            int end = buffer.position() + length;
+            int keyLength = buffer.getShort() & 0xFFFF;
+            String key = new String(buffer.array(), buffer.position(), keyLength, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + keyLength);
+
+            if (type == MESSAGE && seen.add(key))
+            {
+                byte[] payload = new byte[end - buffer.position()];
+                buffer.get(payload);
+                Entry entry = new Entry(key, channelOf(payload), payload);
+                entry.segment = segment;
+                ++segment.outstanding;
+                segment.keys.add(key);
+                pending.put(key, entry);
+            }
+            else if (type == ACK)
+            {
+                Entry entry = pending.remove(key);
+                if (entry != null)
+                    --entry.segment.outstanding;
+            }
+            buffer.position(end);
+        }
+    }
+
+    private static byte[] record(byte type, String key, byte[] payload)
+    {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int length = 2 + keyBytes.length + (payload == null ? 0 : payload.length);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + length);
+        buffer.put(type).putInt(length).putInt(0);
+        buffer.putShort((short) keyBytes.length).put(keyBytes);
+        if (payload != null)
+            buffer.put(payload);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_SIZE, length);
+        buffer.putInt(5, (int) crc.getValue());
+        return buffer.array();
+    }
+
+    /**
+     * @return the channel a recovered message is for, or null if it cannot be read
+     */
+    private static ObjectID channelOf(byte[] payload)
+    {
+        try
+        {
+            JsonElement channel = new JsonParser().parse(new String(payload, StandardCharsets.UTF_8)).getAsJsonObject().get("channel");
+            return channel != null && channel.isJsonPrimitive() ? ObjectID.of(channel.getAsString()) : null;
+        }
+        catch (JsonParseException | IllegalStateException e)
+        {
+            return null;
+        }
+    }
+
+    private static String segmentName(long id)
+    {
+        return String.format("%016d%s", id, SEGMENT_SUFFIX);
+    }
+
+    private static class Segment
+    {
+        private final long id;
+        private final Path path;
+        private final Set<String> keys = new HashSet<>();
+        private int outstanding;
+
+        Segment(long id, Path path)
+        {
+            this.id = id;
+            this.path = path;
+        }
+    }
+
+    private static class Entry
+    {
+        private final String key;
+        // The channel is the key of its rate limit
+        private final ObjectID channel;
+        private final byte[] payload;
+        private Segment segment;
+
+        Entry(String key, ObjectID channel, byte[] payload)
+        {
+            this.key = key;
+            this.channel = channel;
+            this.payload = payload;
+        }
+    }
+}
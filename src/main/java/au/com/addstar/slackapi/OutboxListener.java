@@ -0,0 +1,19 @@
+package au.com.addstar.slackapi;
+
+import au.com.addstar.slackapi.exceptions.SlackException;
+
+/**
+ * Told when the outbox gives up on a message
+ */
+@FunctionalInterface
+public interface OutboxListener
+{
+    /**
+     * Called when slack rejected a message in a way retrying cannot fix, such as an unknown
+     * channel or an invalid message. The message has been removed from the outbox.
+     * Called from the drain thread of the outbox.
+     * @param key the idempotency key of the message
+     * @param cause the error slack returned
+     */
+    void onDropped(String key, SlackException cause);
+}
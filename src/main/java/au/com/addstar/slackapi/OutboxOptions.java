@@ -0,0 +1,31 @@
+package au.com.addstar.slackapi;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Options for {@link SlackAPI#openOutbox(java.nio.file.Path, OutboxOptions)}
+ */
+@SuppressWarnings({"FieldMayBeFinal", "RedundantFieldInitialization"})
+@Builder
+@Getter
+public class OutboxOptions
+{
+    public static final OutboxOptions DEFAULT = builder().build();
+
+    /**
+     * The size in bytes a segment of the log grows to before a new one is started
+     */
+    @Builder.Default
+    private long segmentSize = 16 * 1024 * 1024;
+    /**
+     * The longest time in milliseconds to wait before retrying a message when slack cannot be reached
+     */
+    @Builder.Default
+    private long maxRetryDelay = 60000;
+    /**
+     * Told about messages slack rejected for good. When null they are only logged.
+     */
+    @Builder.Default
+    private OutboxListener listener = null;
+}
@@ -0,0 +1,15 @@
+package au.com.addstar.slackapi;
+
+/**
+ * Told how much of a file has been transferred
+ */
+@FunctionalInterface
+public interface ProgressListener
+{
+    /**
+     * Called after each chunk of the file is transferred, from the thread doing the transfer
+     * @param transferred the number of bytes transferred so far
+     * @param total the size of the file in bytes, or -1 if it is not known
+     */
+    void onProgress(long transferred, long total);
+}
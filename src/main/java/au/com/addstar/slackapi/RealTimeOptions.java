@@ -0,0 +1,84 @@
+package au.com.addstar.slackapi;
+
+import java.nio.file.Path;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Options that control how a {@link RealTimeSession} processes incoming events
+ */
+@SuppressWarnings({"FieldMayBeFinal", "RedundantFieldInitialization"})
+@Builder
+@Getter
+public class RealTimeOptions
+{
+    public static final RealTimeOptions DEFAULT = builder()
+        .pipelined(false)
+        .ringSize(1024)
+        .listenerBudget(0)
+        .quarantineSlowListeners(false)
+        .journalSegmentSize(64 * 1024 * 1024)
+        .journalMaxSegments(16)
+        .journalFlushInterval(1000)
+        .dedupCapacity(0)
+        .dedupWindow(600000)
+        .build();
+
+    /**
+     * When true incoming frames are decoded, enriched and dispatched on separate threads
+     * through a preallocated ring buffer rather than on the websocket thread.
+     * Listeners are then called from the dispatch thread.
+     */
+    @Builder.Default
+    private boolean pipelined = false;
+    /**
+     * The number of slots in the ring buffer, rounded up to a power of 2
+     */
+    @Builder.Default
+    private int ringSize = 1024;
+    /**
+     * The time in milliseconds a single listener call may take before the listener
+     * is flagged as slow. 0 disables the check.
+     */
+    @Builder.Default
+    private long listenerBudget = 0;
+    /**
+     * When true a listener that exceeds the budget is moved onto its own executor
+     * so it can no longer hold up the other listeners.
+     */
+    @Builder.Default
+    private boolean quarantineSlowListeners = false;
+    /**
+     * When set every frame received is appended to a journal in this directory so
+     * events can be replayed with {@link RealTimeSession#replay(long)}
+     */
+    private Path journalDirectory;
+    /**
+     * The size in bytes of each journal segment file
+     */
+    @Builder.Default
+    private int journalSegmentSize = 64 * 1024 * 1024;
+    /**
+     * The number of journal segments kept before the oldest is deleted
+     */
+    @Builder.Default
+    private int journalMaxSegments = 16;
+    /**
+     * How often in milliseconds the journal is forced to disk
+     */
+    @Builder.Default
+    private long journalFlushInterval = 1000;
+    /**
+     * The number of recent messages remembered so a message delivered again after a
+     * reconnect or replay is only passed to the listeners once. 0, the default, disables
+     * de-duplication, 4096 is a reasonable size when it is wanted.
+     */
+    @Builder.Default
+    private int dedupCapacity = 0;
+    /**
+     * How long in milliseconds a message is remembered for de-duplication
+     */
+    @Builder.Default
+    private long dedupWindow = 600000;
+}
@@ -5,7 +5,10 @@ import java.io.IOException;
 import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -13,11 +16,12 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 import au.com.addstar.slackapi.objects.*;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.eclipse.jetty.websocket.api.Session;
-import org.eclipse.jetty.websocket.api.WebSocketListener;
+import org.eclipse.jetty.websocket.api.WebSocketPartialListener;
 import org.eclipse.jetty.websocket.client.WebSocketClient;
 
 import lombok.Getter;
@@ -25,20 +29,27 @@ import au.com.addstar.slackapi.objects.Message.MessageType;
 import au.com.addstar.slackapi.events.MessageEvent;
 import au.com.addstar.slackapi.events.RealTimeEvent;
 import au.com.addstar.slackapi.exceptions.SlackRTException;
+import au.com.addstar.slackapi.internal.EventJournal;
+import au.com.addstar.slackapi.internal.FrameReader;
+import au.com.addstar.slackapi.internal.MessageDeduplicator;
+import au.com.addstar.slackapi.internal.ObjectIDMap;
+import au.com.addstar.slackapi.internal.RingBuffer;
 import au.com.addstar.slackapi.internal.Utilities;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
-import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
 
 @SuppressWarnings("WeakerAccess")
 public class RealTimeSession implements Closeable
 {
-    private Gson gson;
+    private JsonCodec codec;
+    private final JsonParser parser = new JsonParser();
 
     @Getter
     private User self;
@@ -48,106 +59,228 @@ public class RealTimeSession implements Closeable
     private Map<String, User> userMap;
     private Map<String, Conversation> channelMap;
 
-    private Map<ObjectID, User> userIdMap;
-    private Map<ObjectID, Conversation> channelIdMap;
+    private ObjectIDMap<User> userIdMap;
+    private ObjectIDMap<Conversation> channelIdMap;
+    private volatile MembershipIndex membershipIndex;
 
     private WebSocketClient client;
     private Session session;
     private int nextMessageId = 1;
-    private boolean needJoinConfirm;
+    private volatile boolean needJoinConfirm;
 
-    private List<RealTimeListener> listeners;
+    private List<ListenerHandle> listeners;
+    private final long listenerBudget;
+    private final boolean quarantineSlowListeners;
 
     private Map<Integer, Message> pendingMessages;
 
-    RealTimeSession(JsonObject object, SlackAPI main) throws IOException
+    private RingBuffer<FrameSlot> pipeline;
+    // Held while live or replayed events are dispatched so the two are never mixed
+    private final Object dispatchLock = new Object();
+    private EventJournal journal;
+    private MessageDeduplicator deduplicator;
+
+    RealTimeSession(JsonObject object, SlackAPI main, RealTimeOptions options) throws IOException
     {
-        gson = main.getGson();
+        codec = main.getCodec();
 
         listeners = Lists.newArrayList();
-        pendingMessages = Maps.newHashMap();
+        listenerBudget = TimeUnit.MILLISECONDS.toNanos(options.getListenerBudget());
+        quarantineSlowListeners = options.isQuarantineSlowListeners();
+        pendingMessages = Maps.newConcurrentMap();
 
         load(object);
 
+        if (options.getDedupCapacity() > 0)
+            deduplicator = new MessageDeduplicator(options.getDedupCapacity(), options.getDedupWindow());
+
+        if (options.getJournalDirectory() != null)
+            journal = new EventJournal(options.getJournalDirectory(), options.getJournalSegmentSize(), options.getJournalMaxSegments(), options.getJournalFlushInterval());
+
+        if (options.isPipelined())
+            initPipeline(options.getRingSize());
+
         initWebSocket(object.get("url").getAsString());
     }
 
-    public void addListener(RealTimeListener listener)
+    private void initPipeline(int size)
     {
-        synchronized(listeners)
+        RingBuffer.Handler<FrameSlot> decode = (slot, sequence) ->
         {
-            listeners.add(listener);
-        }
+            slot.json = parseFrame(slot.frame);
+        };
+        RingBuffer.Handler<FrameSlot> record = (slot, sequence) ->
+        {
+            if (slot.json != null)
+                journal(slot.frame, slot.json);
+        };
+        RingBuffer.Handler<FrameSlot> enrich = (slot, sequence) ->
+        {
+            if (slot.json != null && isMessageEvent(slot.json))
+                slot.event = makeMessageEvent(slot.json);
+        };
+        RingBuffer.Handler<FrameSlot> dispatch = (slot, sequence) ->
+        {
+            try
+            {
+                synchronized (dispatchLock)
+                {
+                    // Until login is confirmed frames must go through the normal handling
+                    if (slot.event != null && !needJoinConfirm)
+                        postEvent(slot.event);
+                    else if (slot.json != null)
+                        onFrame(slot.json);
+                }
+            }
+            finally
+            {
+                slot.clear();
+            }
+        };
+
+        List<RingBuffer.Handler<FrameSlot>> stages;
+        if (journal != null)
+            stages = Arrays.asList(decode, record, enrich, dispatch);
+        else
+            stages = Arrays.asList(decode, enrich, dispatch);
+
+        pipeline = new RingBuffer<>("SlackRTM", size, FrameSlot::new, stages, this::onPipelineError);
+        pipeline.start();
     }
 
-    public void removeListener(RealTimeListener listener)
+    private void onPipelineError(Throwable e)
+    {
+        SlackRTException exception = new SlackRTException(-1, "Unable to handle an event: " + e);
+        exception.initCause(e);
+        postError(exception);
+    }
+
+    public void addListener(RealTimeListener listener)
     {
         synchronized(listeners)
         {
-            listeners.remove(listener);
+            listeners.add(new ListenerHandle(listener, listenerBudget, quarantineSlowListeners));
         }
     }
 
-    private void postLogin()
+    public void removeListener(RealTimeListener listener)
     {
         synchronized(listeners)
         {
-            for (RealTimeListener listener : listeners)
+            Iterator<ListenerHandle> it = listeners.iterator();
+            while (it.hasNext())
             {
-                listener.onLoginComplete();
+                ListenerHandle handle = it.next();
+                if (handle.listener == listener)
+                {
+                    handle.shutdown();
+                    it.remove();
+                }
             }
         }
     }
 
-    private void postClose()
+    /**
+     * Gets the timing and error counts for a listener
+     * @param listener The listener
+     * @return The stats or null if the listener is not registered
+     */
+    public ListenerStats getListenerStats(RealTimeListener listener)
     {
         synchronized(listeners)
         {
-            for (RealTimeListener listener : listeners)
+            for (ListenerHandle handle : listeners)
             {
-                listener.onClose();
+                if (handle.listener == listener)
+                    return handle.stats;
             }
         }
+        return null;
     }
 
-    private void postError(SlackRTException ex)
+    /**
+     * @return the timing and error counts of every registered listener
+     */
+    public Map<RealTimeListener, ListenerStats> getListenerStats()
     {
+        Map<RealTimeListener, ListenerStats> stats = Maps.newIdentityHashMap();
         synchronized(listeners)
         {
-            for (RealTimeListener listener : listeners)
-            {
-                listener.onError(ex);;
-            }
+            for (ListenerHandle handle : listeners)
+                stats.put(handle.listener, handle.stats);
         }
+        return stats;
     }
 
-    private void postEvent(RealTimeEvent event)
+    private void post(Consumer<RealTimeListener> call)
     {
         synchronized(listeners)
         {
-            for (RealTimeListener listener : listeners)
+            for (ListenerHandle handle : listeners)
             {
-                listener.onEvent(event);
+                handle.deliver(call);
             }
         }
     }
 
+    private void postLogin()
+    {
+        post(RealTimeListener::onLoginComplete);
+    }
+
+    private void postClose()
+    {
+        post(RealTimeListener::onClose);
+    }
+
+    private void postError(SlackRTException ex)
+    {
+        post(listener -> listener.onError(ex));
+    }
+
+    private void postEvent(RealTimeEvent event)
+    {
+        if (isDuplicate(event))
+            return;
+        post(listener -> listener.onEvent(event));
+    }
+
+    /**
+     * Posts an event from the journal, these were already seen so they skip the deduplicator
+     */
+    private void postReplayedEvent(RealTimeEvent event)
+    {
+        post(listener -> listener.onEvent(event));
+    }
+
+    private boolean isDuplicate(RealTimeEvent event)
+    {
+        if (deduplicator == null || !(event instanceof MessageEvent))
+            return false;
+
+        Message message = ((MessageEvent) event).getMessage();
+        if (message == null || message.getConversationID() == null || message.getSlackTimestamp() == null)
+            return false;
+
+        return !deduplicator.firstSeen(message.getConversationID(), message.getSlackTimestamp());
+    }
+
     private void load(JsonObject object)
     {
         JsonObject self = object.getAsJsonObject("self");
         JsonArray channels = object.getAsJsonArray("channels");
         JsonArray users = object.getAsJsonArray("users");
-        ObjectID selfId = new ObjectID(self.get("id").getAsString());
+        ObjectID selfId = ObjectID.of(self.get("id").getAsString());
 
         // Load users
         this.users = Sets.newHashSetWithExpectedSize(users.size());
         userMap = Maps.newHashMapWithExpectedSize(users.size());
-        userIdMap = Maps.newHashMapWithExpectedSize(users.size());
+        userIdMap = new ObjectIDMap<>(users.size());
         for (JsonElement user : users)
         {
             try
             {
-                User loaded = gson.fromJson(user, User.class);
+                User loaded = codec.decode(user, User.class);
                 if (loaded.getId().equals(selfId))
                     this.self = loaded;
 
@@ -163,10 +296,10 @@ public class RealTimeSession implements Closeable
         // Load channels
         this.channels = Sets.newHashSetWithExpectedSize(channels.size());
         channelMap = Maps.newHashMapWithExpectedSize(channels.size());
-        channelIdMap = Maps.newHashMapWithExpectedSize(channels.size());
+        channelIdMap = new ObjectIDMap<>(channels.size());
         for (JsonElement channel : channels)
         {
-            Conversation loaded = gson.fromJson(channel, Conversation.class);
+            Conversation loaded = codec.decode(channel, Conversation.class);
             addChannel(loaded);
         }
     }
@@ -262,6 +395,49 @@ public class RealTimeSession implements Closeable
         return channelIdMap.get(id);
     }
 
+    /**
+     * Gets the index of channel members, it is built from the loaded channels on the first
+     * call and then kept up to date as members join and leave
+     * @return the index
+     */
+    public MembershipIndex getMembershipIndex()
+    {
+        MembershipIndex index = membershipIndex;
+        if (index != null)
+            return index;
+
+        synchronized (this)
+        {
+            if (membershipIndex == null)
+            {
+                index = new MembershipIndex();
+                for (Conversation channel : channels)
+                    index.setMembers(channel.getId(), channel.getMembers());
+                membershipIndex = index;
+            }
+            return membershipIndex;
+        }
+    }
+
+    private void updateMembership(JsonObject event, boolean joined)
+    {
+        MembershipIndex index;
+        // Wait for an index that is being built so the change is not lost
+        synchronized (this)
+        {
+            index = membershipIndex;
+        }
+        String channel = Utilities.getAsString(event.get("channel"));
+        String user = Utilities.getAsString(event.get("user"));
+        if (index == null || channel == null || user == null)
+            return;
+
+        if (joined)
+            index.addMember(ObjectID.of(channel), ObjectID.of(user));
+        else
+            index.removeMember(ObjectID.of(channel), ObjectID.of(user));
+    }
+
     private int appendId(JsonObject object)
     {
         int id = nextMessageId++;
@@ -276,7 +452,7 @@ public class RealTimeSession implements Closeable
 
     public void sendMessage(Message message)
     {
-        JsonObject object = gson.toJsonTree(message).getAsJsonObject();
+        JsonObject object = codec.encodeTree(message).getAsJsonObject();
         int id = appendId(object);
         pendingMessages.put(id, message);
         send(object);
@@ -284,7 +460,7 @@ public class RealTimeSession implements Closeable
 
     private void send(JsonObject object)
     {
-        session.getRemote().sendStringByFuture(gson.toJson(object));
+        session.getRemote().sendStringByFuture(object.toString());
     }
 
     public boolean isOpen()
@@ -295,6 +471,10 @@ public class RealTimeSession implements Closeable
     @Override
     public void close()
     {
+        // Events already received are delivered before onClose
+        if (pipeline != null)
+            pipeline.close();
+        // Stopping the client delivers onClose, so listeners must still be running
         try
         {
             client.stop();
@@ -304,6 +484,13 @@ public class RealTimeSession implements Closeable
         {
             // Its shutting down, I dont care
         }
+        if (journal != null)
+            journal.close();
+        synchronized(listeners)
+        {
+            for (ListenerHandle handle : listeners)
+                handle.shutdown();
+        }
     }
 
     private SlackRTException makeException(JsonObject object)
@@ -359,6 +546,12 @@ public class RealTimeSession implements Closeable
             return;
         }
 
+        handleEvent(event, false);
+    }
+
+    private void handleEvent(JsonObject event, boolean replayed)
+    {
+        String type = Utilities.getAsString(event.get("type"));
         RealTimeEvent newEvent = null;
         switch (type)
         {
@@ -368,14 +561,7 @@ public class RealTimeSession implements Closeable
             if (event.has("reply_to"))
                 return;
 
-            Message message = gson.fromJson(event, Message.class);
-            User user;
-            if (message.getSubtype() == MessageType.Edit)
-                user = getUserById(message.getEditUserId());
-            else
-                user = getUserById(message.getUserId());
-
-            newEvent = new MessageEvent(user, message, message.getSubtype());
+            newEvent = makeMessageEvent(event);
             break;
         }
         case "channel_created":
@@ -408,6 +594,15 @@ public class RealTimeSession implements Closeable
             break;
         case "group_history_changed":
             break;
+        case "member_joined_channel":
+            // The index already has the changes being replayed
+            if (!replayed)
+                updateMembership(event, true);
+            break;
+        case "member_left_channel":
+            if (!replayed)
+                updateMembership(event, false);
+            break;
         case "user_change":
             break;
         case "team_join":
@@ -417,14 +612,154 @@ public class RealTimeSession implements Closeable
             break;
         }
 
-        if (newEvent != null)
+        if (newEvent == null)
+            return;
+        if (replayed)
+            postReplayedEvent(newEvent);
+        else
             postEvent(newEvent);
     }
 
-    private class SocketClient implements WebSocketListener
+    private boolean isMessageEvent(JsonObject event)
+    {
+        return "message".equals(Utilities.getAsString(event.get("type"))) && !event.has("reply_to") && !event.has("ok");
+    }
+
+    private MessageEvent makeMessageEvent(JsonObject event)
+    {
+        Message message = codec.decode(event, Message.class);
+        User user;
+        if (message.getSubtype() == MessageType.Edit)
+            user = getUserById(message.getEditUserId());
+        else
+            user = getUserById(message.getUserId());
+
+        Conversation conversation = message.getConversationID() != null ? getChannelById(message.getConversationID()) : null;
+        return new MessageEvent(user, message, message.getSubtype(), conversation);
+    }
+
+    private JsonObject parseFrame(FrameReader frame)
+    {
+        frame.rewind();
+        return parser.parse(new JsonReader(frame)).getAsJsonObject();
+    }
+
+    private void journal(FrameReader frame, JsonObject event)
+    {
+        String ts = Utilities.getAsString(event.get("ts"));
+        if (ts == null)
+            ts = Utilities.getAsString(event.get("event_ts"));
+
+        try
+        {
+            journal.append(frame.asCharBuffer(), ts == null ? -1 : SlackTimestamp.parseMicros(ts));
+        }
+        catch (IOException | NumberFormatException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Delivers every journaled event from the given offset to the listeners again.
+     * Replies and the login handshake are skipped. Replayed messages are delivered even
+     * when the deduplicator has seen them, and membership changes are not applied again.
+     * <p>
+     * The events are delivered from the calling thread. Live events wait until the replay
+     * is finished so the two are not mixed.
+     *
+     * @param offset the journal offset to start from
+     * @return the offset after the last replayed frame, pass this to the next call to resume
+     * @throws IllegalStateException if journaling is not enabled
+     */
+    public long replay(long offset)
     {
+        if (journal == null)
+            throw new IllegalStateException("Journaling is not enabled for this session");
+
+        synchronized (dispatchLock)
+        {
+            return journal.read(offset, (recordOffset, ts, frame) ->
+            {
+                JsonObject event = parser.parse(frame).getAsJsonObject();
+                if (event.has("ok") || event.has("reply_to") || "hello".equals(Utilities.getAsString(event.get("type"))))
+                    return;
+                handleEvent(event, true);
+            });
+        }
+    }
+
+    /**
+     * Delivers every journaled event at or after the given message timestamp to the listeners again
+     *
+     * @param ts the slack timestamp eg. 1561412399.000200
+     * @return the offset after the last replayed frame
+     * @throws IllegalStateException if journaling is not enabled
+     */
+    public long replayFrom(String ts)
+    {
+        return replayFrom(SlackTimestamp.parse(ts));
+    }
+
+    /**
+     * Delivers every journaled event at or after the given message timestamp to the listeners again
+     *
+     * @param ts the slack timestamp
+     * @return the offset after the last replayed frame
+     * @throws IllegalStateException if journaling is not enabled
+     */
+    public long replayFrom(SlackTimestamp ts)
+    {
+        if (journal == null)
+            throw new IllegalStateException("Journaling is not enabled for this session");
+
+        return replay(journal.offsetOf(ts.toMicros()));
+    }
+
+    /**
+     * @return the offset the next journaled frame will be written at, or -1 if journaling is not enabled
+     */
+    public long getJournalOffset()
+    {
+        return journal != null ? journal.getEndOffset() : -1;
+    }
+
+    private void onFrame(JsonObject event)
+    {
+        if (event.has("ok"))
+            onReply(event);
+        else
+            onEvent(event);
+    }
+
+    /**
+     * A reusable slot in the event pipeline
+     */
+    private static class FrameSlot
+    {
+        private final FrameReader frame = new FrameReader();
+        private JsonObject json;
+        private RealTimeEvent event;
+
+        private void clear()
+        {
+            frame.clear();
+            json = null;
+            event = null;
+        }
+    }
+
+    /**
+     * Receives frames a fragment at a time so large messages are parsed straight
+     * from a reused buffer instead of being assembled into a String by Jetty
+     */
+    private class SocketClient implements WebSocketPartialListener
+    {
+        private final FrameReader frame = new FrameReader();
+        private long sequence = -1;
+
         @Override
-        public void onWebSocketBinary( byte[] payload, int offset, int len )
+        public void onWebSocketPartialBinary( ByteBuffer payload, boolean fin )
         {
         }
 
@@ -447,13 +782,49 @@ public class RealTimeSession implements Closeable
         }
 
         @Override
-        public void onWebSocketText( String message )
+        public void onWebSocketPartialText( String payload, boolean fin )
         {
-            JsonObject event = gson.fromJson(message, JsonElement.class).getAsJsonObject();
-            if (event.has("ok"))
-                onReply(event);
-            else
-                onEvent(event);
+            if (pipeline != null)
+            {
+                if (sequence < 0)
+                {
+                    try
+                    {
+                        sequence = pipeline.next();
+                    }
+                    catch (IllegalStateException e)
+                    {
+                        // The session is closing, frames still arriving are dropped
+                        return;
+                    }
+                }
+                pipeline.get(sequence).frame.append(payload);
+                if (fin)
+                {
+                    pipeline.publish(sequence);
+                    sequence = -1;
+                }
+                return;
+            }
+
+            frame.append(payload);
+            if (fin)
+            {
+                try
+                {
+                    JsonObject event = parseFrame(frame);
+                    if (journal != null)
+                        journal(frame, event);
+                    synchronized (dispatchLock)
+                    {
+                        onFrame(event);
+                    }
+                }
+                finally
+                {
+                    frame.clear();
+                }
+            }
         }
     }
 }
@@ -1,18 +1,33 @@
 package au.com.addstar.slackapi;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import au.com.addstar.slackapi.objects.*;
-import au.com.addstar.slackapi.objects.blocks.Block;
-import au.com.addstar.slackapi.objects.blocks.composition.CompositionObject;
-import au.com.addstar.slackapi.objects.blocks.elements.Element;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.*;
 
 import au.com.addstar.slackapi.exceptions.SlackException;
+import au.com.addstar.slackapi.exceptions.SlackRequestLimitException;
+import au.com.addstar.slackapi.internal.CircuitBreakers;
+import au.com.addstar.slackapi.internal.ConcurrencyLimiter;
+import au.com.addstar.slackapi.internal.MessageValidator;
 import au.com.addstar.slackapi.internal.SlackConnection;
 import au.com.addstar.slackapi.internal.SlackConstants;
 import com.google.gson.reflect.TypeToken;
@@ -23,7 +38,7 @@ import org.eclipse.jetty.util.IO;
 public class SlackAPI
 {
     private SlackConnection connection;
-    private Gson gson;
+    private final JsonCodec codec;
 
     private static boolean debug = false;
 
@@ -37,6 +52,12 @@ public class SlackAPI
     private final ChannelManager channels;
     private final GroupManager groups;
     private final ConversationsManager conversations;
+    private final FileManager files;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService broadcastPool;
+
+    private static final int BROADCAST_THREADS = 8;
+    private static final int BROADCAST_RETRIES = 3;
 
     public ConversationsManager getConversations() {
         return conversations;
@@ -44,23 +65,27 @@ public class SlackAPI
 
     public SlackAPI(String token)
     {
-        connection = new SlackConnection(token);
-        GsonBuilder builder = new GsonBuilder();
-        builder.registerTypeAdapter(NormalChannel.class, NormalChannel.getGsonAdapter());
-        builder.registerTypeAdapter(GroupChannel.class, GroupChannel.getGsonAdapter());
-        builder.registerTypeAdapter(DirectChannel.class, DirectChannel.getGsonAdapter());
-        builder.registerTypeAdapter(Conversation.class,Conversation.getGsonAdapter());
-        builder.registerTypeAdapter(User.class, User.getGsonAdapter());
-        builder.registerTypeAdapter(Message.class, Message.getGsonAdapter());
-        Attachment.addGsonAdapters(builder);
-        Block.addGsonAdapters(builder);
-        CompositionObject.addGsonAdapters(builder);
-        Element.addGsonAdapters(builder);
-        gson = builder.create();
+        this(token, JsonCodec.getDefault());
+    }
+
+    /**
+     * @param token the api token
+     * @param codec the codec to read and write the model objects with
+     */
+    public SlackAPI(String token, JsonCodec codec)
+    {
+        this(new SlackConnection(token), codec);
+    }
+
+    SlackAPI(SlackConnection connection, JsonCodec codec)
+    {
+        this.connection = connection;
+        this.codec = codec;
 
         channels = new ChannelManager(this);
         groups = new GroupManager(this);
         conversations = new ConversationsManager(this);
+        files = new FileManager(this);
     }
 
     public ChannelManager getChannelManager()
@@ -73,10 +98,69 @@ public class SlackAPI
         return groups;
     }
 
+    public FileManager getFileManager()
+    {
+        return files;
+    }
+
+    /**
+     * Limits the number of web api requests in flight at once, adapting the limit to how
+     * slack responds. By default there is no limit.
+     * @param limiter the limiter, or null to remove the limit
+     * @see ConcurrencyLimiter
+     */
+    public void setConcurrencyLimiter(ConcurrencyLimiter limiter)
+    {
+        connection.setConcurrencyLimiter(limiter);
+    }
+
+    /**
+     * @return the limiter of requests in flight, its limit is the current limit, or null if there is none
+     */
+    public ConcurrencyLimiter getConcurrencyLimiter()
+    {
+        return connection.getConcurrencyLimiter();
+    }
+
+    /**
+     * Stops calling web api methods that keep failing, calls to them throw
+     * {@link au.com.addstar.slackapi.exceptions.SlackCircuitOpenException} until they are probed again.
+     * By default methods are always called.
+     * @param breakers the breakers, or null to always call methods
+     * @see CircuitBreakers
+     */
+    public void setCircuitBreakers(CircuitBreakers breakers)
+    {
+        connection.setCircuitBreakers(breakers);
+    }
+
+    /**
+     * @return the circuit breakers of the web api methods, or null if there are none
+     */
+    public CircuitBreakers getCircuitBreakers()
+    {
+        return connection.getCircuitBreakers();
+    }
+
+    /**
+     * Sets how long to wait to connect and for each read of a web api request before it fails
+     * @param timeout the time, 0 waits forever which is the default
+     * @param unit the unit of the time
+     */
+    public void setTimeout(long timeout, TimeUnit unit)
+    {
+        connection.setTimeout(Math.toIntExact(unit.toMillis(timeout)));
+    }
+
     public RealTimeSession startRTSession() throws SlackException, IOException
+    {
+        return startRTSession(RealTimeOptions.DEFAULT);
+    }
+
+    public RealTimeSession startRTSession(RealTimeOptions options) throws SlackException, IOException
     {
         JsonObject root = connection.callMethodHandled(SlackConstants.RTM_START);
-        return new RealTimeSession(root, this);
+        return new RealTimeSession(root, this, options);
     }
 
     /**
@@ -105,13 +189,229 @@ public class SlackAPI
         return sendMessage(message,MessageOptions.DEFAULT);
     }
     public Message sendMessage(Message message, MessageOptions options) throws IOException, SlackException {
-        JsonElement elem = gson.toJsonTree(message);
+        JsonElement elem = codec.encodeTree(message);
         JsonObject obj = elem.getAsJsonObject();
         this.addDefaultOptions(obj,options);
+        this.acquirePost(options.getPriority(), message.getConversationID());
         JsonObject root = this.connection.callMethodHandled(SlackConstants.CHAT_POST, obj);
-        return this.gson.fromJson(root.get("message"), Message.class);
+        return this.codec.decode(root.get("message"), Message.class);
+    }
+
+    /**
+     * Serializes a message once so it can be sent many times.
+     * Strings in the message may contain slots written as {@code {{name}}}
+     * which are given values when the template is sent.
+     * The message is checked against slacks limits here, the length limits are checked
+     * again each time a template with slots is sent as the values can make strings longer.
+     *
+     * @param message the message, its conversation is the default channel
+     * @param options the options to send the message with
+     * @return the template
+     * @throws SlackException if the message is not valid
+     * @see MessageTemplate
+     */
+    public MessageTemplate compileTemplate(Message message, MessageOptions options) throws SlackException {
+        JsonObject obj = codec.encodeTree(message).getAsJsonObject();
+        this.addDefaultOptions(obj, options);
+        MessageValidator.validateMessage(obj, SlackConstants.CHAT_POST);
+        return MessageTemplate.compile(obj, message.getConversationID());
+    }
+
+    /**
+     * Sends a message from a template to the channel of the template
+     * @param template the template
+     * @param values the value of each slot
+     * @return the message that was sent
+     * @throws IOException
+     * @throws SlackException
+     */
+    public Message sendMessage(MessageTemplate template, Map<String, ?> values) throws IOException, SlackException {
+        return sendMessage(template, template.getChannel(), values);
+    }
+
+    /**
+     * Sends a message from a template
+     * @param template the template
+     * @param channel the channel to send to
+     * @param values the value of each slot
+     * @return the message that was sent
+     * @throws IOException
+     * @throws SlackException if the filled message is not valid or slack returns an error
+     */
+    public Message sendMessage(MessageTemplate template, ObjectID channel, Map<String, ?> values) throws IOException, SlackException {
+        byte[] payload = template.fillChecked(channel, values);
+        JsonObject root = this.connection.callMethodHandled(SlackConstants.CHAT_POST, payload);
+        return this.codec.decode(root.get("message"), Message.class);
+    }
+
+    /**
+     * Sends a message that will be edited often, such as a progress message
+     * @param message the first state of the message, its conversation is where it is sent
+     * @param options the options to send the message and its updates with
+     * @param interval the least time between updates
+     * @param unit the unit of the interval
+     * @return the handle to update the message with
+     * @throws IOException
+     * @throws SlackException
+     * @see UpdatableMessage
+     */
+    public UpdatableMessage sendUpdatable(Message message, MessageOptions options, long interval, TimeUnit unit) throws IOException, SlackException {
+        if (message.getConversationID() == null)
+            throw new IllegalArgumentException("The message has no conversation");
+        Message sent = sendMessage(message, options);
+        UpdatableMessage updatable = updatable(message.getConversationID(), sent.getSlackTimestamp(), options, interval, unit);
+        updatable.seed(message);
+        return updatable;
     }
-    private void addDefaultOptions(JsonObject object, MessageOptions options) {
+
+    /**
+     * Gets a handle to edit a message that has already been sent
+     * @param channel the conversation the message is in
+     * @param ts the ts of the message
+     * @param options the options to send updates with
+     * @param interval the least time between updates
+     * @param unit the unit of the interval
+     * @return the handle to update the message with
+     * @see UpdatableMessage
+     */
+    public UpdatableMessage updatable(ObjectID channel, SlackTimestamp ts, MessageOptions options, long interval, TimeUnit unit) {
+        return new UpdatableMessage(this, connection, getScheduler(), channel, ts, options, interval, unit);
+    }
+
+    /**
+     * Opens a durable outbox for sending messages through.
+     * Messages left in the outbox when it was last closed are posted again.
+     * @param directory the directory to keep the outbox log in, it is created if needed
+     * @return the outbox, it should be closed when it is no longer used
+     * @throws IOException if the outbox log cannot be read or created
+     * @see Outbox
+     */
+    public Outbox openOutbox(Path directory) throws IOException {
+        return openOutbox(directory, OutboxOptions.DEFAULT);
+    }
+
+    /**
+     * Opens a durable outbox for sending messages through.
+     * Messages left in the outbox when it was last closed are posted again.
+     * @param directory the directory to keep the outbox log in, it is created if needed
+     * @param options the options of the outbox
+     * @return the outbox, it should be closed when it is no longer used
+     * @throws IOException if the outbox log cannot be read or created
+     * @see Outbox
+     */
+    public Outbox openOutbox(Path directory, OutboxOptions options) throws IOException {
+        return new Outbox(this, connection, directory, options);
+    }
+
+    /**
+     * Sends the same message to many conversations
+     * @param message the message, its conversation is ignored
+     * @param conversations the conversations to send to
+     * @return what was sent to each conversation and why any failed
+     * @throws SlackException if the message is not valid
+     * @see #broadcast(Message, MessageOptions, Collection)
+     */
+    public BroadcastResult broadcast(Message message, Collection<? extends Conversation> conversations) throws SlackException {
+        return broadcast(message, MessageOptions.DEFAULT, conversations);
+    }
+
+    /**
+     * Sends the same message to many conversations.
+     * The message is serialized and validated once, each post only writes in its channel.
+     * Posts are made concurrently within the chat.postMessage limit of {@link SlackConnection#getRateLimits()},
+     * each conversation is posted to once even if it is given more than once, and posts that
+     * are rate limited by slack are retried after the time slack asks for.
+     * Posts wait in the bulk lane unless the options give a priority.
+     *
+     * @param message the message, its conversation is ignored
+     * @param options the options to send the message with
+     * @param conversations the conversations to send to
+     * @return what was sent to each conversation and why any failed, in the order given
+     * @throws SlackException if the message is not valid
+     */
+    public BroadcastResult broadcast(Message message, MessageOptions options, Collection<? extends Conversation> conversations) throws SlackException {
+        JsonObject obj = codec.encodeTree(message).getAsJsonObject();
+        this.addDefaultOptions(obj, options);
+        MessageValidator.validateMessage(obj, SlackConstants.CHAT_POST);
+        MessageTemplate template = MessageTemplate.compileChannelOnly(obj);
+        MessageOptions.Priority priority = options.getPriority() != null ? options.getPriority() : MessageOptions.Priority.Bulk;
+
+        Set<ObjectID> channels = new LinkedHashSet<>();
+        for (Conversation conversation : conversations)
+            channels.add(conversation.getId());
+
+        ExecutorService pool = getBroadcastPool();
+        Map<ObjectID, Future<Message>> futures = new LinkedHashMap<>();
+        for (ObjectID channel : channels)
+            futures.put(channel, pool.submit(() -> post(template, channel, priority)));
+
+        Map<ObjectID, Message> sent = new LinkedHashMap<>();
+        Map<ObjectID, Exception> failed = new LinkedHashMap<>();
+        boolean interrupted = false;
+        for (Map.Entry<ObjectID, Future<Message>> entry : futures.entrySet()) {
+            try {
+                sent.put(entry.getKey(), entry.getValue().get());
+            } catch (ExecutionException e) {
+                failed.put(entry.getKey(), e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+            } catch (InterruptedException e) {
+                interrupted = true;
+                entry.getValue().cancel(true);
+                failed.put(entry.getKey(), e);
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+
+        return new BroadcastResult(sent, failed);
+    }
+
+    private Message post(MessageTemplate template, ObjectID channel, MessageOptions.Priority priority) throws IOException, SlackException, InterruptedException {
+        byte[] payload = template.fill(channel, Collections.emptyMap());
+        for (int attempt = 0; ; ++attempt) {
+            connection.getRateLimits().acquire(SlackConstants.CHAT_POST, channel, priority);
+            try {
+                JsonObject root = connection.callMethodHandled(SlackConstants.CHAT_POST, payload);
+                return codec.decode(root.get("message"), Message.class);
+            } catch (SlackRequestLimitException e) {
+                if (attempt >= BROADCAST_RETRIES)
+                    throw e;
+                Thread.sleep(Math.max(0, e.getRetryTime() - System.currentTimeMillis()));
+            }
+        }
+    }
+
+    /**
+     * Waits for chat.postMessage to be under its rate limit in a channel
+     * @param priority the lane to wait in, does not wait when null
+     * @param channel the channel the message is for
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    private void acquirePost(MessageOptions.Priority priority, ObjectID channel) throws InterruptedIOException {
+        if (priority != null)
+            connection.getRateLimits().acquire(SlackConstants.CHAT_POST, channel, priority);
+    }
+
+    private synchronized ExecutorService getBroadcastPool() {
+        if (broadcastPool == null) {
+            broadcastPool = Executors.newFixedThreadPool(BROADCAST_THREADS, new ThreadFactoryBuilder()
+                    .setNameFormat("slack-broadcast-%d")
+                    .setDaemon(true)
+                    .build());
+        }
+        return broadcastPool;
+    }
+
+    private synchronized ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("slack-scheduler-%d")
+                    .setDaemon(true)
+                    .build());
+        }
+        return scheduler;
+    }
+
+    void addDefaultOptions(JsonObject object, MessageOptions options) {
         object.addProperty("as_user", options.isAsUser());
         object.addProperty("link_names", options.isLinkNames() ? 1 : 0);
         object.addProperty("unfurl_links", options.isUnfurlLinks());
@@ -145,11 +445,11 @@ public class SlackAPI
     }
 
     public Message sendEphemeral(Message message, MessageOptions options) throws IOException, SlackException {
-        JsonElement obj = gson.toJsonTree(message);
+        JsonElement obj = codec.encodeTree(message);
         JsonObject out = obj.getAsJsonObject();
         addDefaultOptions(out,options);
         JsonObject root = connection.callMethodHandled(SlackConstants.CHAT_POSTEMPHEMERAL, out);
-        return gson.fromJson(root.get("message"), Message.class);
+        return codec.decode(root.get("message"), Message.class);
     }
     /**
      * @deprecated use {@link #sendMessage(Message)}
@@ -195,15 +495,16 @@ public class SlackAPI
         {
             JsonArray attachments = new JsonArray();
             for (Attachment attachment : options.getAttachments())
-                attachments.add(gson.toJsonTree(attachment));
+                attachments.add(codec.encodeTree(attachment));
 
             params.put("attachments", attachments);
         }
 
         params.put("mrkdwn", options.isFormat());
 
+        acquirePost(options.getPriority(), channel.getId());
         JsonObject root = connection.callMethodHandled(SlackConstants.CHAT_POST, params);
-        Message out = gson.fromJson(root.get("message"), Message.class);
+        Message out = codec.decode(root.get("message"), Message.class);
         out.setSubtype(Message.MessageType.Sent);
         return out;
     }
@@ -211,7 +512,7 @@ public class SlackAPI
     List<User> getUsers() throws SlackException, IOException {
         JsonObject root = connection.callMethodHandled(SlackConstants.USER_LIST);
         TypeToken<List<User>> token = new TypeToken<List<User>>(){};
-        List<User> user = gson.fromJson(root.get("members"), token.getType());
+        List<User> user = codec.decode(root.get("members"), token.getType());
         return user;
     }
     SlackConnection getSlack()
@@ -219,8 +520,11 @@ public class SlackAPI
         return connection;
     }
 
-    Gson getGson()
+    /**
+     * @return the codec used to read and write the model objects
+     */
+    public JsonCodec getCodec()
     {
-        return gson;
+        return codec;
     }
 }
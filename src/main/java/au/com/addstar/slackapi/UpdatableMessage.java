@@ -0,0 +1,269 @@
+package au.com.addstar.slackapi;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import au.com.addstar.slackapi.exceptions.SlackException;
+import au.com.addstar.slackapi.exceptions.SlackRequestLimitException;
+import au.com.addstar.slackapi.internal.MessageValidator;
+import au.com.addstar.slackapi.internal.SlackConnection;
+import au.com.addstar.slackapi.internal.SlackConstants;
+import au.com.addstar.slackapi.objects.Message;
+import au.com.addstar.slackapi.objects.ObjectID;
+import au.com.addstar.slackapi.objects.SlackTimestamp;
+import com.google.gson.JsonObject;
+
+/**
+ * A sent message that is edited often, such as a progress message.
+ * <p>
+ * Edits given to {@link #update(Message)} are coalesced, only the latest one is sent and
+ * chat.update is called at most once per interval. An edit that renders to exactly the
+ * same payload as the last one sent is not sent at all. chat.update calls wait on its rate
+ * limit in the lane of the options' priority.
+ * <p>
+ * When an update cannot be sent because slack is rate limiting or cannot be reached, that state
+ * is tried again later unless a newer state has been given by then.
+ * <p>
+ * Create these with {@link SlackAPI#sendUpdatable(Message, MessageOptions, long, TimeUnit)}
+ * or {@link SlackAPI#updatable(ObjectID, SlackTimestamp, MessageOptions, long, TimeUnit)}.
+ * Safe to use from multiple threads.
+ */
+public class UpdatableMessage implements Closeable
+{
+    private final SlackAPI api;
+    private final SlackConnection connection;
+    private final ScheduledExecutorService scheduler;
+    private final ObjectID channel;
+    private final SlackTimestamp ts;
+    private final MessageOptions options;
+    private final long intervalNanos;
+
+    // Guarded by this
+    private Message pending;
+    private ScheduledFuture<?> scheduled;
+    private long lastSendTime;
+    private long takenSeq;
+    private boolean closed;
+
+    // Guarded by sendLock
+    private final Object sendLock = new Object();
+    private byte[] lastPayload;
+    private long sentSeq;
+
+    UpdatableMessage(SlackAPI api, SlackConnection connection, ScheduledExecutorService scheduler, ObjectID channel,
+                     SlackTimestamp ts, MessageOptions options, long interval, TimeUnit unit)
+    {
+        this.api = api;
+        this.connection = connection;
+        this.scheduler = scheduler;
+        this.channel = channel;
+        this.ts = ts;
+        this.options = options;
+        this.intervalNanos = unit.toNanos(interval);
+        this.lastSendTime = System.nanoTime() - intervalNanos;
+    }
+
+    public ObjectID getChannel()
+    {
+        return channel;
+    }
+
+    public SlackTimestamp getTs()
+    {
+        return ts;
+    }
+
+    /**
+     * Sets the new state of the message, it is sent once the interval since the last
+     * update has passed, unless it is replaced by a newer state first
+     * @param message the new state of the message
+     * @throws IllegalStateException if this has been closed
+     */
+    public synchronized void update(Message message)
+    {
+        if (closed)
+            throw new IllegalStateException("The message has been closed");
+
+        pending = message;
+        if (scheduled == null)
+        {
+            long delay = Math.max(0, lastSendTime + intervalNanos - System.nanoTime());
+            scheduled = scheduler.schedule(this::flushScheduled, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Sends the latest state now if it has not been sent yet
+     * @return true if chat.update was called
+     * @throws IOException if the update could not be sent
+     * @throws SlackException if slack rejected the update
+     */
+    public boolean flush() throws IOException, SlackException
+    {
+        Message message;
+        long seq;
+        synchronized (this)
+        {
+            message = take();
+            seq = takenSeq;
+            if (scheduled != null)
+            {
+                scheduled.cancel(false);
+                scheduled = null;
+            }
+        }
+        if (message == null)
+            return false;
+
+        try
+        {
+            return send(message, seq);
+        }
+        catch (SlackRequestLimitException e)
+        {
+            restore(message, e.getRetryTime());
+            throw e;
+        }
+        catch (IOException e)
+        {
+            restore(message, 0);
+            throw e;
+        }
+    }
+
+    /**
+     * Sends the latest state if it has not been sent, no more updates can be made after this
+     * @throws IOException if the update could not be sent
+     */
+    @Override
+    public void close() throws IOException
+    {
+        synchronized (this)
+        {
+            closed = true;
+        }
+        try
+        {
+            flush();
+        }
+        catch (SlackException e)
+        {
+            throw new IOException(e);
+        }
+    }
+
+    private void flushScheduled()
+    {
+        Message message;
+        long seq;
+        synchronized (this)
+        {
+            message = take();
+            seq = takenSeq;
+            scheduled = null;
+        }
+        if (message == null)
+            return;
+
+        try
+        {
+            send(message, seq);
+        }
+        catch (SlackRequestLimitException e)
+        {
+            restore(message, e.getRetryTime());
+        }
+        catch (IOException e)
+        {
+            System.err.println("Unable to update message " + ts + " in " + channel + ", it will be tried again");
+            e.printStackTrace();
+            restore(message, 0);
+        }
+        catch (SlackException | RuntimeException e)
+        {
+            System.err.println("Unable to update message " + ts + " in " + channel);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Puts back a state that could not be sent so it is tried again, unless a newer state has been given
+     * @param message the state that was not sent
+     * @param retryTime the time in milliseconds slack allows the next call, or 0 to wait the interval
+     */
+    private synchronized void restore(Message message, long retryTime)
+    {
+        if (pending != null)
+            return;
+
+        pending = message;
+        if (scheduled == null)
+        {
+            long delay = Math.max(intervalNanos, TimeUnit.MILLISECONDS.toNanos(retryTime - System.currentTimeMillis()));
+            scheduled = scheduler.schedule(this::flushScheduled, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Takes the pending state, the interval starts from when it is taken
+     */
+    private Message take()
+    {
+        Message message = pending;
+        pending = null;
+        if (message != null)
+        {
+            lastSendTime = System.nanoTime();
+            ++takenSeq;
+        }
+        return message;
+    }
+
+    /**
+     * Records the state the message was first sent with, so an update to the same state is not sent
+     * @param message the message as it was sent
+     */
+    void seed(Message message)
+    {
+        byte[] payload = toUpdate(message).toString().getBytes(StandardCharsets.UTF_8);
+        synchronized (sendLock)
+        {
+            if (lastPayload == null)
+                lastPayload = payload;
+        }
+    }
+
+    private JsonObject toUpdate(Message message)
+    {
+        JsonObject object = api.getCodec().encodeTree(message).getAsJsonObject();
+        api.addDefaultOptions(object, options);
+        object.addProperty("channel", channel.toString());
+        object.addProperty("ts", ts.toString());
+        return object;
+    }
+
+    private boolean send(Message message, long seq) throws IOException, SlackException
+    {
+        JsonObject object = toUpdate(message);
+        MessageValidator.validateMessage(object, SlackConstants.CHAT_UPDATE);
+        byte[] payload = object.toString().getBytes(StandardCharsets.UTF_8);
+
+        synchronized (sendLock)
+        {
+            // A newer state has already been sent
+            if (seq < sentSeq || Arrays.equals(payload, lastPayload))
+                return false;
+
+            connection.getRateLimits().acquire(SlackConstants.CHAT_UPDATE, options.getPriority() != null ? options.getPriority() : MessageOptions.Priority.Normal);
+            connection.callMethodHandled(SlackConstants.CHAT_UPDATE, payload);
+            lastPayload = payload;
+            sentSeq = seq;
+            return true;
+        }
+    }
+}
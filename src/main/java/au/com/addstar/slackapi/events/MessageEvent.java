@@ -2,6 +2,7 @@ package au.com.addstar.slackapi.events;
 
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import au.com.addstar.slackapi.objects.Conversation;
 import au.com.addstar.slackapi.objects.Message;
 import au.com.addstar.slackapi.objects.Message.MessageType;
 import au.com.addstar.slackapi.objects.User;
@@ -13,7 +14,16 @@ public class MessageEvent extends RealTimeEvent
     private final User user;
     private final Message message;
     private final MessageType type;
-    
+    /**
+     * The conversation the message was sent in, or null if the session does not know it
+     */
+    private final Conversation conversation;
+
+    public MessageEvent(User user, Message message, MessageType type)
+    {
+        this(user, message, type, null);
+    }
+
     @Override
     public String toString()
     {
@@ -0,0 +1,33 @@
+package au.com.addstar.slackapi.exceptions;
+
+import java.io.IOException;
+
+import au.com.addstar.slackapi.internal.SlackConstants;
+
+public class SlackCircuitOpenException extends IOException
+{
+    private static final long serialVersionUID = -2893718820417462275L;
+
+    private final SlackConstants method;
+    private final long endTime;
+
+    public SlackCircuitOpenException(final SlackConstants method, final long endTime)
+    {
+        super("Calls to " + method + " are failing, not calling it until they may work again");
+        this.method = method;
+        this.endTime = endTime;
+    }
+
+    public SlackConstants getMethod()
+    {
+        return this.method;
+    }
+
+    /**
+     * @return the time in milliseconds after which a call will be tried again
+     */
+    public long getRetryTime()
+    {
+        return this.endTime;
+    }
+}
@@ -1,11 +1,36 @@
 package au.com.addstar.slackapi.exceptions;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Created for the Charlton IT Project.
  * Created by benjicharlton on 26/06/2019.
  */
 public class SlackMesssageInvalidException extends SlackException {
+    private static final long serialVersionUID = 4316592771530815023L;
+
+    private final List<String> violations;
+
     public SlackMesssageInvalidException(final String errorCode, final String message) {
         super(errorCode, message);
+        this.violations = Collections.singletonList(message);
+    }
+
+    /**
+     * @param errorCode the error code
+     * @param violations every problem found with the message
+     */
+    public SlackMesssageInvalidException(final String errorCode, final List<String> violations) {
+        super(errorCode, String.join("; ", violations));
+        this.violations = Collections.unmodifiableList(new ArrayList<>(violations));
+    }
+
+    /**
+     * @return every problem found with the message
+     */
+    public List<String> getViolations() {
+        return this.violations;
     }
 }
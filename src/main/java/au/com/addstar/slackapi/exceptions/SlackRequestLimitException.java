@@ -11,6 +11,7 @@ public class SlackRequestLimitException extends IOException
     public SlackRequestLimitException(final long endTime)
     {
         super("Too many requests made in a short time");
+        this.endTime = endTime;
     }
     
     public long getRetryTime()
@@ -0,0 +1,208 @@
+package au.com.addstar.slackapi.internal;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import au.com.addstar.slackapi.exceptions.SlackCircuitOpenException;
+
+/**
+ * Stops calling methods that keep failing, so callers fail fast instead of piling up
+ * while slack is degraded. Each method has its own breaker.
+ * <p>
+ * A breaker watches the last calls to its method. A call fails when it throws an
+ * {@link java.io.IOException}, which includes timeouts and 5xx responses, or when it takes
+ * longer than the slow call time. Once enough calls are watched and too many of them failed,
+ * the breaker opens and calls throw {@link SlackCircuitOpenException} straight away.
+ * After the open time a single call is let through as a probe, the breaker closes if it
+ * succeeds and opens again if it fails. Calls are given a permit by {@link #acquire(SlackConstants)}
+ * that is passed back with their result, so calls that started before the breaker last changed
+ * state, including ones that were in flight when the probe began, cannot decide the probe.
+ * A probe that has not reported back within the open time is given up on and the next call
+ * becomes the probe.
+ */
+public class CircuitBreakers
+{
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRate;
+    private final long slowCallNanos;
+    private final long openMillis;
+
+    private final Map<SlackConstants, Breaker> breakers = new EnumMap<>(SlackConstants.class);
+
+    /**
+     * Creates breakers that watch the last 20 calls, open when half of at least 10 of them
+     * failed or took over 10 seconds, and stay open for 30 seconds
+     */
+    public CircuitBreakers()
+    {
+        this(20, 10, 0.5, 10, 30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param windowSize the number of recent calls to watch
+     * @param minimumCalls the number of calls to watch before the breaker can open
+     * @param failureRate the share of watched calls that must fail to open the breaker
+     * @param slowCall the time after which a call that succeeded counts as failed
+     * @param open the time the breaker stays open before probing
+     * @param unit the unit of slowCall and open
+     */
+    public CircuitBreakers(final int windowSize, final int minimumCalls, final double failureRate,
+                           final long slowCall, final long open, final TimeUnit unit)
+    {
+        if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize) {
+            throw new IllegalArgumentException("Need 1 <= minimumCalls <= windowSize");
+        }
+        if (failureRate <= 0 || failureRate > 1) {
+            throw new IllegalArgumentException("The failure rate must be above 0 and at most 1");
+        }
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRate = failureRate;
+        this.slowCallNanos = unit.toNanos(slowCall);
+        this.openMillis = unit.toMillis(open);
+    }
+
+    /**
+     * Checks a method can be called
+     * @param method the method
+     * @return the permit to pass to {@link #onSuccess(SlackConstants, long, long)} or
+     * {@link #onFailure(SlackConstants, long)} once the call is done
+     * @throws SlackCircuitOpenException if the breaker of the method is open
+     */
+    public long acquire(final SlackConstants method) throws SlackCircuitOpenException
+    {
+        return this.get(method).acquire(method);
+    }
+
+    /**
+     * Records a call that completed
+     * @param method the method
+     * @param permit the permit the call was made with
+     * @param latencyNanos how long the call took, or -1 if its time should not be judged
+     */
+    public void onSuccess(final SlackConstants method, final long permit, final long latencyNanos)
+    {
+        this.get(method).record(permit, latencyNanos > this.slowCallNanos);
+    }
+
+    /**
+     * Records a call that failed
+     * @param method the method
+     * @param permit the permit the call was made with
+     */
+    public void onFailure(final SlackConstants method, final long permit)
+    {
+        this.get(method).record(permit, true);
+    }
+
+    /**
+     * @param method the method
+     * @return the state of the breaker of the method
+     */
+    public State getState(final SlackConstants method)
+    {
+        return this.get(method).getState();
+    }
+
+    private synchronized Breaker get(final SlackConstants method)
+    {
+        return this.breakers.computeIfAbsent(method, key -> new Breaker());
+    }
+
+    public enum State
+    {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private class Breaker
+    {
+        // Guarded by this
+        private final boolean[] window = new boolean[CircuitBreakers.this.windowSize];
+        private int next;
+        private int count;
+        private int failures;
+        private State state = State.CLOSED;
+        // Changes with every change of state, and for every probe
+        private long generation;
+        // When the breaker can be probed while open, or when the probe is given up on while half open
+        private long openUntil;
+
+        synchronized long acquire(final SlackConstants method) throws SlackCircuitOpenException
+        {
+            if (this.state == State.CLOSED) {
+                return this.generation;
+            }
+
+            final long now = System.currentTimeMillis();
+            if (now < this.openUntil) {
+                throw new SlackCircuitOpenException(method, this.openUntil);
+            }
+            // This call is the probe
+            this.state = State.HALF_OPEN;
+            this.openUntil = now + CircuitBreakers.this.openMillis;
+            return ++this.generation;
+        }
+
+        synchronized void record(final long permit, final boolean failed)
+        {
+            if (permit != this.generation) {
+                // Made before the breaker last changed state, or a probe that was given up on
+                return;
+            }
+            if (this.state == State.HALF_OPEN) {
+                if (failed) {
+                    this.open();
+                } else {
+                    this.close();
+                }
+                return;
+            }
+
+            if (this.count == this.window.length) {
+                if (this.window[this.next]) {
+                    --this.failures;
+                }
+            } else {
+                ++this.count;
+            }
+            this.window[this.next] = failed;
+            if (failed) {
+                ++this.failures;
+            }
+            this.next = (this.next + 1) % this.window.length;
+
+            if (this.count >= CircuitBreakers.this.minimumCalls
+                    && this.failures >= this.count * CircuitBreakers.this.failureRate) {
+                this.open();
+            }
+        }
+
+        synchronized State getState()
+        {
+            if (this.state == State.OPEN && System.currentTimeMillis() >= this.openUntil) {
+                return State.HALF_OPEN;
+            }
+            return this.state;
+        }
+
+        private void open()
+        {
+            this.state = State.OPEN;
+            this.openUntil = System.currentTimeMillis() + CircuitBreakers.this.openMillis;
+            ++this.generation;
+        }
+
+        private void close()
+        {
+            this.state = State.CLOSED;
+            ++this.generation;
+            this.next = 0;
+            this.count = 0;
+            this.failures = 0;
+        }
+    }
+}
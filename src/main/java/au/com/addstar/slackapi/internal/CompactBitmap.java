@@ -0,0 +1,489 @@
+package au.com.addstar.slackapi.internal;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed set of non negative ints, laid out like a roaring bitmap.
+ * <p>
+ * Values are grouped by their upper 16 bits. Each group is stored as a sorted array of the
+ * lower 16 bits while it holds at most 4096 values, and as a 65536 bit bitmap once it holds
+ * more, so sparse and dense sets both stay small and membership is a binary search or a
+ * single bit test.
+ * <p>
+ * Not thread safe.
+ */
+public class CompactBitmap
+{
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+
+    public CompactBitmap()
+    {
+        keys = new char[4];
+        containers = new Container[4];
+    }
+
+    private CompactBitmap(int capacity)
+    {
+        keys = new char[Math.max(capacity, 1)];
+        containers = new Container[Math.max(capacity, 1)];
+    }
+
+    /**
+     * @param value the value to add, must not be negative
+     * @return true if the value was not already present
+     */
+    public boolean add(int value)
+    {
+        checkValue(value);
+        char high = (char) (value >>> 16);
+        int index = find(high);
+        if (index < 0)
+        {
+            index = -index - 1;
+            insert(index, high, new ArrayContainer());
+        }
+        Container container = containers[index];
+        int before = container.cardinality();
+        containers[index] = container.add((char) value);
+        return containers[index].cardinality() != before;
+    }
+
+    /**
+     * @param value the value to remove
+     * @return true if the value was present
+     */
+    public boolean remove(int value)
+    {
+        if (value < 0)
+            return false;
+        int index = find((char) (value >>> 16));
+        if (index < 0)
+            return false;
+
+        Container container = containers[index];
+        int before = container.cardinality();
+        container = container.remove((char) value);
+        if (container.cardinality() == 0)
+        {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+            containers[--size] = null;
+        }
+        else
+            containers[index] = container;
+        return container.cardinality() != before;
+    }
+
+    public boolean contains(int value)
+    {
+        if (value < 0)
+            return false;
+        int index = find((char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    /**
+     * @return the number of values in the set
+     */
+    public int cardinality()
+    {
+        int total = 0;
+        for (int i = 0; i < size; ++i)
+            total += containers[i].cardinality();
+        return total;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Calls the action for each value in ascending order
+     * @param action the action
+     */
+    public void forEach(IntConsumer action)
+    {
+        for (int i = 0; i < size; ++i)
+            containers[i].forEach(keys[i] << 16, action);
+    }
+
+    /**
+     * @return the values in ascending order
+     */
+    public int[] toArray()
+    {
+        int[] values = new int[cardinality()];
+        int[] pos = new int[1];
+        forEach(value -> values[pos[0]++] = value);
+        return values;
+    }
+
+    /**
+     * @param a the first set
+     * @param b the second set
+     * @return a new set with the values that are in both sets
+     */
+    public static CompactBitmap and(CompactBitmap a, CompactBitmap b)
+    {
+        CompactBitmap result = new CompactBitmap(Math.min(a.size, b.size));
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size)
+        {
+            if (a.keys[i] < b.keys[j])
+                ++i;
+            else if (a.keys[i] > b.keys[j])
+                ++j;
+            else
+            {
+                Container container = and(a.containers[i], b.containers[j]);
+                if (container.cardinality() > 0)
+                    result.append(a.keys[i], container);
+                ++i;
+                ++j;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param a the first set
+     * @param b the second set
+     * @return a new set with the values that are in either set
+     */
+    public static CompactBitmap or(CompactBitmap a, CompactBitmap b)
+    {
+        CompactBitmap result = new CompactBitmap(a.size + b.size);
+        int i = 0;
+        int j = 0;
+        while (i < a.size || j < b.size)
+        {
+            if (j == b.size || (i < a.size && a.keys[i] < b.keys[j]))
+            {
+                result.append(a.keys[i], a.containers[i].copy());
+                ++i;
+            }
+            else if (i == a.size || a.keys[i] > b.keys[j])
+            {
+                result.append(b.keys[j], b.containers[j].copy());
+                ++j;
+            }
+            else
+            {
+                result.append(a.keys[i], or(a.containers[i], b.containers[j]));
+                ++i;
+                ++j;
+            }
+        }
+        return result;
+    }
+
+    private static void checkValue(int value)
+    {
+        if (value < 0)
+            throw new IllegalArgumentException("Values cannot be negative");
+    }
+
+    private int find(char high)
+    {
+        return Arrays.binarySearch(keys, 0, size, high);
+    }
+
+    private void insert(int index, char high, Container container)
+    {
+        ensureCapacity();
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = high;
+        containers[index] = container;
+        ++size;
+    }
+
+    private void append(char high, Container container)
+    {
+        ensureCapacity();
+        keys[size] = high;
+        containers[size] = container;
+        ++size;
+    }
+
+    private void ensureCapacity()
+    {
+        if (size == keys.length)
+        {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+    }
+
+    private static Container and(Container a, Container b)
+    {
+        if (a instanceof ArrayContainer)
+            return ((ArrayContainer) a).filter(b);
+        if (b instanceof ArrayContainer)
+            return ((ArrayContainer) b).filter(a);
+        return ((BitmapContainer) a).and((BitmapContainer) b);
+    }
+
+    private static Container or(Container a, Container b)
+    {
+        if (a instanceof BitmapContainer)
+            return ((BitmapContainer) a).or(b);
+        if (b instanceof BitmapContainer)
+            return ((BitmapContainer) b).or(a);
+        return ((ArrayContainer) a).or((ArrayContainer) b);
+    }
+
+    private interface Container
+    {
+        boolean contains(char value);
+
+        Container add(char value);
+
+        Container remove(char value);
+
+        int cardinality();
+
+        void forEach(int base, IntConsumer action);
+
+        Container copy();
+    }
+
+    private static final class ArrayContainer implements Container
+    {
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer()
+        {
+            values = new char[4];
+        }
+
+        ArrayContainer(char[] values, int cardinality)
+        {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        public boolean contains(char value)
+        {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        public Container add(char value)
+        {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0)
+                return this;
+            if (cardinality >= ARRAY_LIMIT)
+                return toBitmap().add(value);
+
+            index = -index - 1;
+            if (cardinality == values.length)
+                values = Arrays.copyOf(values, Math.min(cardinality * 2, ARRAY_LIMIT));
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            ++cardinality;
+            return this;
+        }
+
+        @Override
+        public Container remove(char value)
+        {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0)
+            {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                --cardinality;
+            }
+            return this;
+        }
+
+        @Override
+        public int cardinality()
+        {
+            return cardinality;
+        }
+
+        @Override
+        public void forEach(int base, IntConsumer action)
+        {
+            for (int i = 0; i < cardinality; ++i)
+                action.accept(base | values[i]);
+        }
+
+        @Override
+        public Container copy()
+        {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(cardinality, 1)), cardinality);
+        }
+
+        Container filter(Container other)
+        {
+            char[] result = new char[Math.max(cardinality, 1)];
+            int count = 0;
+            for (int i = 0; i < cardinality; ++i)
+            {
+                if (other.contains(values[i]))
+                    result[count++] = values[i];
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        Container or(ArrayContainer other)
+        {
+            if (cardinality + other.cardinality > ARRAY_LIMIT)
+            {
+                BitmapContainer result = toBitmap();
+                for (int i = 0; i < other.cardinality; ++i)
+                    result.add(other.values[i]);
+                return result;
+            }
+
+            char[] result = new char[Math.max(cardinality + other.cardinality, 1)];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < other.cardinality)
+            {
+                if (j == other.cardinality || (i < cardinality && values[i] < other.values[j]))
+                    result[count++] = values[i++];
+                else if (i == cardinality || values[i] > other.values[j])
+                    result[count++] = other.values[j++];
+                else
+                {
+                    result[count++] = values[i++];
+                    ++j;
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        BitmapContainer toBitmap()
+        {
+            BitmapContainer bitmap = new BitmapContainer(new long[BITMAP_WORDS], 0);
+            for (int i = 0; i < cardinality; ++i)
+                bitmap.add(values[i]);
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer implements Container
+    {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer(long[] words, int cardinality)
+        {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        public boolean contains(char value)
+        {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        public Container add(char value)
+        {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) == 0)
+            {
+                words[value >>> 6] |= bit;
+                ++cardinality;
+            }
+            return this;
+        }
+
+        @Override
+        public Container remove(char value)
+        {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) != 0)
+            {
+                words[value >>> 6] &= ~bit;
+                --cardinality;
+                if (cardinality <= ARRAY_LIMIT / 2)
+                    return toArray();
+            }
+            return this;
+        }
+
+        @Override
+        public int cardinality()
+        {
+            return cardinality;
+        }
+
+        @Override
+        public void forEach(int base, IntConsumer action)
+        {
+            for (int i = 0; i < BITMAP_WORDS; ++i)
+            {
+                long word = words[i];
+                while (word != 0)
+                {
+                    action.accept(base | (i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        public Container copy()
+        {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        Container and(BitmapContainer other)
+        {
+            long[] result = new long[BITMAP_WORDS];
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; ++i)
+            {
+                result[i] = words[i] & other.words[i];
+                count += Long.bitCount(result[i]);
+            }
+            BitmapContainer bitmap = new BitmapContainer(result, count);
+            return count <= ARRAY_LIMIT ? bitmap.toArray() : bitmap;
+        }
+
+        Container or(Container other)
+        {
+            BitmapContainer result = (BitmapContainer) copy();
+            if (other instanceof BitmapContainer)
+            {
+                long[] otherWords = ((BitmapContainer) other).words;
+                int count = 0;
+                for (int i = 0; i < BITMAP_WORDS; ++i)
+                {
+                    result.words[i] |= otherWords[i];
+                    count += Long.bitCount(result.words[i]);
+                }
+                result.cardinality = count;
+            }
+            else
+                other.forEach(0, value -> result.add((char) value));
+            return result;
+        }
+
+        ArrayContainer toArray()
+        {
+            char[] values = new char[Math.max(cardinality, 1)];
+            int[] count = new int[1];
+            forEach(0, value -> values[count[0]++] = (char) value);
+            return new ArrayContainer(values, cardinality);
+        }
+    }
+}
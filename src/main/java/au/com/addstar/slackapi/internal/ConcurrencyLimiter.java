@@ -0,0 +1,140 @@
+package au.com.addstar.slackapi.internal;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Limits the number of requests in flight, finding the limit by additive increase and
+ * multiplicative decrease.
+ * <p>
+ * The limit grows by about one for every limit's worth of successful requests, as long as the
+ * latency stays near the lowest seen and the requests are actually using the limit. It is cut
+ * back a little when the latency rises well above that and halved when slack answers with a 429.
+ * The lowest latency drifts up slowly so the baseline follows real changes in the network.
+ */
+public class ConcurrencyLimiter
+{
+    private static final double BACKOFF_RATIO = 0.5;
+    private static final double LATENCY_BACKOFF_RATIO = 0.9;
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final double BASELINE_DRIFT = 0.01;
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    // Guarded by this
+    private double limit;
+    private int inFlight;
+    private double baselineNanos = -1;
+    private long limitedCount;
+
+    /**
+     * @param initialLimit the limit to start with
+     * @param minLimit the lowest the limit can be cut to
+     * @param maxLimit the highest the limit can grow to
+     */
+    public ConcurrencyLimiter(final int initialLimit, final int minLimit, final int maxLimit)
+    {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must be 1 <= min <= initial <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Waits until a request can be started, every call must be followed by one of
+     * {@link #onSuccess(long)}, {@link #onLimited()} or {@link #onDropped()}
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    public synchronized void acquire() throws InterruptedIOException
+    {
+        while (this.inFlight >= (int) this.limit) {
+            try {
+                this.wait();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting to make a request");
+            }
+        }
+        ++this.inFlight;
+    }
+
+    /**
+     * Ends a request that succeeded
+     * @param latencyNanos how long the request took, or -1 if it should not be used as a sample
+     */
+    public synchronized void onSuccess(final long latencyNanos)
+    {
+        final boolean saturated = this.inFlight >= this.limit / 2;
+        this.release();
+        if (latencyNanos < 0) {
+            return;
+        }
+
+        if (this.baselineNanos < 0 || latencyNanos < this.baselineNanos) {
+            this.baselineNanos = latencyNanos;
+        } else {
+            this.baselineNanos += (latencyNanos - this.baselineNanos) * BASELINE_DRIFT;
+        }
+
+        if (latencyNanos > this.baselineNanos * LATENCY_TOLERANCE) {
+            this.setLimit(this.limit * LATENCY_BACKOFF_RATIO);
+        } else if (saturated) {
+            this.setLimit(this.limit + 1 / this.limit);
+        }
+    }
+
+    /**
+     * Ends a request that slack rejected for being over its rate limit
+     */
+    public synchronized void onLimited()
+    {
+        this.release();
+        ++this.limitedCount;
+        this.setLimit(this.limit * BACKOFF_RATIO);
+    }
+
+    /**
+     * Ends a request that failed for some other reason, the limit is not changed
+     */
+    public synchronized void onDropped()
+    {
+        this.release();
+    }
+
+    /**
+     * @return the number of requests that can be in flight at once
+     */
+    public synchronized int getLimit()
+    {
+        return (int) this.limit;
+    }
+
+    /**
+     * @return the number of requests in flight now
+     */
+    public synchronized int getInFlight()
+    {
+        return this.inFlight;
+    }
+
+    /**
+     * @return the number of requests slack rejected for being over its rate limit
+     */
+    public synchronized long getLimitedCount()
+    {
+        return this.limitedCount;
+    }
+
+    private void release()
+    {
+        --this.inFlight;
+        this.notifyAll();
+    }
+
+    private void setLimit(final double limit)
+    {
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, limit));
+    }
+}
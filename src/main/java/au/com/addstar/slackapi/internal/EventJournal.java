@@ -0,0 +1,372 @@
+package au.com.addstar.slackapi.internal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * An append only journal of raw RTM frames stored in memory mapped segment files.
+ * <p>
+ * Each record is addressed by an offset that increases across segments. Records are
+ * written into the page cache and forced to disk by a background thread, so appending
+ * never waits on an fsync. Once more than {@code maxSegments} segments exist the oldest
+ * is deleted.
+ * <p>
+ * Record layout: {@code int length, long ts, byte[length] utf8 frame}. The ts is in
+ * microseconds, or -1 if the frame has no timestamp.
+ */
+public class EventJournal implements Closeable
+{
+    private static final int HEADER = 12;
+    private static final String SUFFIX = ".journal";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final ScheduledExecutorService flusher;
+    private volatile Segment current;
+
+    /**
+     * Opens the journal, recovering any segments already in the directory
+     *
+     * @param directory     where segment files are kept
+     * @param segmentSize   the size of each segment file in bytes
+     * @param maxSegments   the number of segments to retain
+     * @param flushInterval how often in milliseconds written records are forced to disk
+     * @throws IOException if the segments cannot be opened
+     */
+    public EventJournal(final Path directory, final int segmentSize, final int maxSegments, final long flushInterval) throws IOException
+    {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = Math.max(1, maxSegments);
+        Files.createDirectories(directory);
+
+        final List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (final Path file : stream) {
+                files.add(file);
+            }
+        }
+        files.sort(null);
+        for (final Path file : files) {
+            final String name = file.getFileName().toString();
+            final long base = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+            this.segments.add(new Segment(file, base, Math.max((int) Files.size(file), segmentSize)));
+        }
+        if (this.segments.isEmpty()) {
+            this.segments.add(this.createSegment(0));
+        }
+        this.current = this.segments.getLast();
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("SlackRTM-journal")
+                .setDaemon(true)
+                .build());
+        this.flusher.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    private Segment createSegment(final long base) throws IOException
+    {
+        return new Segment(this.directory.resolve(String.format("%020d%s", base, SUFFIX)), base, this.segmentSize);
+    }
+
+    /**
+     * Appends a frame to the journal
+     *
+     * @param frame the raw frame text, its position is left unchanged
+     * @param ts    the frame timestamp in microseconds or -1
+     * @return the offset of the record
+     * @throws IOException if the frame does not fit in a segment or a new segment cannot be created
+     */
+    public synchronized long append(final CharBuffer frame, final long ts) throws IOException
+    {
+        final int mark = frame.position();
+        int position = this.tryAppend(frame, ts);
+        if (position < 0 && this.current.limit > 0) {
+            frame.position(mark);
+            this.rotate();
+            position = this.tryAppend(frame, ts);
+        }
+        frame.position(mark);
+        if (position < 0) {
+            throw new IOException("Frame is larger than a journal segment");
+        }
+        return this.current.base + position;
+    }
+
+    /**
+     * @return the position the record was written at, or -1 if it did not fit
+     */
+    private int tryAppend(final CharBuffer frame, final long ts)
+    {
+        final Segment segment = this.current;
+        final ByteBuffer buffer = segment.buffer;
+        final int start = segment.limit;
+        if (start + HEADER >= buffer.capacity()) {
+            return -1;
+        }
+        buffer.limit(buffer.capacity());
+        buffer.position(start + HEADER);
+        this.encoder.reset();
+        CoderResult result = this.encoder.encode(frame, buffer, true);
+        if (!result.isOverflow()) {
+            result = this.encoder.flush(buffer);
+        }
+        if (result.isOverflow()) {
+            // Leave a zero length so recovery stops here
+            buffer.putInt(start, 0);
+            return -1;
+        }
+
+        final int end = buffer.position();
+        // Clear what a torn record may have left after this one so recovery stops here
+        if (end + 4 <= buffer.capacity()) {
+            buffer.putInt(end, 0);
+        }
+        buffer.putLong(start + 4, ts);
+        buffer.putInt(start, end - start - HEADER);
+        segment.index.add(ts, start);
+        segment.limit = end;
+        return start;
+    }
+
+    private void rotate() throws IOException
+    {
+        final Segment old = this.current;
+        final Segment next = this.createSegment(old.base + old.limit);
+        synchronized (this.segments) {
+            this.segments.add(next);
+            this.current = next;
+            while (this.segments.size() > this.maxSegments) {
+                this.segments.removeFirst().delete();
+            }
+        }
+        this.flusher.execute(old::force);
+    }
+
+    /**
+     * @return the offset of the oldest retained record
+     */
+    public long getStartOffset()
+    {
+        synchronized (this.segments) {
+            return this.segments.getFirst().base;
+        }
+    }
+
+    /**
+     * @return the offset the next record will be written at
+     */
+    public long getEndOffset()
+    {
+        final Segment segment = this.current;
+        return segment.base + segment.limit;
+    }
+
+    /**
+     * Finds the offset to replay from to see every frame at or after the given timestamp
+     *
+     * @param ts the timestamp in microseconds
+     * @return the offset of the first record that may be at or after ts, or the end offset
+     */
+    public long offsetOf(final long ts)
+    {
+        for (final Segment segment : this.snapshot()) {
+            final int position = segment.index.find(ts);
+            if (position >= 0) {
+                return segment.base + position;
+            }
+        }
+        return this.getEndOffset();
+    }
+
+    /**
+     * Reads every record from the given offset to the current end of the journal
+     *
+     * @param offset   the offset to start from, offsets older than the retained segments start at the oldest record
+     * @param consumer receives each record
+     * @return the offset after the last record read
+     */
+    public long read(long offset, final RecordConsumer consumer)
+    {
+        for (final Segment segment : this.snapshot()) {
+            final int end = segment.limit;
+            if (offset >= segment.base + end) {
+                continue;
+            }
+            final ByteBuffer view = segment.buffer.duplicate();
+            int position = (int) Math.max(0, offset - segment.base);
+            while (position < end) {
+                final int length = view.getInt(position);
+                final long ts = view.getLong(position + 4);
+                view.limit(position + HEADER + length);
+                view.position(position + HEADER);
+                consumer.accept(segment.base + position, ts, StandardCharsets.UTF_8.decode(view).toString());
+                view.limit(view.capacity());
+                position += HEADER + length;
+            }
+            offset = segment.base + position;
+        }
+        return offset;
+    }
+
+    private List<Segment> snapshot()
+    {
+        synchronized (this.segments) {
+            return new ArrayList<>(this.segments);
+        }
+    }
+
+    private void flush()
+    {
+        try {
+            this.current.force();
+        } catch (final Throwable e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        this.flusher.shutdown();
+        synchronized (this) {
+            for (final Segment segment : this.snapshot()) {
+                segment.force();
+                segment.close();
+            }
+        }
+    }
+
+    /**
+     * Receives records read from the journal
+     */
+    public interface RecordConsumer
+    {
+        void accept(long offset, long ts, String frame);
+    }
+
+    private static class Segment
+    {
+        private final Path path;
+        private final long base;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final TimestampIndex index = new TimestampIndex();
+        private volatile int limit;
+
+        Segment(final Path path, final long base, final int size) throws IOException
+        {
+            this.path = path;
+            this.base = base;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            this.recover();
+        }
+
+        /**
+         * Finds the end of the written records and rebuilds the timestamp index
+         */
+        private void recover()
+        {
+            int position = 0;
+            while (position + HEADER <= this.buffer.capacity()) {
+                final int length = this.buffer.getInt(position);
+                if (length <= 0 || position + HEADER + length > this.buffer.capacity()) {
+                    break;
+                }
+                this.index.add(this.buffer.getLong(position + 4), position);
+                position += HEADER + length;
+            }
+            this.limit = position;
+        }
+
+        private void force()
+        {
+            this.buffer.force();
+        }
+
+        private void close()
+        {
+            try {
+                this.channel.close();
+            } catch (final IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        private void delete()
+        {
+            this.close();
+            try {
+                Files.deleteIfExists(this.path);
+            } catch (final IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * A sparse index holding the position of each record that raised the highest
+     * timestamp seen in the segment. As the indexed timestamps only increase it can
+     * be binary searched even though frames are not strictly ordered by ts.
+     */
+    private static class TimestampIndex
+    {
+        private long[] timestamps = new long[64];
+        private int[] positions = new int[64];
+        private int size;
+
+        private synchronized void add(final long ts, final int position)
+        {
+            if (ts < 0 || (this.size > 0 && ts <= this.timestamps[this.size - 1])) {
+                return;
+            }
+            if (this.size == this.timestamps.length) {
+                this.timestamps = Arrays.copyOf(this.timestamps, this.size << 1);
+                this.positions = Arrays.copyOf(this.positions, this.size << 1);
+            }
+            this.timestamps[this.size] = ts;
+            this.positions[this.size] = position;
+            ++this.size;
+        }
+
+        private synchronized int find(final long ts)
+        {
+            int low = 0;
+            int high = this.size - 1;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                if (this.timestamps[mid] < ts) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return low < this.size ? this.positions[low] : -1;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package au.com.addstar.slackapi.internal;
+
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * A reusable character buffer that websocket frame fragments are appended to
+ * and then read back from, so a message is never assembled into a String.
+ * The buffer grows to fit the largest message seen but is released back to
+ * its initial size once a message larger than 1MB is cleared.
+ */
+public class FrameReader extends Reader
+{
+    private static final int INITIAL_SIZE = 4096;
+    private static final int MAX_RETAINED = 1 << 20;
+
+    private char[] buffer = new char[INITIAL_SIZE];
+    private int length;
+    private int position;
+
+    /**
+     * Appends a fragment to the end of the current message
+     *
+     * @param fragment the text of the fragment
+     */
+    public void append(final String fragment)
+    {
+        final int count = fragment.length();
+        if (this.length + count > this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length << 1, this.length + count));
+        }
+        fragment.getChars(0, count, this.buffer, this.length);
+        this.length += count;
+    }
+
+    /**
+     * @return the number of characters in the current message
+     */
+    public int length()
+    {
+        return this.length;
+    }
+
+    /**
+     * @return the number of characters the buffer can hold before it grows
+     */
+    int capacity()
+    {
+        return this.buffer.length;
+    }
+
+    /**
+     * @return a view of the current message, it is only valid until the buffer is cleared
+     */
+    public CharBuffer asCharBuffer()
+    {
+        return CharBuffer.wrap(this.buffer, 0, this.length);
+    }
+
+    /**
+     * Discards the current message so the buffer can be reused
+     */
+    public void clear()
+    {
+        if (this.buffer.length > MAX_RETAINED) {
+            this.buffer = new char[INITIAL_SIZE];
+        }
+        this.length = 0;
+        this.position = 0;
+    }
+
+    /**
+     * Moves the read position back to the start of the current message
+     */
+    public void rewind()
+    {
+        this.position = 0;
+    }
+
+    @Override
+    public int read(final char[] cbuf, final int off, final int len)
+    {
+        if (this.position >= this.length) {
+            return -1;
+        }
+        final int count = Math.min(len, this.length - this.position);
+        System.arraycopy(this.buffer, this.position, cbuf, off, count);
+        this.position += count;
+        return count;
+    }
+
+    @Override
+    public void close()
+    {
+        // Nothing to release, the buffer is reused
+    }
+
+    @Override
+    public String toString()
+    {
+        return new String(this.buffer, 0, this.length);
+    }
+}
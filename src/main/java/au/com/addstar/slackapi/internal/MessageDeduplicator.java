@@ -0,0 +1,170 @@
+package au.com.addstar.slackapi.internal;
+
+import java.util.concurrent.TimeUnit;
+
+import au.com.addstar.slackapi.objects.ObjectID;
+import au.com.addstar.slackapi.objects.SlackTimestamp;
+
+/**
+ * Remembers recently delivered messages by conversation and ts so the same message
+ * is not delivered twice after a reconnect or a replay.
+ * <p>
+ * Messages are kept as 64 bit fingerprints of the packed conversation id and the ts in
+ * microseconds, so checking a message allocates nothing. The fingerprints are held in an
+ * open addressing hash set, with a ring recording insertion order. The oldest entry is
+ * forgotten once the set is full or once it is older than the window. With a capacity of
+ * 4096 the chance of two different messages sharing a fingerprint is around 1 in 10^12.
+ */
+public class MessageDeduplicator
+{
+    private static final long EMPTY = 0;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long[] table;
+    private final int mask;
+    private final long[] ring;
+    private final long[] ringTimes;
+    private final long window;
+    private int head;
+    private int size;
+
+    /**
+     * @param capacity the maximum number of messages remembered
+     * @param window   how long in milliseconds a message is remembered
+     */
+    public MessageDeduplicator(final int capacity, final long window)
+    {
+        int tableSize = 2;
+        while (tableSize < capacity * 2) {
+            tableSize <<= 1;
+        }
+        this.table = new long[tableSize];
+        this.mask = tableSize - 1;
+        this.ring = new long[capacity];
+        this.ringTimes = new long[capacity];
+        this.window = TimeUnit.MILLISECONDS.toNanos(window);
+    }
+
+    /**
+     * Records a message
+     *
+     * @param conversation the conversation id
+     * @param ts           the message ts
+     * @return true if the message has not been seen within the window
+     */
+    public synchronized boolean firstSeen(final ObjectID conversation, final SlackTimestamp ts)
+    {
+        final long now = System.nanoTime();
+        this.expire(now);
+
+        final long fingerprint = fingerprint(conversation, ts.toMicros());
+        int slot = this.slotOf(fingerprint);
+        while (this.table[slot] != EMPTY) {
+            if (this.table[slot] == fingerprint) {
+                return false;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+
+        if (this.size == this.ring.length) {
+            this.evictOldest();
+        }
+        this.insert(fingerprint);
+        final int tail = (this.head + this.size) % this.ring.length;
+        this.ring[tail] = fingerprint;
+        this.ringTimes[tail] = now;
+        ++this.size;
+        return true;
+    }
+
+    /**
+     * @return the number of messages currently remembered
+     */
+    public synchronized int size()
+    {
+        return this.size;
+    }
+
+    private void expire(final long now)
+    {
+        while (this.size > 0 && now - this.ringTimes[this.head] > this.window) {
+            this.evictOldest();
+        }
+    }
+
+    private void evictOldest()
+    {
+        this.remove(this.ring[this.head]);
+        this.head = (this.head + 1) % this.ring.length;
+        --this.size;
+    }
+
+    private int slotOf(final long fingerprint)
+    {
+        return (int) (fingerprint ^ (fingerprint >>> 32)) & this.mask;
+    }
+
+    private void insert(final long fingerprint)
+    {
+        int slot = this.slotOf(fingerprint);
+        while (this.table[slot] != EMPTY) {
+            slot = (slot + 1) & this.mask;
+        }
+        this.table[slot] = fingerprint;
+    }
+
+    /**
+     * Removes an entry, shifting later entries of the probe sequence back so no
+     * tombstones are needed
+     */
+    private void remove(final long fingerprint)
+    {
+        int slot = this.slotOf(fingerprint);
+        while (this.table[slot] != fingerprint) {
+            if (this.table[slot] == EMPTY) {
+                return;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+
+        int next = slot;
+        while (true) {
+            next = (next + 1) & this.mask;
+            final long candidate = this.table[next];
+            if (candidate == EMPTY) {
+                break;
+            }
+            final int home = this.slotOf(candidate);
+            // Move the candidate back if its home slot is not between the hole and its current slot
+            if (slot <= next ? (home <= slot || home > next) : (home <= slot && home > next)) {
+                this.table[slot] = candidate;
+                slot = next;
+            }
+        }
+        this.table[slot] = EMPTY;
+    }
+
+    private static long fingerprint(final ObjectID conversation, final long micros)
+    {
+        long hash;
+        if (conversation.isCompact()) {
+            hash = conversation.getPacked();
+        } else {
+            // toString is the id as it was given, so this does not allocate
+            final String id = conversation.toString();
+            hash = FNV_OFFSET;
+            for (int i = 0; i < id.length(); ++i) {
+                hash = (hash ^ id.charAt(i)) * FNV_PRIME;
+            }
+        }
+        hash = (hash ^ micros) * FNV_PRIME;
+        // Finalise so the low bits used for the slot are well mixed
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == EMPTY ? 1 : hash;
+    }
+}
@@ -2,16 +2,73 @@ package au.com.addstar.slackapi.internal;
 
 import au.com.addstar.slackapi.exceptions.SlackException;
 import au.com.addstar.slackapi.exceptions.SlackMesssageInvalidException;
-import au.com.addstar.slackapi.objects.Message;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Created for the Charlton IT Project.
  * Created by benjicharlton on 26/06/2019.
+ *
+ * Checks messages against the limits slack documents for each endpoint before they are sent.
+ * The rules for each endpoint are built once, a message and its blocks are then checked in a
+ * single pass that collects every violation.
  */
 public class MessageValidator {
+    private static final int MAX_TEXT = 40000;
+    private static final int MAX_BLOCKS = 50;
+    private static final int MAX_BLOCK_ID = 255;
+    private static final int MAX_SECTION_TEXT = 3000;
+    private static final int MAX_SECTION_FIELDS = 10;
+    private static final int MAX_FIELD_TEXT = 2000;
+    private static final int MAX_ACTION_ELEMENTS = 5;
+    private static final int MAX_CONTEXT_ELEMENTS = 10;
+    private static final int MAX_URL = 3000;
+    private static final int MAX_ALT_TEXT = 2000;
+    private static final int MAX_IMAGE_TITLE = 2000;
+    private static final int MAX_ACTION_ID = 255;
+    private static final int MAX_BUTTON_TEXT = 75;
+    private static final int MAX_BUTTON_VALUE = 2000;
+    private static final int MAX_PLACEHOLDER = 150;
+    private static final int MAX_OPTIONS = 100;
+
+    private static final Set<SlackConstants> INVALID_ENDPOINTS = EnumSet.of(
+            SlackConstants.HOST,
+            SlackConstants.API_TEST,
+            SlackConstants.AUTH_TEST,
+            SlackConstants.RTM_START,
+            SlackConstants.USER_LIST);
+    private static final Map<SlackConstants, List<Rule>> SCHEMAS = new EnumMap<>(SlackConstants.class);
+    private static final Map<String, Rule> BLOCK_RULES = new HashMap<>();
+    private static final Map<String, Rule> ELEMENT_RULES = new HashMap<>();
+
+    static {
+        final Rule content = eitherOr("text", "attachments", "blocks");
+        SCHEMAS.put(SlackConstants.CHAT_POST, Arrays.asList(content, MessageValidator::checkMessage));
+        SCHEMAS.put(SlackConstants.CHAT_POSTEMPHEMERAL, Arrays.asList(required("channel"), required("user"), content, MessageValidator::checkMessage));
+        SCHEMAS.put(SlackConstants.CHAT_UPDATE, Arrays.asList(required("channel"), required("ts"), MessageValidator::checkMessage));
+        SCHEMAS.put(SlackConstants.CHAT_MEMESSAGE, Arrays.asList(required("channel"), required("text"), MessageValidator::checkMessage));
+
+        BLOCK_RULES.put("section", MessageValidator::checkSection);
+        BLOCK_RULES.put("actions", MessageValidator::checkActions);
+        BLOCK_RULES.put("context", MessageValidator::checkContext);
+        BLOCK_RULES.put("image", MessageValidator::checkImage);
+
+        ELEMENT_RULES.put("button", MessageValidator::checkButton);
+        ELEMENT_RULES.put("static_select", MessageValidator::checkSelect);
+    }
+
     /**
      * This will validate a object has the correct paramaters for a particular endpoint
      *
@@ -20,46 +77,272 @@ public class MessageValidator {
      * @throws SlackException if not valid
      */
     public static void validateMessage(final JsonObject object, final SlackConstants constant) throws SlackMesssageInvalidException {
-        try {
-            switch (constant) {
-                case HOST:
-                case API_TEST:
-                case AUTH_TEST:
-                case RTM_START:
-                case USER_LIST:
-                    throw new SlackMesssageInvalidException("ENDPOINT INVALID", " is not a valid message method");
-                case CHAT_POSTEMPHEMERAL:
-                    test(object, "channel");
-                    test(object, "user");
-                    testEitherOr(object, "text", "attachment");
-                default:
-                    //valid
-            }
-        } catch (final SlackMesssageInvalidException e) {
-            throw new SlackMesssageInvalidException(e.getCode(), constant.toString() + " : " + e.getMessage());
+        if (INVALID_ENDPOINTS.contains(constant)) {
+            throw new SlackMesssageInvalidException("ENDPOINT INVALID", constant.toString() + " : is not a valid message method");
         }
+        final List<String> violations = findViolations(object, constant);
+        if (violations.isEmpty()) {
+            return;
+        }
+        final List<String> messages = new ArrayList<>(violations.size());
+        for (final String violation : violations) {
+            messages.add(constant.toString() + " : " + violation);
+        }
+        throw new SlackMesssageInvalidException("INVALID OBJECT", messages);
     }
 
-    private static void test(final JsonObject object, final String member) throws SlackMesssageInvalidException {
-        if (object.has(member)) {
+    /**
+     * Finds every problem with a message for an endpoint
+     *
+     * @param object   the object being checked
+     * @param constant the endpoint your checking for.
+     * @return the problems, empty if the message is valid
+     */
+    public static List<String> findViolations(final JsonObject object, final SlackConstants constant) {
+        final List<Rule> schema = SCHEMAS.get(constant);
+        if (schema == null) {
+            return Collections.emptyList();
+        }
+        final Report report = new Report();
+        for (final Rule rule : schema) {
+            rule.check(object, "", report);
+        }
+        return report.violations;
+    }
+
+    /**
+     * Finds the length limit of every string in a message that slack limits for an endpoint
+     *
+     * @param object   the message
+     * @param constant the endpoint the message is for
+     * @param limits   given each limited string of the message
+     */
+    public static void findLengthLimits(final JsonObject object, final SlackConstants constant, final LengthLimits limits) {
+        final List<Rule> schema = SCHEMAS.get(constant);
+        if (schema == null) {
             return;
         }
-        throw new SlackMesssageInvalidException("INVALID OBJECT", "EndPoint: requires the " + member);
+        final Report report = new Report() {
+            @Override
+            void add(final String violation) {
+            }
+
+            @Override
+            void checkLength(final JsonElement value, final String path, final int max) {
+                limits.limit(value, path, max);
+            }
+        };
+        for (final Rule rule : schema) {
+            rule.check(object, "", report);
+        }
+    }
+
+    private static Rule required(final String member) {
+        return (object, path, violations) -> {
+            if (!object.has(member)) {
+                violations.add("EndPoint: requires the " + member);
+            }
+        };
     }
 
     /**
-     * This will validate if the object has ANY of the members should be used when the message must have 1 of the params
+     * Creates a rule that passes if the object has ANY of the members should be used when the message must have 1 of the params
      *
-     * @param object the object to validate
      * @param member the list of string to check
-     * @throws SlackMesssageInvalidException if invalid
+     * @return the rule
+     */
+    private static Rule eitherOr(final String... member) {
+        return (object, path, violations) -> {
+            for (final String m : member) {
+                if (object.has(m)) {
+                    return;
+                }
+            }
+            violations.add("EndPoint: requires one of " + Arrays.toString(member));
+        };
+    }
+
+    private static void checkMessage(final JsonObject message, final String path, final Report violations) {
+        maxLength(message, "text", MAX_TEXT, path, violations);
+        final JsonArray blocks = getArray(message, "blocks");
+        if (blocks == null) {
+            return;
+        }
+        maxSize(blocks, MAX_BLOCKS, "blocks", violations);
+
+        final Set<String> blockIds = new HashSet<>();
+        for (int i = 0; i < blocks.size(); ++i) {
+            final String blockPath = "blocks[" + i + "]";
+            final JsonObject block = asObject(blocks.get(i));
+            if (block == null) {
+                continue;
+            }
+            final String blockId = getString(block, "block_id");
+            if (blockId != null && !blockIds.add(blockId)) {
+                violations.add(blockPath + ".block_id " + blockId + " is not unique");
+            }
+            maxLength(block, "block_id", MAX_BLOCK_ID, blockPath, violations);
+
+            final Rule rule = BLOCK_RULES.get(getString(block, "type"));
+            if (rule != null) {
+                rule.check(block, blockPath, violations);
+            }
+        }
+    }
+
+    private static void checkSection(final JsonObject block, final String path, final Report violations) {
+        final JsonArray fields = getArray(block, "fields");
+        if (!block.has("text") && fields == null) {
+            violations.add(path + " requires text or fields");
+        }
+        maxTextLength(block, "text", MAX_SECTION_TEXT, path, violations);
+        if (fields != null) {
+            maxSize(fields, MAX_SECTION_FIELDS, path + ".fields", violations);
+            for (int i = 0; i < fields.size(); ++i) {
+                final JsonObject field = asObject(fields.get(i));
+                if (field != null) {
+                    maxLength(field, "text", MAX_FIELD_TEXT, path + ".fields[" + i + "]", violations);
+                }
+            }
+        }
+        final JsonObject accessory = asObject(block.get("accessory"));
+        if (accessory != null) {
+            checkElement(accessory, path + ".accessory", violations);
+        }
+    }
+
+    private static void checkActions(final JsonObject block, final String path, final Report violations) {
+        final JsonArray elements = getArray(block, "elements");
+        if (elements == null) {
+            violations.add(path + " requires elements");
+            return;
+        }
+        maxSize(elements, MAX_ACTION_ELEMENTS, path + ".elements", violations);
+        for (int i = 0; i < elements.size(); ++i) {
+            final JsonObject element = asObject(elements.get(i));
+            if (element != null) {
+                checkElement(element, path + ".elements[" + i + "]", violations);
+            }
+        }
+    }
+
+    private static void checkContext(final JsonObject block, final String path, final Report violations) {
+        final JsonArray elements = getArray(block, "elements");
+        if (elements == null) {
+            violations.add(path + " requires elements");
+            return;
+        }
+        maxSize(elements, MAX_CONTEXT_ELEMENTS, path + ".elements", violations);
+    }
+
+    private static void checkImage(final JsonObject block, final String path, final Report violations) {
+        if (!block.has("image_url") || !block.has("alt_text")) {
+            violations.add(path + " requires image_url and alt_text");
+        }
+        maxLength(block, "image_url", MAX_URL, path, violations);
+        maxLength(block, "alt_text", MAX_ALT_TEXT, path, violations);
+        maxTextLength(block, "title", MAX_IMAGE_TITLE, path, violations);
+    }
+
+    private static void checkElement(final JsonObject element, final String path, final Report violations) {
+        maxLength(element, "action_id", MAX_ACTION_ID, path, violations);
+        final Rule rule = ELEMENT_RULES.get(getString(element, "type"));
+        if (rule != null) {
+            rule.check(element, path, violations);
+        }
+    }
+
+    private static void checkButton(final JsonObject element, final String path, final Report violations) {
+        maxTextLength(element, "text", MAX_BUTTON_TEXT, path, violations);
+        maxLength(element, "value", MAX_BUTTON_VALUE, path, violations);
+        maxLength(element, "url", MAX_URL, path, violations);
+    }
+
+    private static void checkSelect(final JsonObject element, final String path, final Report violations) {
+        maxTextLength(element, "placeholder", MAX_PLACEHOLDER, path, violations);
+        final JsonArray options = getArray(element, "options");
+        if (options != null) {
+            maxSize(options, MAX_OPTIONS, path + ".options", violations);
+        }
+        final JsonArray groups = getArray(element, "option_groups");
+        if (groups != null) {
+            maxSize(groups, MAX_OPTIONS, path + ".option_groups", violations);
+        }
+    }
+
+    private static void maxLength(final JsonObject object, final String member, final int max, final String path, final Report violations) {
+        final JsonElement element = object.get(member);
+        if (element != null && element.isJsonPrimitive()) {
+            violations.checkLength(element, join(path, member), max);
+        }
+    }
+
+    /**
+     * Checks the length of the text in a text object member
      */
-    private static void testEitherOr(final JsonObject object, final String... member) throws SlackMesssageInvalidException {
-        for (final String m : member) {
-            if (object.has(m)) {
-                return;
+    private static void maxTextLength(final JsonObject object, final String member, final int max, final String path, final Report violations) {
+        final JsonObject text = asObject(object.get(member));
+        if (text != null) {
+            maxLength(text, "text", max, join(path, member), violations);
+        }
+    }
+
+    private static void maxSize(final JsonArray array, final int max, final String path, final Report violations) {
+        if (array.size() > max) {
+            violations.add(path + " has " + array.size() + " entries, the limit is " + max);
+        }
+    }
+
+    private static String join(final String path, final String member) {
+        return path.isEmpty() ? member : path + "." + member;
+    }
+
+    private static JsonObject asObject(final JsonElement element) {
+        return element != null && element.isJsonObject() ? element.getAsJsonObject() : null;
+    }
+
+    private static JsonArray getArray(final JsonObject object, final String member) {
+        final JsonElement element = object.get(member);
+        return element != null && element.isJsonArray() ? element.getAsJsonArray() : null;
+    }
+
+    private static String getString(final JsonObject object, final String member) {
+        final JsonElement element = object.get(member);
+        return element != null && element.isJsonPrimitive() ? element.getAsString() : null;
+    }
+
+    @FunctionalInterface
+    private interface Rule {
+        void check(JsonObject object, String path, Report violations);
+    }
+
+    /**
+     * Receives the length limits of a message
+     */
+    @FunctionalInterface
+    public interface LengthLimits {
+        /**
+         * @param value the string value in the message
+         * @param path  where the value is in the message eg. blocks[0].text.text
+         * @param max   the most characters the value can have
+         */
+        void limit(JsonElement value, String path, int max);
+    }
+
+    /**
+     * Collects what the rules find
+     */
+    private static class Report {
+        private final List<String> violations = new ArrayList<>();
+
+        void add(final String violation) {
+            this.violations.add(violation);
+        }
+
+        void checkLength(final JsonElement value, final String path, final int max) {
+            if (value.getAsString().length() > max) {
+                this.add(path + " is longer than " + max + " characters");
             }
         }
-        throw new SlackMesssageInvalidException("INVALID OBJECT", "EndPoint: requires on of " + Arrays.toString(member));
     }
 }
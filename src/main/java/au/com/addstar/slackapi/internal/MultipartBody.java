@@ -0,0 +1,188 @@
+package au.com.addstar.slackapi.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+import au.com.addstar.slackapi.ProgressListener;
+
+/**
+ * A multipart/form-data request body with any number of text fields and a single file.
+ * <p>
+ * The file is streamed when the body is written, from a {@link FileChannel} with
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)} for paths, or through a
+ * small buffer for streams, so it is never held in memory as a whole.
+ */
+public class MultipartBody
+{
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final String boundary = "----slack-api-" + UUID.randomUUID().toString().replace("-", "");
+    private final StringBuilder fields = new StringBuilder();
+
+    private byte[] fileHeader;
+    private Path path;
+    private InputStream stream;
+    private long fileLength = -1;
+
+    /**
+     * Adds a text field, null values are left out
+     * @param name the field name
+     * @param value the value
+     * @return this body
+     */
+    public MultipartBody field(final String name, final Object value)
+    {
+        if (value == null) {
+            return this;
+        }
+        this.fields.append("--").append(this.boundary).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"").append(quote(name)).append("\"\r\n\r\n")
+                .append(value).append("\r\n");
+        return this;
+    }
+
+    /**
+     * Sets the file to a file on disk
+     * @param name the field name
+     * @param filename the filename to send
+     * @param path the file
+     * @return this body
+     * @throws IOException if the size of the file cannot be read
+     */
+    public MultipartBody file(final String name, final String filename, final Path path) throws IOException
+    {
+        this.setFileHeader(name, filename);
+        this.path = path;
+        this.stream = null;
+        this.fileLength = Files.size(path);
+        return this;
+    }
+
+    /**
+     * Sets the file to the contents of a stream
+     * @param name the field name
+     * @param filename the filename to send
+     * @param stream the contents, it is read to the end but not closed
+     * @param length the number of bytes in the stream, or -1 if it is not known
+     * @return this body
+     */
+    public MultipartBody file(final String name, final String filename, final InputStream stream, final long length)
+    {
+        this.setFileHeader(name, filename);
+        this.path = null;
+        this.stream = stream;
+        this.fileLength = length < 0 ? -1 : length;
+        return this;
+    }
+
+    private void setFileHeader(final String name, final String filename)
+    {
+        this.fileHeader = ("--" + this.boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"" + quote(name) + "\"; filename=\"" + quote(filename) + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    public String getContentType()
+    {
+        return "multipart/form-data; boundary=" + this.boundary;
+    }
+
+    /**
+     * @return the size of the body in bytes, or -1 if the length of the file is not known
+     */
+    public long getLength()
+    {
+        if (this.fileHeader != null && this.fileLength < 0) {
+            return -1;
+        }
+        long length = this.fields.toString().getBytes(StandardCharsets.UTF_8).length + this.closing().length;
+        if (this.fileHeader != null) {
+            length += this.fileHeader.length + this.fileLength + CRLF.length;
+        }
+        return length;
+    }
+
+    /**
+     * @return the size of the file in bytes, or -1 if it is not known
+     */
+    public long getFileLength()
+    {
+        return this.fileLength;
+    }
+
+    /**
+     * Writes the body
+     * @param out where to write the body
+     * @param listener told about each chunk of the file that is written, may be null
+     * @throws IOException if the body cannot be written
+     */
+    public void writeTo(final OutputStream out, final ProgressListener listener) throws IOException
+    {
+        out.write(this.fields.toString().getBytes(StandardCharsets.UTF_8));
+        if (this.fileHeader != null) {
+            out.write(this.fileHeader);
+            if (this.path != null) {
+                this.writePath(out, listener);
+            } else {
+                this.writeStream(out, listener);
+            }
+            out.write(CRLF);
+        }
+        out.write(this.closing());
+    }
+
+    private void writePath(final OutputStream out, final ProgressListener listener) throws IOException
+    {
+        final WritableByteChannel target = Channels.newChannel(out);
+        try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ)) {
+            long position = 0;
+            while (position < this.fileLength) {
+                final long sent = channel.transferTo(position, Math.min(CHUNK_SIZE, this.fileLength - position), target);
+                if (sent <= 0) {
+                    throw new IOException("File " + this.path + " was truncated while uploading");
+                }
+                position += sent;
+                if (listener != null) {
+                    listener.onProgress(position, this.fileLength);
+                }
+            }
+        }
+    }
+
+    private void writeStream(final OutputStream out, final ProgressListener listener) throws IOException
+    {
+        final byte[] buffer = new byte[CHUNK_SIZE];
+        long position = 0;
+        int read;
+        while ((read = this.stream.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            position += read;
+            if (listener != null) {
+                listener.onProgress(position, this.fileLength);
+            }
+        }
+        if (this.fileLength >= 0 && position != this.fileLength) {
+            throw new IOException("Stream ended after " + position + " of " + this.fileLength + " bytes");
+        }
+    }
+
+    private byte[] closing()
+    {
+        return ("--" + this.boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String quote(final String value)
+    {
+        return value.replace("\"", "%22").replace("\r", "").replace("\n", "");
+    }
+}
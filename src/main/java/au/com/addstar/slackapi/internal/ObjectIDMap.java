@@ -0,0 +1,207 @@
+package au.com.addstar.slackapi.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import au.com.addstar.slackapi.objects.ObjectID;
+
+/**
+ * A map keyed by {@link ObjectID} that stores compact ids by their packed long in an
+ * open addressing table with linear probing. Keys and values live in two parallel
+ * arrays so a lookup touches no objects besides the value, and there is no entry
+ * object per mapping. Ids that cannot be packed fall back to a regular HashMap.
+ * <p>
+ * Not thread safe, but concurrent reads are safe once writes have finished.
+ *
+ * @param <V> the value type
+ */
+public class ObjectIDMap<V>
+{
+    // Packed ids always have a non zero length field so 0 is never a valid key
+    private static final long EMPTY = 0;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int threshold;
+    private final Map<ObjectID, V> fallback = new HashMap<>();
+
+    public ObjectIDMap()
+    {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize the number of entries to size the table for
+     */
+    public ObjectIDMap(final int expectedSize)
+    {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        this.allocate(capacity);
+    }
+
+    private void allocate(final int capacity)
+    {
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        this.threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int slotOf(final long key)
+    {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & this.mask;
+    }
+
+    private int find(final long key)
+    {
+        int slot = this.slotOf(key);
+        while (this.keys[slot] != EMPTY) {
+            if (this.keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(final ObjectID id)
+    {
+        if (id == null) {
+            return null;
+        }
+        if (!id.isCompact()) {
+            return this.fallback.get(id);
+        }
+        final int slot = this.find(id.getPacked());
+        return slot < 0 ? null : (V) this.values[slot];
+    }
+
+    public boolean containsKey(final ObjectID id)
+    {
+        if (!id.isCompact()) {
+            return this.fallback.containsKey(id);
+        }
+        return this.find(id.getPacked()) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(final ObjectID id, final V value)
+    {
+        if (!id.isCompact()) {
+            return this.fallback.put(id, value);
+        }
+        final long key = id.getPacked();
+        int slot = this.slotOf(key);
+        while (this.keys[slot] != EMPTY) {
+            if (this.keys[slot] == key) {
+                final V old = (V) this.values[slot];
+                this.values[slot] = value;
+                return old;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        if (++this.size > this.threshold) {
+            this.rehash(this.keys.length << 1);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(final ObjectID id)
+    {
+        if (!id.isCompact()) {
+            return this.fallback.remove(id);
+        }
+        int slot = this.find(id.getPacked());
+        if (slot < 0) {
+            return null;
+        }
+        final V old = (V) this.values[slot];
+
+        // Shift later entries of the probe sequence back into the hole
+        int next = slot;
+        while (true) {
+            next = (next + 1) & this.mask;
+            final long candidate = this.keys[next];
+            if (candidate == EMPTY) {
+                break;
+            }
+            final int home = this.slotOf(candidate);
+            if (slot <= next ? (home <= slot || home > next) : (home <= slot && home > next)) {
+                this.keys[slot] = candidate;
+                this.values[slot] = this.values[next];
+                slot = next;
+            }
+        }
+        this.keys[slot] = EMPTY;
+        this.values[slot] = null;
+        --this.size;
+        return old;
+    }
+
+    private void rehash(final int capacity)
+    {
+        final long[] oldKeys = this.keys;
+        final Object[] oldValues = this.values;
+        this.allocate(capacity);
+        for (int i = 0; i < oldKeys.length; ++i) {
+            final long key = oldKeys[i];
+            if (key == EMPTY) {
+                continue;
+            }
+            int slot = this.slotOf(key);
+            while (this.keys[slot] != EMPTY) {
+                slot = (slot + 1) & this.mask;
+            }
+            this.keys[slot] = key;
+            this.values[slot] = oldValues[i];
+        }
+    }
+
+    public int size()
+    {
+        return this.size + this.fallback.size();
+    }
+
+    public boolean isEmpty()
+    {
+        return this.size() == 0;
+    }
+
+    public void clear()
+    {
+        Arrays.fill(this.keys, EMPTY);
+        Arrays.fill(this.values, null);
+        this.size = 0;
+        this.fallback.clear();
+    }
+
+    /**
+     * @return a snapshot of the values in the map
+     */
+    @SuppressWarnings("unchecked")
+    public Collection<V> values()
+    {
+        final List<V> result = new ArrayList<>(this.size());
+        for (int i = 0; i < this.keys.length; ++i) {
+            if (this.keys[i] != EMPTY) {
+                result.add((V) this.values[i]);
+            }
+        }
+        result.addAll(this.fallback.values());
+        return result;
+    }
+}
@@ -0,0 +1,262 @@
+package au.com.addstar.slackapi.internal;
+
+import java.io.InterruptedIOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import au.com.addstar.slackapi.MessageOptions.Priority;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Spaces out calls to methods so they stay under the web api rate limit tier of each method.
+ * Slack applies the limits per method, so each method has its own limiter. Some methods are
+ * limited per key instead, chat.postMessage allows about one message a second in each channel
+ * so it is limited per channel.
+ * <p>
+ * Callers waiting on the same method are queued in a lane for their {@link Priority}. The lanes
+ * share the budget of the method by weighted fair queuing, so while a method is saturated a
+ * critical call waits for at most one call already being let through, and bulk calls still get
+ * a share of the budget rather than being starved.
+ * <p>
+ * Waiting can be interrupted, the call then fails with an {@link InterruptedIOException}.
+ */
+public class RateLimits
+{
+    // Keys that have not been used for this long are forgotten
+    private static final long KEY_EXPIRY_MINUTES = 10;
+
+    private final Map<SlackConstants, Limit> limiters = new EnumMap<>(SlackConstants.class);
+
+    public RateLimits()
+    {
+        this.limit(SlackConstants.FILE_UPLOAD, Tier.TIER_2);
+        this.limit(SlackConstants.FILE_LIST, Tier.TIER_3);
+        this.limit(SlackConstants.FILE_DELETE, Tier.TIER_3);
+        this.limit(SlackConstants.FILE_INFO, Tier.TIER_4);
+        this.limit(SlackConstants.CHAT_DELETE, Tier.TIER_3);
+        this.limit(SlackConstants.CHAT_UPDATE, Tier.TIER_3);
+        // chat.postMessage is not tiered, slack allows about one message a second per channel
+        this.limitPerKey(SlackConstants.CHAT_POST, 60);
+    }
+
+    /**
+     * Sets the limit of a method
+     * @param method the method
+     * @param tier the rate limit tier of the method
+     */
+    public void limit(final SlackConstants method, final Tier tier)
+    {
+        this.limit(method, tier.getPerMinute());
+    }
+
+    /**
+     * Sets the limit of a method
+     * @param method the method
+     * @param perMinute the number of calls allowed each minute
+     */
+    public synchronized void limit(final SlackConstants method, final int perMinute)
+    {
+        this.limiters.put(method, new Limit(perMinute, false));
+    }
+
+    /**
+     * Sets a limit that applies to each key of a method separately, such as each channel
+     * @param method the method
+     * @param perMinute the number of calls allowed each minute for each key
+     */
+    public synchronized void limitPerKey(final SlackConstants method, final int perMinute)
+    {
+        this.limiters.put(method, new Limit(perMinute, true));
+    }
+
+    /**
+     * Waits until the method can be called, returns immediately for methods without a limit
+     * @param method the method
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    public void acquire(final SlackConstants method) throws InterruptedIOException
+    {
+        this.acquire(method, null, Priority.Normal);
+    }
+
+    /**
+     * Waits until the method can be called in the lane of a priority,
+     * returns immediately for methods without a limit
+     * @param method the method
+     * @param priority the priority of the call
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    public void acquire(final SlackConstants method, final Priority priority) throws InterruptedIOException
+    {
+        this.acquire(method, null, priority);
+    }
+
+    /**
+     * Waits until the method can be called for a key in the lane of a priority,
+     * returns immediately for methods without a limit
+     * @param method the method
+     * @param key what the call is for, such as the channel, used when the method is limited per key
+     * @param priority the priority of the call
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    public void acquire(final SlackConstants method, final Object key, final Priority priority) throws InterruptedIOException
+    {
+        final Limit limit;
+        synchronized (this) {
+            limit = this.limiters.get(method);
+        }
+        if (limit != null) {
+            limit.get(key).acquire(priority);
+        }
+    }
+
+    private static int weight(final Priority priority)
+    {
+        switch (priority) {
+            case Critical:
+                return 16;
+            case Bulk:
+                return 1;
+            default:
+                return 4;
+        }
+    }
+
+    /**
+     * The lanes of a method, or of each key of the method
+     */
+    private static class Limit
+    {
+        private final long intervalNanos;
+        private final Lanes lanes;
+        private final Cache<Object, Lanes> keyed;
+
+        Limit(final int perMinute, final boolean perKey)
+        {
+            this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / perMinute;
+            this.lanes = new Lanes(this.intervalNanos);
+            this.keyed = perKey ? CacheBuilder.newBuilder().expireAfterAccess(KEY_EXPIRY_MINUTES, TimeUnit.MINUTES).build() : null;
+        }
+
+        Lanes get(final Object key)
+        {
+            if (this.keyed == null || key == null) {
+                return this.lanes;
+            }
+            return this.keyed.asMap().computeIfAbsent(key, k -> new Lanes(this.intervalNanos));
+        }
+    }
+
+    /**
+     * The waiting callers of one method. Each call is stamped with a virtual finish time that
+     * advances by the inverse of the weight of its lane, and the earliest stamp goes next.
+     * Only one caller at a time waits for the next free time so the order is kept.
+     */
+    private static class Lanes
+    {
+        private final long intervalNanos;
+        private final PriorityQueue<Ticket> waiting = new PriorityQueue<>();
+        private final double[] laneFinish = new double[Priority.values().length];
+        private double virtualTime;
+        private long sequence;
+        private boolean busy;
+        // When the next call can be made, by System.nanoTime()
+        private long nextFree = System.nanoTime();
+
+        Lanes(final long intervalNanos)
+        {
+            this.intervalNanos = intervalNanos;
+        }
+
+        void acquire(final Priority priority) throws InterruptedIOException
+        {
+            final long wait;
+            synchronized (this) {
+                final int lane = priority.ordinal();
+                final double start = Math.max(this.virtualTime, this.laneFinish[lane]);
+                final Ticket ticket = new Ticket(start, start + 1.0 / weight(priority), this.sequence++);
+                this.laneFinish[lane] = ticket.finish;
+                this.waiting.add(ticket);
+
+                while (this.busy || this.waiting.peek() != ticket) {
+                    try {
+                        this.wait();
+                    } catch (final InterruptedException e) {
+                        this.waiting.remove(ticket);
+                        this.notifyAll();
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted waiting for the rate limit");
+                    }
+                }
+                this.waiting.poll();
+                this.virtualTime = ticket.start;
+                this.busy = true;
+                wait = this.nextFree - System.nanoTime();
+            }
+
+            try {
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                synchronized (this) {
+                    this.nextFree = Math.max(this.nextFree, System.nanoTime()) + this.intervalNanos;
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for the rate limit");
+            } finally {
+                synchronized (this) {
+                    this.busy = false;
+                    this.notifyAll();
+                }
+            }
+        }
+    }
+
+    private static class Ticket implements Comparable<Ticket>
+    {
+        private final double start;
+        private final double finish;
+        private final long sequence;
+
+        Ticket(final double start, final double finish, final long sequence)
+        {
+            this.start = start;
+            this.finish = finish;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(final Ticket other)
+        {
+            final int result = Double.compare(this.finish, other.finish);
+            return result != 0 ? result : Long.compare(this.sequence, other.sequence);
+        }
+    }
+
+    public enum Tier
+    {
+        TIER_1(1),
+        TIER_2(20),
+        TIER_3(50),
+        TIER_4(100);
+
+        private final int perMinute;
+
+        Tier(final int perMinute)
+        {
+            this.perMinute = perMinute;
+        }
+
+        /**
+         * @return the number of calls allowed each minute
+         */
+        public int getPerMinute()
+        {
+            return this.perMinute;
+        }
+    }
+}
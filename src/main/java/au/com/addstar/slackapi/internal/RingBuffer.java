@@ -0,0 +1,291 @@
+package au.com.addstar.slackapi.internal;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A preallocated single producer ring buffer. Each slot is created once and reused
+ * for the life of the buffer. Every handler runs on its own thread and only sees a
+ * slot once the handler before it has finished with it, the producer only reuses
+ * a slot once the last handler has finished with it.
+ * <p>
+ * A thread with nothing to do spins, then yields, then blocks until a sequence it
+ * waits on moves, so an idle buffer uses no cpu.
+ * <p>
+ * Closing the buffer stops it taking new slots, the stages still finish every slot
+ * published before it was closed.
+ *
+ * @param <E> the slot type
+ */
+public class RingBuffer<E> implements Closeable
+{
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+
+    private final Object[] slots;
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final List<Stage> stages;
+    private final Consumer<Throwable> errorHandler;
+
+    // Threads blocked waiting for a sequence to move
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition advanced = this.lock.newCondition();
+    private final AtomicInteger sleepers = new AtomicInteger();
+    private long nextSequence = 0;
+    private volatile boolean closed;
+
+    /**
+     * @param name     used to name the stage threads
+     * @param size     the number of slots, rounded up to a power of 2
+     * @param factory  creates the slots
+     * @param handlers the stages, in the order each slot passes through them
+     * @param errorHandler given anything thrown by a handler
+     */
+    public RingBuffer(final String name, final int size, final Supplier<E> factory, final List<Handler<E>> handlers,
+                      final Consumer<Throwable> errorHandler)
+    {
+        if (handlers.isEmpty()) {
+            throw new IllegalArgumentException("At least one handler is required");
+        }
+        int capacity = 2;
+        while (capacity < size) {
+            capacity <<= 1;
+        }
+        this.errorHandler = errorHandler;
+        this.slots = new Object[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; ++i) {
+            this.slots[i] = factory.get();
+        }
+
+        this.stages = new ArrayList<>(handlers.size());
+        Stage upstream = null;
+        for (int i = 0; i < handlers.size(); ++i) {
+            Stage stage = new Stage(name + "-" + i, handlers.get(i), upstream);
+            this.stages.add(stage);
+            upstream = stage;
+        }
+    }
+
+    public void start()
+    {
+        for (final Stage stage : this.stages) {
+            stage.thread.start();
+        }
+    }
+
+    public int getCapacity()
+    {
+        return this.slots.length;
+    }
+
+    /**
+     * Claims the next slot, waiting for the last stage to release it if the buffer is full.
+     * Must only be called from the producer thread.
+     *
+     * @return the sequence of the claimed slot
+     * @throws IllegalStateException if the buffer has been closed
+     */
+    public long next()
+    {
+        final long sequence = this.nextSequence;
+        final AtomicLong gate = this.stages.get(this.stages.size() - 1).sequence;
+        if (this.closed || !this.await(() -> sequence - this.slots.length <= gate.get(), () -> this.closed)) {
+            throw new IllegalStateException("The ring buffer has been closed");
+        }
+        ++this.nextSequence;
+        return sequence;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(final long sequence)
+    {
+        return (E) this.slots[(int) (sequence & this.mask)];
+    }
+
+    /**
+     * Makes a claimed slot visible to the first stage
+     *
+     * @param sequence the sequence returned by {@link #next()}
+     */
+    public void publish(final long sequence)
+    {
+        // A full write so the check for sleepers cannot be ordered before it
+        this.cursor.set(sequence);
+        this.signal();
+    }
+
+    /**
+     * Stops taking new slots and waits for the stages to finish every published slot
+     */
+    @Override
+    public void close()
+    {
+        this.closed = true;
+        this.lock.lock();
+        try {
+            this.advanced.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+
+        boolean interrupted = false;
+        for (final Stage stage : this.stages) {
+            // A handler may close the buffer from its own thread
+            while (stage.thread != Thread.currentThread() && stage.thread.isAlive()) {
+                try {
+                    stage.thread.join();
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits until the condition holds or there is no point waiting any longer
+     *
+     * @param ready checked after each sequence moves
+     * @param stopped true once ready can no longer change, checked before ready so
+     *                a last change is not missed
+     * @return false if stopped before the condition held
+     */
+    private boolean await(final BooleanSupplier ready, final BooleanSupplier stopped)
+    {
+        for (int tries = 0; tries < SPIN_TRIES + YIELD_TRIES; ++tries) {
+            final boolean stop = stopped.getAsBoolean();
+            if (ready.getAsBoolean()) {
+                return true;
+            }
+            if (stop) {
+                return false;
+            }
+            if (tries >= SPIN_TRIES) {
+                Thread.yield();
+            }
+        }
+
+        // The count is raised before checking so a signal after the check is not missed
+        this.sleepers.incrementAndGet();
+        this.lock.lock();
+        try {
+            while (true) {
+                final boolean stop = stopped.getAsBoolean();
+                if (ready.getAsBoolean()) {
+                    return true;
+                }
+                if (stop) {
+                    return false;
+                }
+                this.advanced.awaitUninterruptibly();
+            }
+        } finally {
+            this.lock.unlock();
+            this.sleepers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Wakes blocked threads after a sequence has moved, costs only a read when none are blocked
+     */
+    private void signal()
+    {
+        if (this.sleepers.get() > 0) {
+            this.lock.lock();
+            try {
+                this.advanced.signalAll();
+            } finally {
+                this.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * A single processing stage of the buffer
+     *
+     * @param <E> the slot type
+     */
+    public interface Handler<E>
+    {
+        void onEvent(E slot, long sequence) throws Exception;
+    }
+
+    private class Stage implements Runnable
+    {
+        private final AtomicLong sequence = new AtomicLong(-1);
+        private final Handler<E> handler;
+        // The stage before this one, null for the first stage which follows the cursor
+        private final Stage upstream;
+        private final AtomicLong barrier;
+        private final Thread thread;
+        private volatile boolean finished;
+
+        Stage(final String name, final Handler<E> handler, final Stage upstream)
+        {
+            this.handler = handler;
+            this.upstream = upstream;
+            this.barrier = upstream != null ? upstream.sequence : RingBuffer.this.cursor;
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         * @return true once the barrier can no longer move
+         */
+        private boolean isDrained()
+        {
+            return RingBuffer.this.closed && (this.upstream == null || this.upstream.finished);
+        }
+
+        @Override
+        public void run()
+        {
+            try {
+                this.process();
+            } finally {
+                this.finished = true;
+                RingBuffer.this.lock.lock();
+                try {
+                    RingBuffer.this.advanced.signalAll();
+                } finally {
+                    RingBuffer.this.lock.unlock();
+                }
+            }
+        }
+
+        private void process()
+        {
+            while (true) {
+                final long next = this.sequence.get() + 1;
+                if (!RingBuffer.this.await(() -> this.barrier.get() >= next, this::isDrained)) {
+                    return;
+                }
+                final long available = this.barrier.get();
+                for (long seq = next; seq <= available; ++seq) {
+                    try {
+                        this.handler.onEvent(RingBuffer.this.get(seq), seq);
+                    } catch (final Throwable e) {
+                        RingBuffer.this.errorHandler.accept(e);
+                    }
+                    if (seq < available) {
+                        this.sequence.lazySet(seq);
+                    }
+                }
+                this.sequence.set(available);
+                RingBuffer.this.signal();
+            }
+        }
+    }
+}
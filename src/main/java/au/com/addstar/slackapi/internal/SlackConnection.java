@@ -3,9 +3,11 @@ package au.com.addstar.slackapi.internal;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
 import java.net.ProtocolException;
+import java.net.URI;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
@@ -15,6 +17,7 @@ import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.HttpsURLConnection;
 
+import au.com.addstar.slackapi.ProgressListener;
 import au.com.addstar.slackapi.SlackAPI;
 import au.com.addstar.slackapi.exceptions.*;
 
@@ -26,16 +29,19 @@ import com.google.gson.stream.JsonReader;
 @SuppressWarnings("WeakerAccess")
 public class SlackConnection
 {
+    private static final int CHUNK_SIZE = 64 * 1024;
+
     private final String token;
-    private boolean isRateLimited;
-    private long retryEnd;
+    private final RateLimits rateLimits = new RateLimits();
+    // When slack allows requests again after a 429, 0 when not rate limited
+    private volatile long retryEnd;
+    private volatile ConcurrencyLimiter concurrencyLimiter;
+    private volatile CircuitBreakers circuitBreakers;
+    private volatile int timeout;
 
     public SlackConnection(final String token)
     {
         this.token = token;
-
-        this.isRateLimited = false;
-        this.retryEnd = 0;
     }
 
     private String encodeRequest(final Map<String, Object> params)
@@ -62,16 +68,44 @@ public class SlackConnection
     }
 
     private HttpsURLConnection createConnection(final SlackConstants method, final JsonObject base) throws IOException {
+        return this.createConnection(method, base.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private HttpsURLConnection createConnection(final SlackConstants method, final byte[] body) throws IOException {
         final URL queryUrl = new URL("https", SlackConstants.HOST.toString(), "/api/" + method);
         final HttpsURLConnection connection = (HttpsURLConnection) queryUrl.openConnection();
+        this.applyTimeout(connection);
         connection.setRequestMethod("POST");
         connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
         connection.setRequestProperty("Authorization", "Bearer " + this.token);
         connection.setDoInput(true);
         connection.setDoOutput(true);
-        final BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8));
-        writer.write(base.toString());
-        writer.close();
+        connection.setFixedLengthStreamingMode(body.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        return connection;
+    }
+
+    private HttpsURLConnection createConnection(final SlackConstants method, final MultipartBody body, final ProgressListener listener) throws IOException {
+        final URL queryUrl = new URL("https", SlackConstants.HOST.toString(), "/api/" + method);
+        final HttpsURLConnection connection = (HttpsURLConnection) queryUrl.openConnection();
+        this.applyTimeout(connection);
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", body.getContentType());
+        connection.setRequestProperty("Authorization", "Bearer " + this.token);
+        connection.setDoInput(true);
+        connection.setDoOutput(true);
+        // Stream the body, otherwise the connection buffers all of it to find the length
+        final long length = body.getLength();
+        if (length >= 0) {
+            connection.setFixedLengthStreamingMode(length);
+        } else {
+            connection.setChunkedStreamingMode(CHUNK_SIZE);
+        }
+        try (OutputStream out = connection.getOutputStream()) {
+            body.writeTo(out, listener);
+        }
         return connection;
     }
 
@@ -80,6 +114,7 @@ public class SlackConnection
         {
             final URL queryUrl = new URL("https", SlackConstants.HOST.toString(), "/api/" + method);
             final HttpsURLConnection connection = (HttpsURLConnection) queryUrl.openConnection();
+            this.applyTimeout(connection);
             if (method.isPost()) {
                 connection.setRequestMethod("POST");
             } else {
@@ -104,25 +139,235 @@ public class SlackConnection
     }
 
     public JsonElement callMethod(final SlackConstants method, final JsonObject object) throws IOException {
-        if (this.isRateLimited) {
-            if (System.currentTimeMillis() < this.retryEnd) {
-                throw new SlackRequestLimitException(this.retryEnd);
-            }
+        return this.send(method, () -> this.createConnection(method, object), true);
+    }
+
+    /**
+     * Calls a method with a json body that has already been encoded
+     *
+     * @param method the method
+     * @param body   the UTF-8 encoded json body
+     * @return the result
+     * @throws IOException if the call failed
+     */
+    public JsonElement callMethod(final SlackConstants method, final byte[] body) throws IOException {
+        return this.send(method, () -> this.createConnection(method, body), true);
+    }
+
+    public JsonObject callMethodHandled(final SlackConstants method, final byte[] body) throws IOException, SlackException {
+        final JsonObject base = this.callMethod(method, body).getAsJsonObject();
+        final boolean ok = base.get("ok").getAsBoolean();
+        if (!ok)
+        {
+            final String code = base.get("error").getAsString();
+            throw this.validateErrorCode(code);
+        }
+        return base;
+    }
 
-            this.isRateLimited = false;
+    /**
+     * Calls a method with a multipart body, streaming the body as it is sent
+     *
+     * @param method   the method
+     * @param body     the body
+     * @param listener told about the progress of the file in the body, may be null
+     * @return the result
+     * @throws IOException if the call failed
+     * @throws SlackException if slack returned an error
+     */
+    public JsonObject callMethodHandled(final SlackConstants method, final MultipartBody body, final ProgressListener listener) throws IOException, SlackException {
+        // The time taken depends on the size of the file, so it says nothing about slack's load
+        final JsonObject base = this.send(method, () -> this.createConnection(method, body, listener), false).getAsJsonObject();
+        final boolean ok = base.get("ok").getAsBoolean();
+        if (!ok)
+        {
+            final String code = base.get("error").getAsString();
+            throw this.validateErrorCode(code);
         }
-        final HttpsURLConnection connection = this.createConnection(method, object);
+        return base;
+    }
+
+    /**
+     * Starts downloading a private file
+     *
+     * @param url    the url_private of the file, it must be on a slack host as the token is sent to it
+     * @param offset the byte to start from, a range request is made when this is above 0
+     * @return the connection, the response code is 200 for the whole file, 206 for the requested
+     * range, or 416 when the offset is at the end of the file
+     * @throws IOException if the request failed
+     */
+    public HttpsURLConnection openDownload(final URI url, final long offset) throws IOException {
+        final String host = url.getHost();
+        if (!"https".equalsIgnoreCase(url.getScheme()) || host == null
+                || !(host.equalsIgnoreCase("slack.com") || host.toLowerCase().endsWith(".slack.com"))) {
+            throw new IllegalArgumentException("Not a slack file url: " + url);
+        }
+        this.checkRateLimited();
+
+        final HttpsURLConnection connection = (HttpsURLConnection) url.toURL().openConnection();
+
+        this.applyTimeout(connection);
+        connection.setRequestProperty("Authorization", "Bearer " + this.token);
+        if (offset > 0) {
+            connection.setRequestProperty("Range", "bytes=" + offset + "-");
+        }
+        connection.setDoInput(true);
         connection.connect();
-        return this.processConnectionResult(connection);
+
+        final int code = connection.getResponseCode();
+        if (code == 429) // Too many requests
+        {
+            final long retryEnd = this.onRateLimited(connection);
+            connection.disconnect();
+            throw new SlackRequestLimitException(retryEnd);
+        }
+        if (code != 200 && code != 206 && code != 416) {
+            connection.disconnect();
+            throw new IOException("Download of " + url + " failed with HTTP " + code);
+        }
+        return connection;
+    }
+
+    /**
+     * @return the limits that calls to each method should be spaced out to
+     */
+    public RateLimits getRateLimits() {
+        return this.rateLimits;
+    }
+
+    /**
+     * Limits the number of requests in flight at once, by default there is no limit
+     * @param limiter the limiter, or null to remove the limit
+     */
+    public void setConcurrencyLimiter(final ConcurrencyLimiter limiter) {
+        this.concurrencyLimiter = limiter;
+    }
+
+    /**
+     * @return the limiter of requests in flight, or null if there is none
+     */
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return this.concurrencyLimiter;
+    }
+
+    /**
+     * Stops calling methods that keep failing, by default methods are always called
+     * @param breakers the breakers, or null to always call methods
+     */
+    public void setCircuitBreakers(final CircuitBreakers breakers) {
+        this.circuitBreakers = breakers;
+    }
+
+    /**
+     * @return the circuit breakers of the methods, or null if there are none
+     */
+    public CircuitBreakers getCircuitBreakers() {
+        return this.circuitBreakers;
+    }
+
+    /**
+     * Sets how long to wait to connect and for each read before giving up on a request,
+     * so a request cannot hang when slack stops responding
+     * @param millis the time in milliseconds, 0 waits forever which is the default
+     */
+    public void setTimeout(final int millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("The timeout cannot be negative");
+        }
+        this.timeout = millis;
+    }
+
+    private void applyTimeout(final HttpsURLConnection connection) {
+        connection.setConnectTimeout(this.timeout);
+        connection.setReadTimeout(this.timeout);
+    }
+
+    /**
+     * Makes a request within the concurrency limit and circuit breaker of the method, if there are any
+     *
+     * @param method  the method being called
+     * @param request opens the connection and writes the body
+     * @param timed   whether the latency of the request reflects slack's load
+     * @return the result
+     * @throws IOException if the call failed
+     */
+    private JsonElement send(final SlackConstants method, final Request request, final boolean timed) throws IOException {
+        this.checkRateLimited();
+
+        final ConcurrencyLimiter limiter = this.concurrencyLimiter;
+        final CircuitBreakers breakers = this.circuitBreakers;
+        if (limiter != null) {
+            limiter.acquire();
+        }
+        long permit = 0;
+        if (breakers != null) {
+            try {
+                permit = breakers.acquire(method);
+            } catch (final SlackCircuitOpenException e) {
+                if (limiter != null) {
+                    limiter.onDropped();
+                }
+                throw e;
+            }
+        }
+
+        final long start = System.nanoTime();
+        final JsonElement result;
+        try {
+            final HttpsURLConnection connection = request.open();
+            connection.connect();
+            result = this.processConnectionResult(connection);
+        } catch (final SlackRequestLimitException e) {
+            // Slack answered, so the method is working
+            if (limiter != null) {
+                limiter.onLimited();
+            }
+            if (breakers != null) {
+                breakers.onSuccess(method, permit, -1);
+            }
+            throw e;
+        } catch (final IOException | RuntimeException e) {
+            if (limiter != null) {
+                limiter.onDropped();
+            }
+            if (breakers != null) {
+                breakers.onFailure(method, permit);
+            }
+            throw e;
+        }
+
+        final long latency = timed ? System.nanoTime() - start : -1;
+        if (limiter != null) {
+            limiter.onSuccess(latency);
+        }
+        if (breakers != null) {
+            breakers.onSuccess(method, permit, latency);
+        }
+        return result;
+    }
+
+    private void checkRateLimited() throws SlackRequestLimitException {
+        final long retryEnd = this.retryEnd;
+        if (retryEnd != 0 && System.currentTimeMillis() < retryEnd) {
+            throw new SlackRequestLimitException(retryEnd);
+        }
+    }
+
+    /**
+     * Stops requests until the time slack asked for has passed
+     * @return when requests can be made again
+     */
+    private long onRateLimited(final HttpsURLConnection connection) {
+        final int delay = connection.getHeaderFieldInt("Retry-After", 2);
+        final long retryEnd = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(delay);
+        this.retryEnd = retryEnd;
+        return retryEnd;
     }
 
     private JsonElement processConnectionResult(final HttpsURLConnection connection) throws IOException {
         if (connection.getResponseCode() == 429) // Too many requests
         {
-            final int delay = connection.getHeaderFieldInt("Retry-After", 2);
-            this.isRateLimited = true;
-            this.retryEnd = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(delay);
-            throw new SlackRequestLimitException(this.retryEnd);
+            throw new SlackRequestLimitException(this.onRateLimited(connection));
         }
         final JsonReader reader = new JsonReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
         final JsonParser parser = new JsonParser();
@@ -159,17 +404,7 @@ public class SlackConnection
     }
 
     public JsonElement callMethod(final SlackConstants method, final Map<String, Object> params) throws IOException {
-        if (this.isRateLimited) {
-            if (System.currentTimeMillis() < this.retryEnd)
-                throw new SlackRequestLimitException(this.retryEnd);
-
-            this.isRateLimited = false;
-        }
-
-        final HttpsURLConnection connection = this.createConnection(method, params);
-        connection.connect();
-        return this.processConnectionResult(connection);
-
+        return this.send(method, () -> this.createConnection(method, params), true);
     }
 
     public JsonObject callMethodHandled(final SlackConstants method, final Map<String, Object> params) throws SlackException, IOException {
@@ -195,4 +430,8 @@ public class SlackConnection
     {
         return this.callMethodHandled(method, Utilities.EMPTY_MAP);
     }
+
+    private interface Request {
+        HttpsURLConnection open() throws IOException;
+    }
 }
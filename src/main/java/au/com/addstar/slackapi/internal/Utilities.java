@@ -1,10 +1,21 @@
 package au.com.addstar.slackapi.internal;
 
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
+import au.com.addstar.slackapi.objects.ObjectID;
+import au.com.addstar.slackapi.objects.SlackTimestamp;
 import au.com.addstar.slackapi.objects.blocks.composition.TextObject;
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 public class Utilities
 {
@@ -15,36 +26,17 @@ public class Utilities
      */
     public static long getAsTimestamp(final JsonElement element)
     {
-        final String raw = element.getAsString();
-
-        final long time;
-        if (raw.contains("."))
-        {
-            final double precTime = Double.parseDouble(raw);
-            time = (long)(precTime * 1000);
-        }
-        else {
-            time = Long.parseLong(raw) * 1000;
-        }
-
-        return time;
-    }
-    public static TextObject getTextObject(final JsonElement element, JsonDeserializationContext context, TextObject.TextType type){
-        TextObject textObject = context.deserialize(element,TextObject.class);
-        if(type == null){
-            return textObject;
-        }else{
-            if(textObject.getType() != type){
-                throw new JsonParseException("Invalid textType: " +textObject.getType().name());
-            }else{
-                return textObject;
-            }
-        }
+        return parseTimestamp(element.getAsString());
     }
 
-    public static void serializeTextObject(JsonObject root, String name, TextObject object, JsonSerializationContext context){
-        if(object == null)return;
-        root.add(name,context.serialize(object,TextObject.class));
+    /**
+     * Parses a unix timestamp
+     * @param raw The timestamp in seconds
+     * @return The time in milliseconds
+     */
+    public static long parseTimestamp(final String raw)
+    {
+        return SlackTimestamp.parseMicros(raw) / 1000;
     }
 
     public static String getAsString(final JsonElement element)
@@ -74,6 +66,227 @@ public class Utilities
         return element.getAsInt();
     }
 
+    /**
+     * Reads a string, number or boolean value as a string
+     * @param in the reader
+     * @return the value or null
+     * @throws IOException if the value is not a primitive
+     */
+    public static String nextString(final JsonReader in) throws IOException
+    {
+        final JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(in.nextBoolean());
+        }
+        return in.nextString();
+    }
+
+    public static boolean nextBoolean(final JsonReader in, final boolean def) throws IOException
+    {
+        final JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return def;
+        }
+        if (token == JsonToken.STRING) {
+            return Boolean.parseBoolean(in.nextString());
+        }
+        return in.nextBoolean();
+    }
+
+    public static int nextInt(final JsonReader in) throws IOException
+    {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextInt();
+    }
+
+    /**
+     * Reads a unix timestamp
+     * @param in the reader
+     * @return The time in milliseconds, or 0 if null
+     * @throws IOException if the value is not a timestamp
+     */
+    public static long nextTimestamp(final JsonReader in) throws IOException
+    {
+        final String raw = nextString(in);
+        return raw == null ? 0 : parseTimestamp(raw);
+    }
+
+    public static SlackTimestamp nextSlackTimestamp(final JsonReader in) throws IOException
+    {
+        final String raw = nextString(in);
+        if (raw == null) {
+            return null;
+        }
+        try {
+            return SlackTimestamp.parse(raw);
+        } catch (final NumberFormatException e) {
+            throw new JsonParseException(e.getMessage());
+        }
+    }
+
+    public static ObjectID nextObjectID(final JsonReader in) throws IOException
+    {
+        final String raw = nextString(in);
+        return raw == null ? null : ObjectID.of(raw);
+    }
+
+    public static URL nextURL(final JsonReader in) throws IOException
+    {
+        final String raw = nextString(in);
+        if (raw == null) {
+            return null;
+        }
+        try {
+            return new URL(raw);
+        } catch (final MalformedURLException e) {
+            throw new JsonParseException("URL could not be decoded");
+        }
+    }
+
+    /**
+     * Parses a link that was kept as text
+     * @param raw the link
+     * @return the link, or null if raw is null
+     * @throws IllegalArgumentException if the link is not a valid URI
+     */
+    public static URI toURI(final String raw)
+    {
+        return raw == null ? null : URI.create(raw);
+    }
+
+    /**
+     * Reads an array using the given adapter for each element
+     * @param in the reader
+     * @param adapter the element adapter
+     * @param <T> the element type
+     * @return the list, or null if the value was null
+     * @throws IOException if the array cannot be read
+     */
+    public static <T> List<T> nextList(final JsonReader in, final TypeAdapter<T> adapter) throws IOException
+    {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        final List<T> list = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            list.add(adapter.read(in));
+        }
+        in.endArray();
+        return list;
+    }
+
+    /**
+     * Begins reading an object
+     * @param in the reader
+     * @return false if the value was null and has been consumed
+     * @throws IOException if the value is not an object or null
+     */
+    public static boolean beginObject(final JsonReader in) throws IOException
+    {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return false;
+        }
+        in.beginObject();
+        return true;
+    }
+
+    public static TextObject nextTextObject(final JsonReader in, final Gson gson, final TextObject.TextType type) throws IOException
+    {
+        final TextObject textObject = gson.getAdapter(TextObject.class).read(in);
+        if (type == null || textObject == null) {
+            return textObject;
+        }
+        if (textObject.getType() != type) {
+            throw new JsonParseException("Invalid textType: " + textObject.getType().name());
+        }
+        return textObject;
+    }
+
+    public static void writeTextObject(final JsonWriter out, final String name, final TextObject object, final Gson gson) throws IOException
+    {
+        if (object == null) {
+            return;
+        }
+        out.name(name);
+        gson.getAdapter(TextObject.class).write(out, object);
+    }
+
+    /**
+     * Writes a time the way slack writes it, as seconds since the epoch
+     * @param out the writer
+     * @param name the member name
+     * @param millis the time in milliseconds
+     * @throws IOException if the value cannot be written
+     */
+    public static void writeTimestamp(final JsonWriter out, final String name, final long millis) throws IOException
+    {
+        out.name(name).value(SlackTimestamp.ofMillis(millis).toString());
+    }
+
+    /**
+     * Writes an id, nothing is written if it is null
+     * @param out the writer
+     * @param name the member name
+     * @param id the id
+     * @throws IOException if the value cannot be written
+     */
+    public static void writeObjectID(final JsonWriter out, final String name, final ObjectID id) throws IOException
+    {
+        if (id == null) {
+            return;
+        }
+        out.name(name).value(id.toString());
+    }
+
+    /**
+     * Writes a value with the adapter for its runtime type
+     * @param out the writer
+     * @param value the value
+     * @param gson the gson instance to get the adapter from
+     * @throws IOException if the value cannot be written
+     */
+    @SuppressWarnings("unchecked")
+    public static void writeValue(final JsonWriter out, final Object value, final Gson gson) throws IOException
+    {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        ((TypeAdapter<Object>) gson.getAdapter(value.getClass())).write(out, value);
+    }
+
+    /**
+     * Writes an array, using the adapter for the runtime type of each element
+     * @param out the writer
+     * @param name the member name
+     * @param values the elements
+     * @param gson the gson instance to get the adapters from
+     * @throws IOException if the array cannot be written
+     */
+    public static void writeList(final JsonWriter out, final String name, final List<?> values, final Gson gson) throws IOException
+    {
+        if (values == null) {
+            return;
+        }
+        out.name(name);
+        out.beginArray();
+        for (final Object value : values) {
+            writeValue(out, value, gson);
+        }
+        out.endArray();
+    }
+
     /**
      * So I dont have to force type Collections.emptyMap() for parameters
      */
@@ -1,27 +1,25 @@
 package au.com.addstar.slackapi.objects;
 
-import java.lang.reflect.Type;
-import java.net.URL;
+import java.io.IOException;
+import java.net.URI;
 import java.util.List;
 
 import au.com.addstar.slackapi.internal.Utilities;
 
 import com.google.common.collect.Lists;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
-import com.google.gson.JsonPrimitive;
-import com.google.gson.JsonSerializationContext;
-import com.google.gson.JsonSerializer;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 import lombok.ToString;
 
 @Data
@@ -34,18 +32,24 @@ public class Attachment
     private String color;
     private String pretext;
 
+    // Links are kept as text, URL would resolve the host when hashed or compared
+
     // Title
     private String title;
-    private URL titleLink;
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private String titleLink;
 
     // Author
     private String authorName;
-    private URL authorLink;
-    private URL authorIcon;
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private String authorLink;
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private String authorIcon;
 
     // Body
     private String text;
-    private URL image;
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private String image;
 
     private boolean formatPretext = false;
     private boolean formatText = false;
@@ -63,6 +67,46 @@ public class Attachment
         fields.add(field);
     }
 
+    public URI getTitleLink()
+    {
+        return Utilities.toURI(titleLink);
+    }
+
+    public void setTitleLink(URI titleLink)
+    {
+        this.titleLink = titleLink == null ? null : titleLink.toString();
+    }
+
+    public URI getAuthorLink()
+    {
+        return Utilities.toURI(authorLink);
+    }
+
+    public void setAuthorLink(URI authorLink)
+    {
+        this.authorLink = authorLink == null ? null : authorLink.toString();
+    }
+
+    public URI getAuthorIcon()
+    {
+        return Utilities.toURI(authorIcon);
+    }
+
+    public void setAuthorIcon(URI authorIcon)
+    {
+        this.authorIcon = authorIcon == null ? null : authorIcon.toString();
+    }
+
+    public URI getImage()
+    {
+        return Utilities.toURI(image);
+    }
+
+    public void setImage(URI image)
+    {
+        this.image = image == null ? null : image.toString();
+    }
+
     public static void addGsonAdapters(GsonBuilder builder)
     {
         builder.registerTypeAdapter(Attachment.class, new AttachmentJsonAdapter());
@@ -83,118 +127,183 @@ public class Attachment
         private boolean isShort;
     }
 
-    private static class AttachmentJsonAdapter implements JsonDeserializer<Attachment>, JsonSerializer<Attachment>
+    private static class AttachmentJsonAdapter extends TypeAdapter<Attachment>
     {
+        private final AttachmentFieldJsonAdapter fieldAdapter = new AttachmentFieldJsonAdapter();
+
         @Override
-        public JsonElement serialize( Attachment src, Type typeOfSrc, JsonSerializationContext context )
+        public void write( JsonWriter out, Attachment src ) throws IOException
         {
-            JsonObject root = new JsonObject();
-            root.addProperty("fallback", src.fallback);
+            if (src == null)
+            {
+                out.nullValue();
+                return;
+            }
+
+            out.beginObject();
+            out.name("fallback").value(src.fallback);
 
             if (src.color != null)
-                root.addProperty("color", src.color);
+                out.name("color").value(src.color);
             if (src.pretext != null)
-                root.addProperty("pretext", src.pretext);
+                out.name("pretext").value(src.pretext);
             if (src.text != null)
-                root.addProperty("text", src.text);
+                out.name("text").value(src.text);
 
             if (src.authorName != null)
             {
-                root.addProperty("author_name", src.authorName);
+                out.name("author_name").value(src.authorName);
                 if (src.authorLink != null)
-                    root.addProperty("author_link", src.authorLink.toExternalForm());
+                    out.name("author_link").value(src.authorLink);
                 if (src.authorIcon != null)
-                    root.addProperty("author_icon", src.authorIcon.toExternalForm());
+                    out.name("author_icon").value(src.authorIcon);
             }
 
             if (src.title != null)
             {
-                root.addProperty("title", src.title);
+                out.name("title").value(src.title);
 
                 if (src.titleLink != null)
-                    root.addProperty("title_link", src.titleLink.toExternalForm());
+                    out.name("title_link").value(src.titleLink);
             }
 
             if (src.image != null)
-                root.addProperty("image_url", src.image.toExternalForm());
+                out.name("image_url").value(src.image);
 
             if (!src.fields.isEmpty())
             {
-                JsonArray fields = new JsonArray();
-                for (AttachmentField field : src.fields) {
-                    fields.add(context.serialize(field));
-                }
-                root.add("fields", fields);
+                out.name("fields");
+                out.beginArray();
+                for (AttachmentField field : src.fields)
+                    fieldAdapter.write(out, field);
+                out.endArray();
             }
 
-            JsonArray formats = new JsonArray();
-            if (src.formatPretext)
-                formats.add(new JsonPrimitive("pretext"));
-            if (src.formatText)
-                formats.add(new JsonPrimitive("text"));
-            if (src.formatFields)
-                formats.add(new JsonPrimitive("fields"));
-
-            if (formats.size() > 0)
-                root.add("mrkdwn_in", formats);
+            if (src.formatPretext || src.formatText || src.formatFields)
+            {
+                out.name("mrkdwn_in");
+                out.beginArray();
+                if (src.formatPretext)
+                    out.value("pretext");
+                if (src.formatText)
+                    out.value("text");
+                if (src.formatFields)
+                    out.value("fields");
+                out.endArray();
+            }
 
-            return root;
+            out.endObject();
         }
 
         @Override
-        public Attachment deserialize( JsonElement json, Type typeOfT, JsonDeserializationContext context ) throws JsonParseException
+        public Attachment read( JsonReader in ) throws IOException
         {
-            JsonObject object = json.getAsJsonObject();
-
-            Attachment attachment = new Attachment(object.get("fallback").getAsString());
-            attachment.color = Utilities.getAsString(object.get("color"));
-            attachment.pretext = Utilities.getAsString(object.get("pretext"));
-            attachment.text = Utilities.getAsString(object.get("text"));
-
-            attachment.authorName = Utilities.getAsString(object.get("author_name"));
-            if (object.has("author_link"))
-                attachment.authorLink = context.deserialize(object.get("author_link"), URL.class);
-            if (object.has("author_icon"))
-                attachment.authorIcon = context.deserialize(object.get("author_link"), URL.class);
-
-            attachment.title = Utilities.getAsString(object.get("title"));
-            if (object.has("title_link"))
-                attachment.titleLink = context.deserialize(object.get("title_link"), URL.class);
+            if (!Utilities.beginObject(in))
+                return null;
 
-            if (object.has("image_url"))
-                attachment.image = context.deserialize(object.get("image_url"), URL.class);
-
-            if (object.has("fields"))
+            Attachment attachment = new Attachment("");
+            while (in.hasNext())
             {
-                JsonArray fields = object.getAsJsonArray("fields");
-                for (JsonElement rawField : fields)
+                switch (in.nextName())
                 {
-                    attachment.addField(context.<AttachmentField>deserialize(rawField, AttachmentField.class));
+                    case "fallback":
+                        attachment.fallback = Utilities.nextString(in);
+                        break;
+                    case "color":
+                        attachment.color = Utilities.nextString(in);
+                        break;
+                    case "pretext":
+                        attachment.pretext = Utilities.nextString(in);
+                        break;
+                    case "text":
+                        attachment.text = Utilities.nextString(in);
+                        break;
+                    case "author_name":
+                        attachment.authorName = Utilities.nextString(in);
+                        break;
+                    case "author_link":
+                        attachment.authorLink = Utilities.nextString(in);
+                        break;
+                    case "author_icon":
+                        attachment.authorIcon = Utilities.nextString(in);
+                        break;
+                    case "title":
+                        attachment.title = Utilities.nextString(in);
+                        break;
+                    case "title_link":
+                        attachment.titleLink = Utilities.nextString(in);
+                        break;
+                    case "image_url":
+                        attachment.image = Utilities.nextString(in);
+                        break;
+                    case "fields":
+                        List<AttachmentField> fields = Utilities.nextList(in, fieldAdapter);
+                        if (fields != null)
+                            attachment.fields.addAll(fields);
+                        break;
+                    default:
+                        in.skipValue();
                 }
             }
+            in.endObject();
+
+            if (attachment.fallback == null)
+                throw new JsonParseException("Attachment is missing fallback");
 
             return attachment;
         }
     }
 
-    private static class AttachmentFieldJsonAdapter implements JsonSerializer<AttachmentField>, JsonDeserializer<AttachmentField>
+    private static class AttachmentFieldJsonAdapter extends TypeAdapter<AttachmentField>
     {
         @Override
-        public AttachmentField deserialize( JsonElement json, Type typeOfT, JsonDeserializationContext context ) throws JsonParseException
+        public AttachmentField read( JsonReader in ) throws IOException
         {
-            JsonObject root = json.getAsJsonObject();
-            return new AttachmentField(root.get("title").getAsString(), root.get("value").getAsString(), Utilities.getAsBoolean(root.get("short"), false));
+            if (!Utilities.beginObject(in))
+                return null;
+
+            String title = null;
+            String value = null;
+            boolean isShort = false;
+            while (in.hasNext())
+            {
+                switch (in.nextName())
+                {
+                    case "title":
+                        title = Utilities.nextString(in);
+                        break;
+                    case "value":
+                        value = Utilities.nextString(in);
+                        break;
+                    case "short":
+                        isShort = Utilities.nextBoolean(in, false);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+
+            if (title == null || value == null)
+                throw new JsonParseException("Attachment field requires a title and value");
+
+            return new AttachmentField(title, value, isShort);
         }
 
         @Override
-        public JsonElement serialize( AttachmentField src, Type typeOfSrc, JsonSerializationContext context )
+        public void write( JsonWriter out, AttachmentField src ) throws IOException
         {
-            JsonObject root = new JsonObject();
-            root.addProperty("title", src.title);
-            root.addProperty("value", src.value);
-            root.addProperty("short", src.isShort);
+            if (src == null)
+            {
+                out.nullValue();
+                return;
+            }
 
-            return root;
+            out.beginObject();
+            out.name("title").value(src.title);
+            out.name("value").value(src.value);
+            out.name("short").value(src.isShort);
+            out.endObject();
         }
 
     }
@@ -1,51 +1,211 @@
 package au.com.addstar.slackapi.objects;
 
 import com.google.gson.*;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
+import java.util.function.Supplier;
 
 /**
  * The Basic object - that support serialization and deserialization via GSON
  *
+ * Objects are read and written as a stream, each member of the json object is passed
+ * to {@link #readField(String, JsonReader, Gson)} as it is read and {@link #save(JsonWriter, Gson)}
+ * writes the members straight to the output. When the object is read from json that has already
+ * been parsed, {@link #keepField(String, JsonObject, Gson)} lets it keep a member of the parsed
+ * tree as it is instead of reading it.
+ *
  * Created for use for the Add5tar MC Minecraft server
  * Created by benjamincharlton on 20/02/2019.
  */
 public abstract class BaseObject {
 
-    protected abstract void load(JsonObject root, JsonDeserializationContext context);
-    
-    
-    public static Object getGsonAdapter()
+    /**
+     * Reads the value of a single member of this objects json
+     * @param name the member name
+     * @param in the reader, positioned at the value
+     * @param gson the gson instance to read nested objects with
+     * @return false if the member is not used, it will then be skipped
+     * @throws IOException if the value cannot be read
+     */
+    protected abstract boolean readField(String name, JsonReader in, Gson gson) throws IOException;
+
+    /**
+     * Offers a member of the parsed json object this object is being read from, so it can keep
+     * the parsed value and decode it later instead of reading it now. The value is not copied,
+     * so the tree must not be changed once it has been decoded.
+     * Only called for the object that is decoded, not for the objects nested in it.
+     * @param name the member name
+     * @param source the parsed json object
+     * @param gson the gson instance to decode the value with later
+     * @return true if the member was kept, it is then skipped instead of read
+     */
+    protected boolean keepField(String name, JsonObject source, Gson gson) {
+        return false;
+    }
+
+    /**
+     * Called once every member has been read
+     */
+    protected void afterLoad() {
+    }
+
+    /**
+     * Writes the members of this object
+     * @param out the writer, inside this objects json object
+     * @param gson the gson instance to write nested objects with
+     * @throws IOException if the members cannot be written
+     */
+    protected abstract void save(JsonWriter out, Gson gson) throws IOException;
+
+    public static void addGsonAdapters(GsonBuilder builder)
+    {
+        builder.registerTypeAdapterFactory(factory(User.class, User::new));
+        builder.registerTypeAdapterFactory(factory(Conversation.class, Conversation::new));
+        builder.registerTypeAdapterFactory(factory(GroupChannel.class, GroupChannel::new));
+        builder.registerTypeAdapterFactory(factory(NormalChannel.class, NormalChannel::new));
+        builder.registerTypeAdapterFactory(factory(DirectChannel.class, DirectChannel::new));
+        builder.registerTypeAdapterFactory(factory(FileObject.class, FileObject::new));
+    }
+
+    /**
+     * Creates a factory for an adapter that streams the exact type given
+     * @param type the type
+     * @param constructor creates empty instances of the type
+     * @param <T> the type
+     * @return the factory to register with gson
+     */
+    protected static <T extends BaseObject> TypeAdapterFactory factory(Class<T> type, Supplier<T> constructor)
+    {
+        return new TypeAdapterFactory() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <R> TypeAdapter<R> create(Gson gson, TypeToken<R> token) {
+                if (token.getRawType() != type)
+                    return null;
+                return (TypeAdapter<R>) new StreamingAdapter<>(gson, constructor);
+            }
+        };
+    }
+
+    /**
+     * Gets an adapter to read a parsed json object with, that offers the members of the object
+     * to {@link #keepField(String, JsonObject, Gson)} if the adapter reads a model object
+     * @param adapter the adapter gson has for the type
+     * @param source the parsed json object that will be read
+     * @param <T> the type to read
+     * @return the adapter to read the source with
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> TypeAdapter<T> treeAdapter(TypeAdapter<T> adapter, JsonObject source)
     {
-        return new ChannelJsonAdapter();
+        if (!(adapter instanceof StreamingAdapter))
+            return adapter;
+        return (TypeAdapter<T>) new TreeAdapter<>((StreamingAdapter<?>) adapter, source);
+    }
+
+    /**
+     * Reads every member of the object the reader is positioned at into this object
+     * @param in the reader
+     * @param gson the gson instance to read nested objects with
+     * @throws IOException if the object cannot be read
+     */
+    protected final void readObject(JsonReader in, Gson gson) throws IOException {
+        in.beginObject();
+        readMembers(in, gson);
+    }
+
+    /**
+     * Reads the remaining members of an object that has already been started
+     */
+    final void readMembers(JsonReader in, Gson gson) throws IOException {
+        readMembers(in, gson, null);
     }
 
-    private static class ChannelJsonAdapter implements JsonDeserializer<BaseObject>
+    /**
+     * Reads the remaining members of an object that has already been started, offering them to
+     * {@link #keepField(String, JsonObject, Gson)} first if the object is parsed json
+     */
+    final void readMembers(JsonReader in, Gson gson, JsonObject source) throws IOException {
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (source != null && keepField(name, source, gson))
+                in.skipValue();
+            else if (!readField(name, in, gson))
+                in.skipValue();
+        }
+        in.endObject();
+        afterLoad();
+    }
+
+    private static class StreamingAdapter<T extends BaseObject> extends TypeAdapter<T>
     {
+        private final Gson gson;
+        private final Supplier<T> constructor;
+
+        StreamingAdapter(Gson gson, Supplier<T> constructor) {
+            this.gson = gson;
+            this.constructor = constructor;
+        }
+
         @Override
-        public BaseObject deserialize(JsonElement element, Type type, JsonDeserializationContext context ) throws JsonParseException
+        public T read(JsonReader in) throws IOException
+        {
+            return read(in, null);
+        }
+
+        T read(JsonReader in, JsonObject source) throws IOException
         {
-            if (!(element instanceof JsonObject))
-                throw new JsonParseException("Expected JSONObject as channel root");
-
-            JsonObject root = (JsonObject)element;
-
-            BaseObject object;
-            if(type.equals(User.class))
-                object = new User();
-            else if(type.equals(Conversation.class))
-                object = new Conversation();
-            else if (type.equals(GroupChannel.class))
-                object = new GroupChannel();
-            else if (type.equals(NormalChannel.class))
-                object = new NormalChannel();
-            else if (type.equals(DirectChannel.class))
-                object = new DirectChannel();
-            else
-                throw new JsonParseException("Cant load unknown channel type");
-
-            object.load(root, context);
+            JsonToken token = in.peek();
+            if (token == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            if (token != JsonToken.BEGIN_OBJECT)
+                throw new JsonParseException("Expected JSONObject as object root");
+
+            T object = constructor.get();
+            in.beginObject();
+            object.readMembers(in, gson, source);
             return object;
         }
+
+        @Override
+        public void write(JsonWriter out, T value) throws IOException
+        {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            value.save(out, gson);
+            out.endObject();
+        }
+    }
+
+    private static class TreeAdapter<T extends BaseObject> extends TypeAdapter<T>
+    {
+        private final StreamingAdapter<T> adapter;
+        private final JsonObject source;
+
+        TreeAdapter(StreamingAdapter<T> adapter, JsonObject source) {
+            this.adapter = adapter;
+            this.source = source;
+        }
+
+        @Override
+        public T read(JsonReader in) throws IOException
+        {
+            return adapter.read(in, source);
+        }
+
+        @Override
+        public void write(JsonWriter out, T value) throws IOException
+        {
+            adapter.write(out, value);
+        }
     }
 }
@@ -1,25 +1,29 @@
 package au.com.addstar.slackapi.objects;
 
 import au.com.addstar.slackapi.internal.Utilities;
+import com.google.gson.Gson;
 import com.google.gson.JsonArray;
-import com.google.gson.JsonDeserializationContext;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import lombok.EqualsAndHashCode;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 
 /**
  * Created by benjamincharlton on 26/08/2018.
  * Conversations replace Channels, IM's and Group IMs
+ *
+ * Conversations are equal when they have the same id.
  */
 @NoArgsConstructor
 @Getter
-@EqualsAndHashCode(callSuper=true)
 public class Conversation extends TimeStampedBaseObject {
 
     private String name;
@@ -33,7 +37,17 @@ public class Conversation extends TimeStampedBaseObject {
     private boolean isPrivate;
     private boolean isMPIM;
     private boolean isIM;
+    /**
+     * The ids of the members, as an unmodifiable list
+     */
+    @Getter(AccessLevel.NONE)
     private List<ObjectID> members;
+    /**
+     * The members of a conversation decoded from a parsed tree are kept as that part of the
+     * tree until they are first asked for
+     */
+    @Getter(AccessLevel.NONE)
+    private transient volatile JsonArray pendingMembers;
     private String topic;
     private ObjectID topicUpdateUserId;
     private long topicUpdateDate;
@@ -48,67 +62,193 @@ public class Conversation extends TimeStampedBaseObject {
     private int num_members;
 
 
+    /**
+     * @return the ids of the members as an unmodifiable list, decoded on the first call for
+     * conversations decoded from a parsed tree
+     */
+    public List<ObjectID> getMembers() {
+        if (pendingMembers != null) {
+            synchronized (this) {
+                if (pendingMembers != null) {
+                    members = ConversationMembers.read(pendingMembers);
+                    pendingMembers = null;
+                }
+            }
+        }
+        return members;
+    }
+
     @Override
-    protected void load(JsonObject root, JsonDeserializationContext context) {
-        super.load(root, context);
-        isIM = Utilities.getAsBoolean(root.get("is_im"),false);
-        members = new ArrayList<>();
-        if(isIM == true){
-            //this message is on a direct channel and as a result it wont have certain params
-            creationUserId = new ObjectID(root.get("user").getAsString());
-            members.add(creationUserId);
+    protected boolean readField(String name, JsonReader in, Gson gson) throws IOException {
+        switch (name) {
+            case "name":
+                this.name = Utilities.nextString(in);
+                return true;
+            case "is_im":
+                isIM = Utilities.nextBoolean(in, false);
+                return true;
+            case "is_channel":
+                isChannel = Utilities.nextBoolean(in, false);
+                return true;
+            case "user":
+                // Direct conversations name the other user instead of a creator
+            case "creator":
+                creationUserId = Utilities.nextObjectID(in);
+                return true;
+            case "is_archived":
+                isArchived = Utilities.nextBoolean(in, false);
+                return true;
+            case "is_general":
+                isGeneral = Utilities.nextBoolean(in, false);
+                return true;
+            case "is_user_deleted":
+                isUserDeleted = Utilities.nextBoolean(in, false);
+                return true;
+            case "members":
+                members = ConversationMembers.read(in);
+                return true;
+            case "topic":
+                readTopic(in, false);
+                return true;
+            case "purpose":
+                readTopic(in, true);
+                return true;
+            case "is_member":
+                isMember = Utilities.nextBoolean(in, false);
+                return true;
+            case "is_shared":
+                isShared = Utilities.nextBoolean(in, false);
+                return true;
+            case "is_private":
+                isPrivate = Utilities.nextBoolean(in, false);
+                return true;
+            case "is_org_shared":
+                isOrgShared = Utilities.nextBoolean(in, false);
+                return true;
+            case "is_mpim":
+                isMPIM = Utilities.nextBoolean(in, false);
+                return true;
+            case "name_normalized":
+                normalized_name = Utilities.nextString(in);
+                return true;
+            case "previous_names":
+                previous_names = Utilities.nextList(in, gson.getAdapter(String.class));
+                return true;
+            case "num_members":
+                num_members = Utilities.nextInt(in);
+                return true;
+            default:
+                return super.readField(name, in, gson);
         }
-        isChannel = Utilities.getAsBoolean(root.get("is_channel"),false);
-        if(isChannel){
-            name = root.get("name").getAsString();
-            creationUserId = new ObjectID(root.get("creator").getAsString());
-            isArchived = Utilities.getAsBoolean(root.get("is_archived"), false);
-            isGeneral = Utilities.getAsBoolean(root.get("is_general"), false);
+    }
+
+    @Override
+    protected boolean keepField(String name, JsonObject source, Gson gson) {
+        if (!"members".equals(name))
+            return false;
+        JsonElement json = source.get(name);
+        if (json.isJsonArray())
+            pendingMembers = json.getAsJsonArray();
+        else if (!json.isJsonNull())
+            throw new JsonParseException("Members could not be decoded");
+        return true;
+    }
+
+    private void readTopic(JsonReader in, boolean isPurpose) throws IOException {
+        if (!Utilities.beginObject(in))
+            return;
+
+        String value = null;
+        long lastSet = 0;
+        ObjectID creator = null;
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "value":
+                    value = Utilities.nextString(in);
+                    break;
+                case "last_set":
+                    lastSet = Utilities.nextTimestamp(in);
+                    break;
+                case "creator":
+                    creator = Utilities.nextObjectID(in);
+                    break;
+                default:
+                    in.skipValue();
+            }
         }
-        if (root.has("members"))
-        {
-            JsonArray memberArray = root.get("members").getAsJsonArray();
-            List<ObjectID> memberList = new ArrayList<ObjectID>(memberArray.size());
-            for (JsonElement member : memberArray)
-                memberList.add(new ObjectID(member.getAsString()));
-            members = memberList;
+        in.endObject();
+
+        if (isPurpose) {
+            purpose = value;
+            purposeUpdateDate = lastSet;
+            purposeUpdateUserId = creator;
+        } else {
+            topic = value;
+            topicUpdateDate = lastSet;
+            topicUpdateUserId = creator;
         }
-        if (root.has("topic"))
-        {
-            JsonObject topic = root.get("topic").getAsJsonObject();
-            this.topic = topic.get("value").getAsString();
-            topicUpdateDate = Utilities.getAsTimestamp(topic.get("last_set"));
-            topicUpdateUserId = new ObjectID(topic.get("creator").getAsString());
+    }
+
+    @Override
+    protected void save(JsonWriter out, Gson gson) throws IOException {
+        super.save(out, gson);
+        out.name("name").value(name);
+        out.name("is_im").value(isIM);
+        out.name("is_channel").value(isChannel);
+        Utilities.writeObjectID(out, isIM ? "user" : "creator", creationUserId);
+        out.name("is_archived").value(isArchived);
+        out.name("is_general").value(isGeneral);
+        out.name("is_user_deleted").value(isUserDeleted);
+        out.name("is_member").value(isMember);
+        out.name("is_shared").value(isShared);
+        out.name("is_private").value(isPrivate);
+        out.name("is_org_shared").value(isOrgShared);
+        out.name("is_mpim").value(isMPIM);
+        out.name("name_normalized").value(normalized_name);
+        out.name("num_members").value(num_members);
+        writeTopic(out, "topic", topic, topicUpdateDate, topicUpdateUserId);
+        writeTopic(out, "purpose", purpose, purposeUpdateDate, purposeUpdateUserId);
+
+        JsonArray pending = pendingMembers;
+        if (pending != null) {
+            out.name("members");
+            gson.getAdapter(JsonArray.class).write(out, pending);
+        } else if (members != null) {
+            out.name("members").beginArray();
+            for (ObjectID member : members)
+                out.value(member.toString());
+            out.endArray();
         }
 
-        if (root.has("purpose"))
-        {
-            JsonObject purpose = root.get("purpose").getAsJsonObject();
-            this.purpose = purpose.get("value").getAsString();
-            purposeUpdateDate = Utilities.getAsTimestamp(purpose.get("last_set"));
-            purposeUpdateUserId = new ObjectID(purpose.get("creator").getAsString());
+        if (previous_names != null) {
+            out.name("previous_names").beginArray();
+            for (String previous : previous_names)
+                out.value(previous);
+            out.endArray();
         }
-        isMember = Utilities.getAsBoolean(root.get("is_member"),false);
-        isShared = Utilities.getAsBoolean(root.get("is_shared"),false);
-        isPrivate = Utilities.getAsBoolean(root.get("is_private"),false);
-        isPrivate = Utilities.getAsBoolean(root.get("is_private"),false);
-        isOrgShared = Utilities.getAsBoolean(root.get("is_org_shared"),false);
-        isMPIM = Utilities.getAsBoolean(root.get("is_mpim"),false);
-        if(root.has("name_normalized")){
-            normalized_name = root.get("name_normalized").getAsString();
+    }
+
+    private void writeTopic(JsonWriter out, String name, String value, long lastSet, ObjectID creator) throws IOException {
+        if (value == null)
+            return;
+        out.name(name).beginObject();
+        out.name("value").value(value);
+        Utilities.writeTimestamp(out, "last_set", lastSet);
+        Utilities.writeObjectID(out, "creator", creator);
+        out.endObject();
+    }
+
+    @Override
+    protected void afterLoad() {
+        super.afterLoad();
+        if (members == null && pendingMembers == null) {
+            //direct conversations only list the other user
+            if (isIM && creationUserId != null)
+                members = ConversationMembers.of(creationUserId);
+            else
+                members = ConversationMembers.EMPTY;
         }
-        if(root.has("previous_names")){
-            JsonArray array = root.getAsJsonArray("previous_names");
-            List<String> names = new ArrayList<>(array.size());
-            for(JsonElement object: array){
-                names.add(object.getAsString());
-            }
-            previous_names = names;
-        }else{
+        if (previous_names == null)
             previous_names = Collections.emptyList();
-        }
-        if(root.has("num_member")){
-            num_members = root.get("num_members").getAsInt();
-        }
     }
 }
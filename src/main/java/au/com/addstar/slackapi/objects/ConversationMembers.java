@@ -0,0 +1,112 @@
+package au.com.addstar.slackapi.objects;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+import au.com.addstar.slackapi.internal.Utilities;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * The members of a conversation.
+ * <p>
+ * Members are held in a plain array of the shared {@link ObjectID} instances, so a large
+ * channel costs one reference per member. The list cannot be modified.
+ */
+public final class ConversationMembers extends AbstractList<ObjectID> implements RandomAccess
+{
+    static final ConversationMembers EMPTY = new ConversationMembers(new ObjectID[0]);
+
+    private final ObjectID[] ids;
+
+    private ConversationMembers(ObjectID[] ids)
+    {
+        this.ids = ids;
+    }
+
+    static ConversationMembers of(ObjectID... ids)
+    {
+        return ids.length == 0 ? EMPTY : new ConversationMembers(ids.clone());
+    }
+
+    /**
+     * Reads a json array of member ids
+     * @param in the reader, positioned at the array
+     * @return the members
+     * @throws IOException if the array cannot be read
+     * @throws JsonParseException if the json is not an array of ids
+     */
+    static ConversationMembers read(JsonReader in) throws IOException
+    {
+        if (in.peek() == JsonToken.NULL)
+        {
+            in.nextNull();
+            return EMPTY;
+        }
+        try
+        {
+            ObjectID[] ids = new ObjectID[16];
+            int count = 0;
+            in.beginArray();
+            while (in.hasNext())
+            {
+                ObjectID id = Utilities.nextObjectID(in);
+                if (id == null)
+                    continue;
+                if (count == ids.length)
+                    ids = Arrays.copyOf(ids, count * 2);
+                ids[count++] = id;
+            }
+            in.endArray();
+            return count == 0 ? EMPTY : new ConversationMembers(Arrays.copyOf(ids, count));
+        }
+        catch (IllegalStateException e)
+        {
+            throw new JsonParseException("Members could not be decoded", e);
+        }
+    }
+
+    /**
+     * Decodes a parsed json array of member ids
+     * @param json the array
+     * @return the members
+     * @throws JsonParseException if the json is not an array of ids
+     */
+    static ConversationMembers read(JsonArray json)
+    {
+        try
+        {
+            ObjectID[] ids = new ObjectID[json.size()];
+            int count = 0;
+            for (JsonElement element : json)
+            {
+                if (!element.isJsonNull())
+                    ids[count++] = ObjectID.of(element.getAsString());
+            }
+            if (count == 0)
+                return EMPTY;
+            return new ConversationMembers(count == ids.length ? ids : Arrays.copyOf(ids, count));
+        }
+        catch (IllegalStateException | UnsupportedOperationException e)
+        {
+            throw new JsonParseException("Members could not be decoded", e);
+        }
+    }
+
+    @Override
+    public ObjectID get(int index)
+    {
+        return ids[index];
+    }
+
+    @Override
+    public int size()
+    {
+        return ids.length;
+    }
+}
@@ -1,41 +1,70 @@
 package au.com.addstar.slackapi.objects;
 
-import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import au.com.addstar.slackapi.internal.Utilities;
 
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonObject;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
 @Deprecated
 @NoArgsConstructor
 @Getter
-@EqualsAndHashCode(callSuper=true)
 public class DirectChannel extends TimeStampedBaseObject
 {
     private ObjectID userId;
     private boolean isUserDeleted;
 
     // Optional params
-    private boolean isOpen;
+    private boolean isOpen = true;
     private long lastRead;
     private int unreadCount;
     private Message latest;
 
     @Override
-    protected void load( JsonObject object, JsonDeserializationContext context )
+    protected boolean readField( String name, JsonReader in, Gson gson ) throws IOException
     {
-        super.load(object, context);
-
-        userId = new ObjectID(object.get("user").getAsString());
-        isUserDeleted = Utilities.getAsBoolean(object.get("is_user_deleted"), false);
+        switch (name)
+        {
+            case "user":
+                userId = Utilities.nextObjectID(in);
+                return true;
+            case "is_user_deleted":
+                isUserDeleted = Utilities.nextBoolean(in, false);
+                return true;
+            case "is_open":
+                isOpen = Utilities.nextBoolean(in, true);
+                return true;
+            case "last_read":
+                lastRead = Utilities.nextTimestamp(in);
+                return true;
+            case "unread_count":
+                unreadCount = Utilities.nextInt(in);
+                return true;
+            case "latest":
+                latest = gson.getAdapter(Message.class).read(in);
+                return true;
+            default:
+                return super.readField(name, in, gson);
+        }
+    }
 
-        isOpen = Utilities.getAsBoolean(object.get("is_open"), true);
-        if (object.has("last_read"))
+    @Override
+    protected void save( JsonWriter out, Gson gson ) throws IOException
+    {
+        super.save(out, gson);
+        Utilities.writeObjectID(out, "user", userId);
+        out.name("is_user_deleted").value(isUserDeleted);
+        out.name("is_open").value(isOpen);
+        Utilities.writeTimestamp(out, "last_read", lastRead);
+        out.name("unread_count").value(unreadCount);
+        if (latest != null)
         {
-            lastRead = Utilities.getAsTimestamp(object.get("last_read"));
-            unreadCount = Utilities.getAsInt(object.get("unread_count"));
-            latest = context.deserialize(object.get("latest"), Message.class);
+            out.name("latest");
+            gson.getAdapter(Message.class).write(out, latest);
         }
     }
 }
@@ -1,8 +1,21 @@
 package au.com.addstar.slackapi.objects;
 
+import au.com.addstar.slackapi.internal.Utilities;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+import java.net.URI;
+
 /**
  * Created by benjamincharlton on 26/08/2018.
  */
+@NoArgsConstructor
+@Getter
 public class FileObject extends TimeStampedBaseObject {
     private String name;
     private String title;
@@ -18,7 +31,112 @@ public class FileObject extends TimeStampedBaseObject {
     private boolean publicUrlShared;
     private boolean displayAsBot;
 
-    enum Mode {
+    // Kept as text, URL would resolve the host when hashed or compared
+    @Getter(AccessLevel.NONE)
+    private String urlPrivate;
+    @Getter(AccessLevel.NONE)
+    private String urlPrivateDownload;
+    @Getter(AccessLevel.NONE)
+    private String permalink;
+
+    /**
+     * @return the link to the contents of the file, it needs the token to download
+     */
+    public URI getUrlPrivate() {
+        return Utilities.toURI(urlPrivate);
+    }
+
+    /**
+     * @return the link to download the contents of the file, it needs the token to download
+     */
+    public URI getUrlPrivateDownload() {
+        return Utilities.toURI(urlPrivateDownload);
+    }
+
+    public URI getPermalink() {
+        return Utilities.toURI(permalink);
+    }
+
+    @Override
+    protected boolean readField(String name, JsonReader in, Gson gson) throws IOException {
+        switch (name) {
+            case "name":
+                this.name = Utilities.nextString(in);
+                return true;
+            case "title":
+                title = Utilities.nextString(in);
+                return true;
+            case "mimetype":
+                mimeType = Utilities.nextString(in);
+                return true;
+            case "filetype":
+                fileType = Utilities.nextString(in);
+                return true;
+            case "pretty_type":
+                prettyType = Utilities.nextString(in);
+                return true;
+            case "user":
+                user = Utilities.nextObjectID(in);
+                return true;
+            case "editable":
+                editable = Utilities.nextBoolean(in, false);
+                return true;
+            case "size":
+                String rawSize = Utilities.nextString(in);
+                size = rawSize == null ? 0 : Long.parseLong(rawSize);
+                return true;
+            case "mode":
+                mode = Mode.fromValue(Utilities.nextString(in));
+                return true;
+            case "is_external":
+                isExternal = Utilities.nextBoolean(in, false);
+                return true;
+            case "is_public":
+                isPublic = Utilities.nextBoolean(in, false);
+                return true;
+            case "public_url_shared":
+                publicUrlShared = Utilities.nextBoolean(in, false);
+                return true;
+            case "display_as_bot":
+                displayAsBot = Utilities.nextBoolean(in, false);
+                return true;
+            case "url_private":
+                urlPrivate = Utilities.nextString(in);
+                return true;
+            case "url_private_download":
+                urlPrivateDownload = Utilities.nextString(in);
+                return true;
+            case "permalink":
+                permalink = Utilities.nextString(in);
+                return true;
+            default:
+                return super.readField(name, in, gson);
+        }
+    }
+
+    @Override
+    protected void save(JsonWriter out, Gson gson) throws IOException {
+        super.save(out, gson);
+        out.name("name").value(name);
+        out.name("title").value(title);
+        out.name("mimetype").value(mimeType);
+        out.name("filetype").value(fileType);
+        out.name("pretty_type").value(prettyType);
+        Utilities.writeObjectID(out, "user", user);
+        out.name("editable").value(editable);
+        out.name("size").value(size);
+        if (mode != null)
+            out.name("mode").value(mode.getMode());
+        out.name("is_external").value(isExternal);
+        out.name("is_public").value(isPublic);
+        out.name("public_url_shared").value(publicUrlShared);
+        out.name("display_as_bot").value(displayAsBot);
+        out.name("url_private").value(urlPrivate);
+        out.name("url_private_download").value(urlPrivateDownload);
+        out.name("permalink").value(permalink);
+    }
+
+    public enum Mode {
 
         HOSTED("hosted"),
         EXTERNAL("external"),
@@ -32,5 +150,17 @@ public class FileObject extends TimeStampedBaseObject {
         public String getMode(){
             return mode;
         }
+
+        /**
+         * @param value the mode as slack writes it
+         * @return the mode, or null if it is not known
+         */
+        public static Mode fromValue(String value) {
+            for (Mode mode : values()) {
+                if (mode.mode.equals(value))
+                    return mode;
+            }
+            return null;
+        }
     }
 }
@@ -5,25 +5,39 @@ import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonObject;
+import au.com.addstar.slackapi.internal.Utilities;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.NoArgsConstructor;
 
+import java.io.IOException;
+
 /**
- * An object that contains a unique identifier
+ * An object that contains a unique identifier.
+ * Objects are equal when their ids are, unless a subclass says otherwise.
  */
 @Getter
 @NoArgsConstructor(access= AccessLevel.PACKAGE)
-@EqualsAndHashCode(callSuper=true)
+@EqualsAndHashCode(callSuper=false, onlyExplicitlyIncluded=true)
 public abstract class IdBaseObject extends BaseObject
 {
+    @EqualsAndHashCode.Include
     private ObjectID id;
 
-    protected void load(JsonObject root, JsonDeserializationContext context)
+    @Override
+    protected boolean readField(String name, JsonReader in, Gson gson) throws IOException
     {
-        id = new ObjectID(root.get("id").getAsString());
+        if ("id".equals(name)) {
+            id = Utilities.nextObjectID(in);
+            return true;
+        }
+        return false;
     }
 
-
-
+    @Override
+    protected void save(JsonWriter out, Gson gson) throws IOException
+    {
+        Utilities.writeObjectID(out, "id", id);
+    }
 }
@@ -1,22 +1,22 @@
 package au.com.addstar.slackapi.objects;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 import au.com.addstar.slackapi.internal.Utilities;
 
 import au.com.addstar.slackapi.objects.blocks.Block;
-import com.google.common.collect.Lists;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
+import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParseException;
-import com.google.gson.JsonSerializationContext;
-import com.google.gson.JsonSerializer;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
-import com.google.gson.annotations.SerializedName;
 import lombok.*;
 
 /**
@@ -30,6 +30,9 @@ import lombok.*;
 @AllArgsConstructor
 public class Message extends IdBaseObject
 {
+    private static final Type BLOCK_LIST = new TypeToken<List<Block>>() {}.getType();
+    private static final Type ATTACHMENT_LIST = new TypeToken<List<Attachment>>() {}.getType();
+
     /**
      * The user object
      */
@@ -44,19 +47,16 @@ public class Message extends IdBaseObject
      * The conversion that represents the source or destination of the message. - generally a conversation (which could be private or public
      */
     private ObjectID conversationID;
-    /**
-     * When the message was created
-     */
-    private long timestamp;
     /**
      * When the message was posted to the thread/conversation
      */
     @Setter
     private String thread_ts;
     /**
-     * String representation of the timestamp
+     * When the message was created, this is also its id within the conversation
      */
-    private String ts;
+    @Getter(AccessLevel.NONE)
+    private SlackTimestamp ts;
     /**
      * The MessageType
      */
@@ -79,13 +79,17 @@ public class Message extends IdBaseObject
      * @Deprecated use {@code Message#blocks}
      */
     @Deprecated
-    @Setter
     private List<Attachment> attachments;
     /**
      * A list of blocks to send
      */
-    @Setter
     private List<Block> blocks;
+    /**
+     * Blocks and attachments of a message decoded from a parsed tree are kept as that part of
+     * the tree until they are first asked for
+     */
+    @Getter(AccessLevel.NONE)
+    private final transient Deferred deferred = new Deferred();
 
     public Message(){
         this.subtype = MessageType.Normal;
@@ -100,93 +104,232 @@ public class Message extends IdBaseObject
         this.as_user = false;
     }
 
-    public static Object getGsonAdapter()
+    public static TypeAdapterFactory getGsonAdapter()
+    {
+        return factory(Message.class, Message::new);
+    }
+    /**
+     * @return when the message was created, this is also its id within the conversation
+     */
+    public SlackTimestamp getSlackTimestamp()
+    {
+        return ts;
+    }
+
+    /**
+     * @return the ts of the message as slack writes it eg. 1561412399.000200
+     */
+    public String getTs()
+    {
+        return ts == null ? null : ts.toString();
+    }
+
+    /**
+     * @return when the message was created in milliseconds since the epoch
+     */
+    public long getTimestamp()
     {
-        return new MessageJsonAdapter();
+        return ts == null ? 0 : ts.toMillis();
     }
+
     public void addBlock(Block block){
+        if (getBlocks() == null)
+            blocks = new ArrayList<>();
         blocks.add(block);
     }
+
+    /**
+     * @return the blocks of the message, decoded on the first call for received messages
+     */
+    public List<Block> getBlocks()
+    {
+        if (deferred.blocks != null)
+        {
+            synchronized (deferred)
+            {
+                if (deferred.blocks != null)
+                {
+                    blocks = deferred.decode(deferred.blocks, BLOCK_LIST);
+                    // Blocks of types that are not registered are skipped
+                    blocks.removeIf(Objects::isNull);
+                    deferred.blocks = null;
+                }
+            }
+        }
+        return blocks;
+    }
+
+    public void setBlocks(List<Block> blocks)
+    {
+        synchronized (deferred)
+        {
+            deferred.blocks = null;
+            this.blocks = blocks;
+        }
+    }
+
+    /**
+     * @return the attachments of the message, decoded on the first call for received messages
+     * @deprecated use {@link #getBlocks()}
+     */
+    @Deprecated
+    public List<Attachment> getAttachments()
+    {
+        if (deferred.attachments != null)
+        {
+            synchronized (deferred)
+            {
+                if (deferred.attachments != null)
+                {
+                    attachments = deferred.decode(deferred.attachments, ATTACHMENT_LIST);
+                    deferred.attachments = null;
+                }
+            }
+        }
+        return attachments;
+    }
+
+    @Deprecated
+    public void setAttachments(List<Attachment> attachments)
+    {
+        synchronized (deferred)
+        {
+            deferred.attachments = null;
+            this.attachments = attachments;
+        }
+    }
     @Override
     public String toString()
     {
         return String.format("%s: '%s' from %s", subtype, text, userId);
     }
 
-    private static class MessageJsonAdapter implements JsonDeserializer<Message>, JsonSerializer<Message>
+    @Override
+    protected boolean readField(String name, JsonReader in, Gson gson) throws IOException
     {
-        @Override
-        public Message deserialize( JsonElement element, Type typeOfT, JsonDeserializationContext context ) throws JsonParseException
+        switch (name)
         {
-            if (!(element instanceof JsonObject))
-                throw new JsonParseException("Expected JSONObject as message root");
-
-            JsonObject root = (JsonObject)element;
+            case "user":
+                userId = Utilities.nextObjectID(in);
+                return true;
+            case "text":
+                text = Utilities.nextString(in);
+                return true;
+            case "thread_ts":
+                thread_ts = Utilities.nextString(in);
+                return true;
+            case "ts":
+                ts = Utilities.nextSlackTimestamp(in);
+                return true;
+            case "as_user":
+                as_user = Utilities.nextBoolean(in, true);
+                return true;
+            case "channel":
+                conversationID = Utilities.nextObjectID(in);
+                return true;
+            case "edited":
+                readEdited(in);
+                return true;
+            case "subtype":
+                subtype = MessageType.fromId(Utilities.nextString(in));
+                return true;
+            case "attachments":
+                attachments = Utilities.nextList(in, gson.getAdapter(Attachment.class));
+                return true;
+            case "blocks":
+                blocks = Block.TYPES.readList(in, gson);
+                return true;
+            default:
+                return super.readField(name, in, gson);
+        }
+    }
 
-            Message message = new Message();
-            if (root.has("user"))
-                message.userId = new ObjectID(root.get("user").getAsString());
+    @Override
+    protected boolean keepField(String name, JsonObject source, Gson gson)
+    {
+        switch (name)
+        {
+            case "attachments":
+                deferred.gson = gson;
+                deferred.attachments = Deferred.tree(source.get(name));
+                return true;
+            case "blocks":
+                deferred.gson = gson;
+                deferred.blocks = Deferred.tree(source.get(name));
+                return true;
+            default:
+                return false;
+        }
+    }
 
-            message.text = Utilities.getAsString(root.get("text"));
-            message.thread_ts = Utilities.getAsString(root.get("thread_ts"));
-            message.ts = Utilities.getAsString(root.get("ts"));
-            message.as_user = Utilities.getAsBoolean(root.get("as_user"),true);
-            message.timestamp = Utilities.getAsTimestamp(root.get("ts"));
-            if (root.has("channel"))
-                message.conversationID = new ObjectID(root.get("channel").getAsString());
+    private void readEdited(JsonReader in) throws IOException
+    {
+        if (!Utilities.beginObject(in))
+            return;
 
-            if (root.has("edited"))
+        while (in.hasNext())
+        {
+            switch (in.nextName())
             {
-                JsonObject edited = root.getAsJsonObject("edited");
-                message.editUserId = new ObjectID(edited.get("user").getAsString());
-                message.editTimestamp = Utilities.getAsTimestamp(edited.get("ts"));
+                case "user":
+                    editUserId = Utilities.nextObjectID(in);
+                    break;
+                case "ts":
+                    editTimestamp = Utilities.nextTimestamp(in);
+                    break;
+                default:
+                    in.skipValue();
             }
+        }
+        in.endObject();
+    }
 
-            message.subtype = MessageType.fromId(Utilities.getAsString(root.get("subtype")));
+    @Override
+    protected void save(JsonWriter out, Gson gson) throws IOException
+    {
+        out.name("type").value("message");
+        if (conversationID != null)
+            out.name("channel").value(conversationID.toString());
+        if (text != null)
+            out.name("text").value(text);
+        if (thread_ts != null)
+            out.name("thread_ts").value(thread_ts);
+        out.name("as_user").value(as_user);
+        if (userId != null)
+            out.name("user").value(userId.toString());
+        if (!deferred.write(out, "attachments", deferred.attachments, gson))
+            Utilities.writeList(out, "attachments", getAttachments(), gson);
+        if (!deferred.write(out, "blocks", deferred.blocks, gson))
+            Utilities.writeList(out, "blocks", getBlocks(), gson);
+    }
 
-            if (root.has("attachments"))
-            {
-                message.attachments = Lists.newArrayList();
-                JsonArray attachments = root.getAsJsonArray("attachments");
-                for (JsonElement rawAttachment : attachments)
-                    message.attachments.add(context.<Attachment>deserialize(rawAttachment, Attachment.class));
-            }
-            if (root.has("blocks"))
-            {
-                message.blocks = Lists.newArrayList();
-                JsonArray blocks = root.getAsJsonArray("blocks");
-                for (JsonElement rawBlock : blocks)
-                    message.blocks.add(context.<Block>deserialize(rawBlock, Block.class));
-            }
-            return message;
+    private static final class Deferred
+    {
+        private volatile JsonElement blocks;
+        private volatile JsonElement attachments;
+        private Gson gson;
+
+        private static JsonElement tree(JsonElement json)
+        {
+            return json.isJsonNull() ? null : json;
         }
 
-        @Override
-        public JsonElement serialize( Message src, Type typeOfSrc, JsonSerializationContext context )
+        private <T> T decode(JsonElement json, Type type)
         {
-            JsonObject object = new JsonObject();
-            object.addProperty("type", "message");
-            object.addProperty("channel", src.conversationID.toString());
-            object.addProperty("text", src.text);
-            object.addProperty("thread_ts",src.thread_ts);
-            object.addProperty("as_user",src.as_user);
-            if (src.userId != null)
-                object.addProperty("user", src.userId.toString());
-            if (src.attachments != null)
-            {
-                JsonArray attachments = new JsonArray();
-                for (Attachment attachment : src.attachments)
-                    attachments.add(context.serialize(attachment));
-                object.add("attachments", attachments);
-            }
-            if(src.blocks != null){
-                JsonArray blocks = new JsonArray();
-                for(Block block:src.blocks){
-                    blocks.add(context.serialize(block));
-                }
-                object.add("blocks",blocks);
-            }
-            return object;
+            return gson.fromJson(json, type);
+        }
+
+        /**
+         * Writes a tree that has not been decoded yet as it was received
+         * @return false if there was no tree to write
+         */
+        private boolean write(JsonWriter out, String name, JsonElement json, Gson gson) throws IOException
+        {
+            if (json == null)
+                return false;
+            out.name(name);
+            gson.getAdapter(JsonElement.class).write(out, json);
+            return true;
         }
     }
 
@@ -1,16 +1,18 @@
 package au.com.addstar.slackapi.objects;
 
-import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import au.com.addstar.slackapi.internal.Utilities;
 
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonObject;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
 @Deprecated
 @NoArgsConstructor
 @Getter
-@EqualsAndHashCode(callSuper=true)
 public class NormalChannel extends Conversation
 {
     // Member only values
@@ -21,16 +23,38 @@ public class NormalChannel extends Conversation
     private Message latest;
 
     @Override
-    protected void load( JsonObject root, JsonDeserializationContext context )
+    protected boolean readField( String name, JsonReader in, Gson gson ) throws IOException
     {
-        super.load(root, context);
+        switch (name)
+        {
+            case "last_read":
+                lastRead = Utilities.nextTimestamp(in);
+                return true;
+            case "latest":
+                latest = gson.getAdapter(Message.class).read(in);
+                return true;
+            case "unread_count":
+                unreadCount = Utilities.nextInt(in);
+                return true;
+            case "unread_count_display":
+                unreadCountDisplay = Utilities.nextInt(in);
+                return true;
+            default:
+                return super.readField(name, in, gson);
+        }
+    }
 
-        if (super.isMember() && root.has("last_read"))
+    @Override
+    protected void save( JsonWriter out, Gson gson ) throws IOException
+    {
+        super.save(out, gson);
+        Utilities.writeTimestamp(out, "last_read", lastRead);
+        out.name("unread_count").value(unreadCount);
+        out.name("unread_count_display").value(unreadCountDisplay);
+        if (latest != null)
         {
-            lastRead = Utilities.getAsTimestamp(root.get("last_read"));
-            latest = context.deserialize(root.get("latest"), Message.class);
-            unreadCount = root.get("unread_count").getAsInt();
-            unreadCountDisplay = root.get("unread_count_display").getAsInt();
+            out.name("latest");
+            gson.getAdapter(Message.class).write(out, latest);
         }
     }
 }
@@ -1,44 +1,162 @@
 package au.com.addstar.slackapi.objects;
 
-import lombok.EqualsAndHashCode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
+/**
+ * The id of a slack object such as a user or conversation.
+ * <p>
+ * Use {@link #of(String)} to get an instance, ids are interned so the same id is
+ * normally the same instance. Ids with a body of up to 11 upper case alphanumeric
+ * characters, which covers the ids slack issues, are also packed into a single long
+ * that holds the type, the body length and the base 36 body, making equality and
+ * hashing primitive operations.
+ */
 @Getter
-@EqualsAndHashCode
 public class ObjectID
 {
-    private ObjectType type;
-    private String id;
+    private static final long NOT_COMPACT = -1L;
+    private static final int MAX_COMPACT_LENGTH = 11;
+    private static final int LENGTH_SHIFT = 57;
+    private static final int TYPE_SHIFT = 61;
 
+    private static final ObjectType[] CLASSIFIERS = new ObjectType[128];
+    private static final Cache<String, ObjectID> CACHE = CacheBuilder.newBuilder()
+            .weakValues()
+            .build();
+
+    static
+    {
+        for (ObjectType type : ObjectType.values())
+        {
+            if (type != ObjectType.Unknown)
+                CLASSIFIERS[type.getClassifier()] = type;
+        }
+    }
+
+    private final ObjectType type;
+    private final String id;
+    @Getter(AccessLevel.NONE)
+    private final String full;
+    @Getter(AccessLevel.NONE)
+    private final long packed;
+
+    /**
+     * @param full the full id including the type classifier eg. U024BE7LH
+     * @deprecated use {@link #of(String)} which returns a shared instance
+     */
+    @Deprecated
     public ObjectID(String full)
     {
         if (full.isEmpty())
         {
-            id = "";
-            type = ObjectType.Unknown;
+            this.id = "";
+            this.full = "";
+            this.type = ObjectType.Unknown;
+            this.packed = NOT_COMPACT;
             return;
         }
 
         char classifier = Character.toUpperCase(full.charAt(0));
-        this.type = ObjectType.Unknown;
+        ObjectType type = classifier < CLASSIFIERS.length ? CLASSIFIERS[classifier] : null;
+        this.id = full.substring(1);
+        if (type == null)
+        {
+            // Keep the original text so unknown ids still round trip
+            this.type = ObjectType.Unknown;
+            this.full = full;
+            this.packed = NOT_COMPACT;
+        }
+        else
+        {
+            this.type = type;
+            this.full = classifier == full.charAt(0) ? full : classifier + id;
+            this.packed = pack(type, id);
+        }
+    }
 
-        for (ObjectType type : ObjectType.values())
+    /**
+     * Gets the id for the given string
+     *
+     * @param full the full id including the type classifier eg. U024BE7LH
+     * @return the shared ObjectID
+     */
+    public static ObjectID of(String full)
+    {
+        // Atomic so racing threads still share one instance
+        return CACHE.asMap().computeIfAbsent(full, ObjectID::new);
+    }
+
+    private static long pack(ObjectType type, String body)
+    {
+        int length = body.length();
+        if (length == 0 || length > MAX_COMPACT_LENGTH)
+            return NOT_COMPACT;
+
+        long value = 0;
+        for (int i = 0; i < length; ++i)
         {
-            if (type.getClassifier() == classifier)
-            {
-                this.type = type;
-                break;
-            }
+            char c = body.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9')
+                digit = c - '0';
+            else if (c >= 'A' && c <= 'Z')
+                digit = c - 'A' + 10;
+            else
+                return NOT_COMPACT;
+            value = value * 36 + digit;
         }
+        return ((long) type.ordinal() << TYPE_SHIFT) | ((long) length << LENGTH_SHIFT) | value;
+    }
+
+    /**
+     * @return true if this id is packed into a long
+     */
+    public boolean isCompact()
+    {
+        return packed != NOT_COMPACT;
+    }
+
+    /**
+     * @return the packed form of this id
+     * @throws IllegalStateException if the id is not compact
+     */
+    public long getPacked()
+    {
+        if (packed == NOT_COMPACT)
+            throw new IllegalStateException("ObjectID " + full + " is not compact");
+        return packed;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+            return true;
+        if (!(o instanceof ObjectID))
+            return false;
 
-        id = full.substring(1);
+        ObjectID other = (ObjectID) o;
+        if (packed != NOT_COMPACT || other.packed != NOT_COMPACT)
+            return packed == other.packed;
+        return full.equals(other.full);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        if (packed != NOT_COMPACT)
+            return Long.hashCode(packed);
+        return full.hashCode();
     }
 
     @Override
     public String toString()
     {
-        return String.format("%s%s", type.getClassifier(), id);
+        return full;
     }
 
     @Getter
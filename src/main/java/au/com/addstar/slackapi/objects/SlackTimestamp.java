@@ -0,0 +1,175 @@
+package au.com.addstar.slackapi.objects;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A slack message timestamp such as "1561412399.000200".
+ * <p>
+ * Slack uses the ts of a message as its id within a conversation, so it is kept exactly as
+ * the number of microseconds since the epoch. Timestamps are totally ordered and
+ * {@link #toString()} gives back the form slack expects for chat.update and chat.delete.
+ */
+public final class SlackTimestamp implements Comparable<SlackTimestamp>
+{
+    private static final int FRACTION_DIGITS = 6;
+    private static final long MICROS_PER_SECOND = 1_000_000L;
+
+    private final long micros;
+
+    private SlackTimestamp(long micros)
+    {
+        this.micros = micros;
+    }
+
+    /**
+     * @param micros microseconds since the epoch
+     * @return the timestamp
+     */
+    public static SlackTimestamp ofMicros(long micros)
+    {
+        if (micros < 0)
+            throw new IllegalArgumentException("Timestamps cannot be before the epoch");
+        return new SlackTimestamp(micros);
+    }
+
+    /**
+     * @param millis milliseconds since the epoch
+     * @return the timestamp
+     */
+    public static SlackTimestamp ofMillis(long millis)
+    {
+        return ofMicros(TimeUnit.MILLISECONDS.toMicros(millis));
+    }
+
+    /**
+     * Parses a timestamp
+     * @param ts the timestamp as slack writes it, seconds with up to 6 fraction digits
+     * @return the timestamp
+     * @throws NumberFormatException if the text is not a timestamp
+     */
+    public static SlackTimestamp parse(CharSequence ts)
+    {
+        return new SlackTimestamp(parseMicros(ts));
+    }
+
+    /**
+     * Parses a timestamp without creating any objects
+     * @param ts the timestamp as slack writes it, seconds with up to 6 fraction digits
+     * @return the timestamp in microseconds since the epoch
+     * @throws NumberFormatException if the text is not a timestamp
+     */
+    public static long parseMicros(CharSequence ts)
+    {
+        int length = ts.length();
+        int i = 0;
+        long seconds = 0;
+        for (; i < length; ++i)
+        {
+            char c = ts.charAt(i);
+            if (c == '.')
+                break;
+            if (c < '0' || c > '9' || i >= 12)
+                throw new NumberFormatException("Invalid timestamp: " + ts);
+            seconds = seconds * 10 + (c - '0');
+        }
+        if (i == 0)
+            throw new NumberFormatException("Invalid timestamp: " + ts);
+
+        long fraction = 0;
+        int digits = 0;
+        if (i < length)
+        {
+            for (++i; i < length; ++i, ++digits)
+            {
+                char c = ts.charAt(i);
+                if (c < '0' || c > '9' || digits == FRACTION_DIGITS)
+                    throw new NumberFormatException("Invalid timestamp: " + ts);
+                fraction = fraction * 10 + (c - '0');
+            }
+        }
+        for (; digits < FRACTION_DIGITS; ++digits)
+            fraction *= 10;
+
+        return seconds * MICROS_PER_SECOND + fraction;
+    }
+
+    /**
+     * @return microseconds since the epoch
+     */
+    public long toMicros()
+    {
+        return micros;
+    }
+
+    /**
+     * @return milliseconds since the epoch, truncated
+     */
+    public long toMillis()
+    {
+        return TimeUnit.MICROSECONDS.toMillis(micros);
+    }
+
+    public boolean isBefore(SlackTimestamp other)
+    {
+        return micros < other.micros;
+    }
+
+    public boolean isAfter(SlackTimestamp other)
+    {
+        return micros > other.micros;
+    }
+
+    /**
+     * Checks if this falls within a history window
+     * @param oldest the start of the window, inclusive. null for no start
+     * @param latest the end of the window, inclusive. null for no end
+     * @return true if this is within the window
+     */
+    public boolean isBetween(SlackTimestamp oldest, SlackTimestamp latest)
+    {
+        return (oldest == null || micros >= oldest.micros) && (latest == null || micros <= latest.micros);
+    }
+
+    @Override
+    public int compareTo(SlackTimestamp other)
+    {
+        return Long.compare(micros, other.micros);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        return o instanceof SlackTimestamp && ((SlackTimestamp) o).micros == micros;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode(micros);
+    }
+
+    /**
+     * @return the timestamp as slack writes it eg. 1561412399.000200
+     */
+    @Override
+    public String toString()
+    {
+        char[] text = new char[20 + 1 + FRACTION_DIGITS];
+        int pos = text.length;
+        long fraction = micros % MICROS_PER_SECOND;
+        for (int i = 0; i < FRACTION_DIGITS; ++i)
+        {
+            text[--pos] = (char) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        text[--pos] = '.';
+        long seconds = micros / MICROS_PER_SECOND;
+        do
+        {
+            text[--pos] = (char) ('0' + seconds % 10);
+            seconds /= 10;
+        }
+        while (seconds > 0);
+        return new String(text, pos, text.length - pos);
+    }
+}
@@ -1,12 +1,15 @@
 package au.com.addstar.slackapi.objects;
 
 import au.com.addstar.slackapi.internal.Utilities;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonObject;
-import lombok.EqualsAndHashCode;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 
+import java.io.IOException;
+
 /**
  * An object that is timestamped on creation as well as unique
  *
@@ -16,17 +19,34 @@ import lombok.NoArgsConstructor;
 
 @NoArgsConstructor
 @Getter
-@EqualsAndHashCode(callSuper = true)
 public class TimeStampedBaseObject extends IdBaseObject {
 
     private long creationDate;
+    @Getter(AccessLevel.NONE)
+    private transient boolean hasCreated;
 
-    protected void load(JsonObject object, JsonDeserializationContext context)
+    @Override
+    protected boolean readField(String name, JsonReader in, Gson gson) throws IOException
     {
-        super.load(object,context);
-        if (!object.has("created"))
-            throw new IllegalStateException("This is not a valid object");
+        if ("created".equals(name)) {
+            creationDate = Utilities.nextTimestamp(in);
+            hasCreated = true;
+            return true;
+        }
+        return super.readField(name, in, gson);
+    }
+
+    @Override
+    protected void save(JsonWriter out, Gson gson) throws IOException
+    {
+        super.save(out, gson);
+        Utilities.writeTimestamp(out, "created", creationDate);
+    }
 
-        creationDate = Utilities.getAsTimestamp(object.get("created"));
+    @Override
+    protected void afterLoad()
+    {
+        if (!hasCreated)
+            throw new IllegalStateException("This is not a valid object");
     }
 }
@@ -0,0 +1,226 @@
+package au.com.addstar.slackapi.objects;
+
+import au.com.addstar.slackapi.internal.Utilities;
+import com.google.gson.*;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Maps the "type" member of a json object to the class it is decoded as, so lists of
+ * blocks or elements can be read in a single pass without knowing their classes up front.
+ * New types can be added at any time eg. {@code Block.TYPES.register("header", HeaderBlock::new)}
+ *
+ * Objects whose type is not registered are skipped.
+ *
+ * @param <T> the base type of the registered objects
+ */
+public class TypeRegistry<T extends BaseObject>
+{
+    private final String name;
+    private final Map<String, Supplier<? extends T>> types = new ConcurrentHashMap<>();
+    private final List<TypeRegistry<? extends T>> delegates;
+
+    /**
+     * @param name a name for the kind of object, used in errors
+     */
+    public TypeRegistry(String name)
+    {
+        this(name, Collections.emptyList());
+    }
+
+    /**
+     * @param name a name for the kind of object, used in errors
+     * @param delegates registries to look in for types not registered here
+     */
+    public TypeRegistry(String name, List<TypeRegistry<? extends T>> delegates)
+    {
+        this.name = name;
+        this.delegates = new ArrayList<>(delegates);
+    }
+
+    /**
+     * Registers a type
+     * @param type the value of the "type" member
+     * @param constructor creates an empty object of the type
+     * @return this registry
+     */
+    public TypeRegistry<T> register(String type, Supplier<? extends T> constructor)
+    {
+        types.put(type, constructor);
+        return this;
+    }
+
+    public boolean isRegistered(String type)
+    {
+        return lookup(type) != null;
+    }
+
+    private Supplier<? extends T> lookup(String type)
+    {
+        if (type == null)
+            return null;
+
+        Supplier<? extends T> constructor = types.get(type);
+        if (constructor != null)
+            return constructor;
+
+        for (TypeRegistry<? extends T> delegate : delegates)
+        {
+            constructor = delegate.lookup(type);
+            if (constructor != null)
+                return constructor;
+        }
+        return null;
+    }
+
+    /**
+     * Reads an object choosing its class by its "type" member.
+     * Members that come before the type are buffered and replayed once the class is known.
+     *
+     * @param in the reader
+     * @param gson the gson instance to read nested objects with
+     * @return the object, or null if the value is null or the type is not registered
+     * @throws IOException if the object cannot be read
+     */
+    public T read(JsonReader in, Gson gson) throws IOException
+    {
+        if (!Utilities.beginObject(in))
+            return null;
+
+        JsonObject buffered = null;
+        while (in.hasNext())
+        {
+            String member = in.nextName();
+            if (!"type".equals(member))
+            {
+                if (buffered == null)
+                    buffered = new JsonObject();
+                buffered.add(member, gson.getAdapter(JsonElement.class).read(in));
+                continue;
+            }
+
+            Supplier<? extends T> constructor = lookup(Utilities.nextString(in));
+            if (constructor == null)
+            {
+                while (in.hasNext())
+                {
+                    in.nextName();
+                    in.skipValue();
+                }
+                in.endObject();
+                return null;
+            }
+
+            T object = constructor.get();
+            if (buffered != null)
+                replay(object, buffered, gson);
+            object.readMembers(in, gson);
+            return object;
+        }
+        in.endObject();
+        throw new JsonParseException("The " + name + " has no type");
+    }
+
+    private static void replay(BaseObject object, JsonObject buffered, Gson gson) throws IOException
+    {
+        try (JsonReader replay = new JsonReader(new StringReader(buffered.toString())))
+        {
+            replay.beginObject();
+            while (replay.hasNext())
+            {
+                String member = replay.nextName();
+                if (!object.readField(member, replay, gson))
+                    replay.skipValue();
+            }
+            replay.endObject();
+        }
+    }
+
+    /**
+     * Reads an array of objects, skipping any whose type is not registered
+     *
+     * @param in the reader
+     * @param gson the gson instance to read nested objects with
+     * @return the objects, or null if the value is null
+     * @throws IOException if the array cannot be read
+     */
+    public List<T> readList(JsonReader in, Gson gson) throws IOException
+    {
+        if (in.peek() == JsonToken.NULL)
+        {
+            in.nextNull();
+            return null;
+        }
+
+        List<T> result = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext())
+        {
+            T object = read(in, gson);
+            if (object != null)
+                result.add(object);
+        }
+        in.endArray();
+        return result;
+    }
+
+    /**
+     * Creates a factory so gson reads the base type through this registry
+     * @param baseType the base type
+     * @return the factory to register with gson
+     */
+    public TypeAdapterFactory factory(Class<T> baseType)
+    {
+        return new TypeAdapterFactory() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <R> TypeAdapter<R> create(Gson gson, TypeToken<R> token) {
+                if (token.getRawType() != baseType)
+                    return null;
+                return (TypeAdapter<R>) new RegistryAdapter(gson, baseType);
+            }
+        };
+    }
+
+    private class RegistryAdapter extends TypeAdapter<T>
+    {
+        private final Gson gson;
+        private final Class<T> baseType;
+
+        RegistryAdapter(Gson gson, Class<T> baseType)
+        {
+            this.gson = gson;
+            this.baseType = baseType;
+        }
+
+        @Override
+        public T read(JsonReader in) throws IOException
+        {
+            return TypeRegistry.this.read(in, gson);
+        }
+
+        @Override
+        public void write(JsonWriter out, T value) throws IOException
+        {
+            if (value != null && value.getClass() == baseType)
+            {
+                out.beginObject();
+                value.save(out, gson);
+                out.endObject();
+            }
+            else
+                Utilities.writeValue(out, value, gson);
+        }
+    }
+}
@@ -1,21 +1,23 @@
 package au.com.addstar.slackapi.objects;
 
-import java.net.URL;
+import java.io.IOException;
+import java.net.URI;
 
-import lombok.EqualsAndHashCode;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import au.com.addstar.slackapi.internal.Utilities;
 
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonObject;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 /**
  * A object that can represent a Slack user.
+ * Users are equal when they have the same id.
  */
 @NoArgsConstructor
 @Getter
-@EqualsAndHashCode(callSuper = true)
 public class User extends IdBaseObject
 {
     private String name;
@@ -29,11 +31,17 @@ public class User extends IdBaseObject
     private String skype;
     private String phone;
 
-    private URL profileImage24;
-    private URL profileImage32;
-    private URL profileImage48;
-    private URL profileImage72;
-    private URL profileImage192;
+    // Kept as text, URL would resolve the host when hashed or compared
+    @Getter(AccessLevel.NONE)
+    private String profileImage24;
+    @Getter(AccessLevel.NONE)
+    private String profileImage32;
+    @Getter(AccessLevel.NONE)
+    private String profileImage48;
+    @Getter(AccessLevel.NONE)
+    private String profileImage72;
+    @Getter(AccessLevel.NONE)
+    private String profileImage192;
 
     private boolean isAdmin;
     private boolean isOwner;
@@ -42,42 +50,145 @@ public class User extends IdBaseObject
     private boolean isUltraRestricted;
     private boolean hasFiles;
 
+    public URI getProfileImage24()
+    {
+        return Utilities.toURI(profileImage24);
+    }
+
+    public URI getProfileImage32()
+    {
+        return Utilities.toURI(profileImage32);
+    }
+
+    public URI getProfileImage48()
+    {
+        return Utilities.toURI(profileImage48);
+    }
+
+    public URI getProfileImage72()
+    {
+        return Utilities.toURI(profileImage72);
+    }
+
+    public URI getProfileImage192()
+    {
+        return Utilities.toURI(profileImage192);
+    }
 
     @Override
-    protected void load(JsonObject root, JsonDeserializationContext context) {
-        super.load(root, context);
-        name = root.get("name").getAsString();
-        isDeleted = root.get("deleted").getAsBoolean();
-        if (!isDeleted)
+    protected boolean readField(String name, JsonReader in, Gson gson) throws IOException {
+        switch (name)
         {
-            color = root.get("color").getAsString();
-            isAdmin = root.get("is_admin").getAsBoolean();
-            isOwner = root.get("is_owner").getAsBoolean();
-            isPrimaryOwner = root.get("is_primary_owner").getAsBoolean();
-            isRestricted = root.get("is_restricted").getAsBoolean();
-            isUltraRestricted = root.get("is_ultra_restricted").getAsBoolean();
+            case "name":
+                this.name = Utilities.nextString(in);
+                return true;
+            case "deleted":
+                isDeleted = Utilities.nextBoolean(in, false);
+                return true;
+            case "color":
+                color = Utilities.nextString(in);
+                return true;
+            case "is_admin":
+                isAdmin = Utilities.nextBoolean(in, false);
+                return true;
+            case "is_owner":
+                isOwner = Utilities.nextBoolean(in, false);
+                return true;
+            case "is_primary_owner":
+                isPrimaryOwner = Utilities.nextBoolean(in, false);
+                return true;
+            case "is_restricted":
+                isRestricted = Utilities.nextBoolean(in, false);
+                return true;
+            case "is_ultra_restricted":
+                isUltraRestricted = Utilities.nextBoolean(in, false);
+                return true;
+            case "has_files":
+                hasFiles = Utilities.nextBoolean(in, false);
+                return true;
+            case "profile":
+                readProfile(in);
+                return true;
+            default:
+                return super.readField(name, in, gson);
         }
+    }
+
+    private void readProfile(JsonReader in) throws IOException
+    {
+        if (!Utilities.beginObject(in))
+            return;
 
-        if (root.has("profile"))
+        while (in.hasNext())
         {
-            JsonObject profile = root.get("profile").getAsJsonObject();
-            firstName = Utilities.getAsString(profile.get("first_name"));
-            lastName = Utilities.getAsString(profile.get("last_name"));
-            realName = Utilities.getAsString(profile.get("real_name"));
-            email = Utilities.getAsString(profile.get("email"));
-            skype = Utilities.getAsString(profile.get("skype"));
-            phone = Utilities.getAsString(profile.get("phone"));
-            if (profile.has("image_24"))
+            switch (in.nextName())
             {
-                profileImage24 = context.deserialize(profile.get("image_24"), URL.class);
-                profileImage32 = context.deserialize(profile.get("image_32"), URL.class);
-                profileImage48 = context.deserialize(profile.get("image_48"), URL.class);
-                profileImage72 = context.deserialize(profile.get("image_72"), URL.class);
-                profileImage192 = context.deserialize(profile.get("image_192"), URL.class);
+                case "first_name":
+                    firstName = Utilities.nextString(in);
+                    break;
+                case "last_name":
+                    lastName = Utilities.nextString(in);
+                    break;
+                case "real_name":
+                    realName = Utilities.nextString(in);
+                    break;
+                case "email":
+                    email = Utilities.nextString(in);
+                    break;
+                case "skype":
+                    skype = Utilities.nextString(in);
+                    break;
+                case "phone":
+                    phone = Utilities.nextString(in);
+                    break;
+                case "image_24":
+                    profileImage24 = Utilities.nextString(in);
+                    break;
+                case "image_32":
+                    profileImage32 = Utilities.nextString(in);
+                    break;
+                case "image_48":
+                    profileImage48 = Utilities.nextString(in);
+                    break;
+                case "image_72":
+                    profileImage72 = Utilities.nextString(in);
+                    break;
+                case "image_192":
+                    profileImage192 = Utilities.nextString(in);
+                    break;
+                default:
+                    in.skipValue();
             }
         }
+        in.endObject();
+    }
+
+    @Override
+    protected void save(JsonWriter out, Gson gson) throws IOException
+    {
+        super.save(out, gson);
+        out.name("name").value(name);
+        out.name("deleted").value(isDeleted);
+        out.name("color").value(color);
+        out.name("is_admin").value(isAdmin);
+        out.name("is_owner").value(isOwner);
+        out.name("is_primary_owner").value(isPrimaryOwner);
+        out.name("is_restricted").value(isRestricted);
+        out.name("is_ultra_restricted").value(isUltraRestricted);
+        out.name("has_files").value(hasFiles);
 
-        if (root.has("has_files"))
-            hasFiles = root.get("has_files").getAsBoolean();
+        out.name("profile").beginObject();
+        out.name("first_name").value(firstName);
+        out.name("last_name").value(lastName);
+        out.name("real_name").value(realName);
+        out.name("email").value(email);
+        out.name("skype").value(skype);
+        out.name("phone").value(phone);
+        out.name("image_24").value(profileImage24);
+        out.name("image_32").value(profileImage32);
+        out.name("image_48").value(profileImage48);
+        out.name("image_72").value(profileImage72);
+        out.name("image_192").value(profileImage192);
+        out.endObject();
     }
 }
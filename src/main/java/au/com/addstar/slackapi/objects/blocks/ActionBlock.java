@@ -1,10 +1,13 @@
 package au.com.addstar.slackapi.objects.blocks;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.List;
 
+import au.com.addstar.slackapi.internal.Utilities;
 import au.com.addstar.slackapi.objects.blocks.elements.Element;
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -24,22 +27,19 @@ public class ActionBlock extends Block{
     }
 
     @Override
-    protected void load(JsonObject root, JsonDeserializationContext context) {
-        super.load(root, context);
-        JsonArray arr = root.getAsJsonArray("elements");
-        this.elements = Element.deserialize(arr,context);
+    protected boolean readField(String name, JsonReader in, Gson gson) throws IOException {
+        if ("elements".equals(name)) {
+            this.elements = Element.TYPES.readList(in, gson);
+            return true;
+        }
+        return super.readField(name, in, gson);
     }
     
     @Override
-    protected JsonObject save(JsonObject root, JsonSerializationContext context)
+    protected void save(JsonWriter out, Gson gson) throws IOException
     {
-        JsonArray array = new JsonArray();
-        for (Element el: elements){
-            JsonElement e  = context.serialize(el);
-            array.add(e);
-        }
-        root.add("elements",array);
-        return super.save(root, context);
+        super.save(out, gson);
+        Utilities.writeList(out, "elements", elements, gson);
     }
     
     
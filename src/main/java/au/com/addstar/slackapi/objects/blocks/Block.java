@@ -2,20 +2,17 @@ package au.com.addstar.slackapi.objects.blocks;
 
 import au.com.addstar.slackapi.internal.Utilities;
 import au.com.addstar.slackapi.objects.BaseObject;
+import au.com.addstar.slackapi.objects.TypeRegistry;
+import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParseException;
-import com.google.gson.JsonSerializationContext;
-import com.google.gson.JsonSerializer;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
 
 /**
  * Created for use for the Add5tar MC Minecraft server
@@ -27,68 +24,48 @@ public class Block extends BaseObject {
     @Setter
     private BlockType type;
     private String block_id;
+
+    /**
+     * The block types that can be decoded, by their type
+     */
+    public static final TypeRegistry<Block> TYPES = new TypeRegistry<Block>("block")
+            .register(BlockType.SECTION.toString(), Section::new)
+            .register(BlockType.DIVIDER.toString(), Divider::new)
+            .register(BlockType.IMAGE.toString(), ImageBlock::new)
+            .register(BlockType.ACTIONS.toString(), ActionBlock::new)
+            .register(BlockType.CONTEXT.toString(), ContextBlock::new);
     
     
     public static void addGsonAdapters(GsonBuilder builder)
     {
-        builder.registerTypeAdapter(Section.class, Section.getGsonAdapter());
-        builder.registerTypeAdapter(ImageBlock.class,ImageBlock.getGsonAdapter());
-        builder.registerTypeAdapter(Divider.class,Divider.getGsonAdapter());
-        builder.registerTypeAdapter(ActionBlock.class,ActionBlock.getGsonAdapter());
-        builder.registerTypeAdapter(ContextBlock.class,ContextBlock.getGsonAdapter());
-
-
+        builder.registerTypeAdapterFactory(TYPES.factory(Block.class));
+        builder.registerTypeAdapterFactory(factory(Section.class, Section::new));
+        builder.registerTypeAdapterFactory(factory(ImageBlock.class, ImageBlock::new));
+        builder.registerTypeAdapterFactory(factory(Divider.class, Divider::new));
+        builder.registerTypeAdapterFactory(factory(ActionBlock.class, ActionBlock::new));
+        builder.registerTypeAdapterFactory(factory(ContextBlock.class, ContextBlock::new));
     }
 
-    public static BlockJSONAdapter getGsonAdapter(){
-        return new BlockJSONAdapter();
-    }
-    
-    private static class BlockJSONAdapter implements JsonDeserializer<Block>, JsonSerializer<Block>{
-
-        @Override
-        public Block deserialize(JsonElement json, Type type, JsonDeserializationContext context) throws JsonParseException {
-            if (!(json instanceof JsonObject))
-                throw new JsonParseException("Expected JSONObject as channel root");
-            final JsonObject root = (JsonObject)json;
-            final Block object;
-            if(type.equals(Section.class)) {
-                object = new Section();
-            }  else  if(type.equals(Divider.class)) {
-                object = new Divider();
-            } else  if(type.equals(ImageBlock.class)) {
-                object = new ImageBlock();
-            }  else  if(type.equals(ActionBlock.class)) {
-                object = new ImageBlock();
-            }  else  if(type.equals(ContextBlock.class)) {
-                object = new ContextBlock();
-            }
-            else {
-                throw new JsonParseException("Cant load unknown channel type");
-            }
-            object.load(root,context);
-            return object;
-        }
-    
-        @Override
-        public JsonElement serialize(Block block, Type type, JsonSerializationContext context) {
-            JsonObject root = new JsonObject();
-            block.save(root,context);
-            return root;
+    @Override
+    protected boolean readField(String name, JsonReader in, Gson gson) throws IOException {
+        switch (name) {
+            case "type":
+                type = BlockType.valueOf(in.nextString().toUpperCase());
+                return true;
+            case "block_id":
+                block_id = Utilities.nextString(in);
+                return true;
+            default:
+                return false;
         }
     }
 
-    protected void load(JsonObject root, JsonDeserializationContext context) {
-        type = BlockType.valueOf(root.get("type").getAsString().toUpperCase());
-        block_id = Utilities.getAsString(root.get("block_id"));
-    }
-    
-    protected JsonObject save(JsonObject root, JsonSerializationContext context){
-        root.addProperty("type", this.type.toString());
+    @Override
+    protected void save(JsonWriter out, Gson gson) throws IOException {
+        out.name("type").value(this.type.toString());
         if(block_id != null) {
-            root.addProperty("block_id",block_id);
+            out.name("block_id").value(block_id);
         }
-        return root;
     }
     @AllArgsConstructor
     enum BlockType {
@@ -1,17 +1,19 @@
 package au.com.addstar.slackapi.objects.blocks;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import au.com.addstar.slackapi.internal.Utilities;
 import au.com.addstar.slackapi.objects.BaseObject;
+import au.com.addstar.slackapi.objects.TypeRegistry;
+import au.com.addstar.slackapi.objects.blocks.composition.CompositionObject;
 import au.com.addstar.slackapi.objects.blocks.composition.TextObject;
-import au.com.addstar.slackapi.objects.blocks.elements.ButtonElement;
 import au.com.addstar.slackapi.objects.blocks.elements.Element;
-import au.com.addstar.slackapi.objects.blocks.elements.ImageElement;
-import au.com.addstar.slackapi.objects.blocks.elements.SelectElement;
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 
@@ -20,6 +22,12 @@ import lombok.Getter;
 @Getter
 @EqualsAndHashCode(callSuper = true)
 public class ContextBlock extends Block {
+    /**
+     * Context blocks hold text objects and elements
+     */
+    private static final TypeRegistry<BaseObject> ELEMENT_TYPES =
+            new TypeRegistry<>("context element", Arrays.asList(CompositionObject.TYPES, Element.TYPES));
+
     private List<BaseObject> elements;
 
     public ContextBlock() {
@@ -28,76 +36,26 @@ public class ContextBlock extends Block {
     
     public boolean addElement(BaseObject obj){
         if(obj instanceof TextObject || obj instanceof Element){
+            if(elements == null) {
+                elements = new ArrayList<>();
+            }
             return elements.add(obj);
         }
         return false;
     }
-    private static List<BaseObject> deserializeContextElements(JsonArray array, JsonDeserializationContext context){
-        List<BaseObject> o = new ArrayList<>();
-        for (JsonElement el:array){
-            Type type = null;
-            try {
-                Element.ElementType elType = Element.ElementType.valueOf(Utilities.getAsString(el.getAsJsonObject().get("type")).toUpperCase());
-                switch (elType){
-                    case IMAGE:
-                        type =ImageElement.class;
-                        break;
-                    case BUTTON:
-                        type = ButtonElement.class;
-                        break;
-                    case STATIC_SELECT:
-                        type = SelectElement.class;
-                    default:
-                        throw new JsonParseException("Could not decode element");
-                }
-            }catch (IllegalArgumentException e){}
-            try{
-                TextObject.TextType textType = TextObject.TextType.getTextType(Utilities.getAsString(el.getAsJsonObject().get("type")));
-                switch (textType) {
-                    case PLAIN:
-                    case MARKDOWN:
-                        type = TextObject.class;
-                    default:
-                        throw new JsonParseException("Could not decode element");
-                }
-            }catch (IllegalArgumentException e){ }
-            if(type == null) {
-                throw new JsonParseException("Could not decode element");
-            }
-            BaseObject obj = context.deserialize(el,type);
-            o.add(obj);
-        }
-        return o;
-    }
-    
     @Override
-    protected void load(JsonObject root, JsonDeserializationContext context) {
-        super.load(root, context);
-        this.elements = deserializeContextElements(root.getAsJsonArray("elements"),context);
-        
+    protected boolean readField(String name, JsonReader in, Gson gson) throws IOException {
+        if("elements".equals(name)) {
+            this.elements = ELEMENT_TYPES.readList(in, gson);
+            return true;
+        }
+        return super.readField(name, in, gson);
     }
     
     @Override
-    protected JsonObject save(JsonObject root, JsonSerializationContext context) {
-        super.save(root, context);
-        JsonArray array = new JsonArray();
-        for(BaseObject o:elements){
-            JsonElement obj;
-            if(o instanceof TextObject) {
-                obj = context.serialize(o, TextObject.class);
-            } else if (o instanceof ImageElement) {
-                obj = context.serialize(o,ImageElement.class);
-            } else if (o instanceof SelectElement){
-                obj =  context.serialize(o,SelectElement.class);
-            } else if (o instanceof ButtonElement) {
-                obj = context.serialize(o,ButtonElement.class);
-            } else{
-                throw new JsonParseException("ContextElement not serialize:" +o.getClass());
-            }
-            array.add(obj);
-        }
-        root.add("elements",array);
-        return root;
+    protected void save(JsonWriter out, Gson gson) throws IOException {
+        super.save(out, gson);
+        Utilities.writeList(out, "elements", elements, gson);
     }
     
 }
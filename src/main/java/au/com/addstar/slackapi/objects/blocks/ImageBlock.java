@@ -1,14 +1,13 @@
 package au.com.addstar.slackapi.objects.blocks;
 
-import java.net.MalformedURLException;
+import java.io.IOException;
 import java.net.URL;
 
 import au.com.addstar.slackapi.internal.Utilities;
 import au.com.addstar.slackapi.objects.blocks.composition.TextObject;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParseException;
-import com.google.gson.JsonSerializationContext;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -30,24 +29,29 @@ public class ImageBlock extends Block{
     }
 
     @Override
-    protected void load(JsonObject root, JsonDeserializationContext context) {
-        super.load(root, context);
-        title = Utilities.getTextObject(root.get("title"),context, TextObject.TextType.PLAIN);
-        try {
-            this.imageUrl = new URL(root.get("imageURL").getAsString());
-        } catch (MalformedURLException e) {
-            throw new JsonParseException("URL could not be decoded");
+    protected boolean readField(String name, JsonReader in, Gson gson) throws IOException {
+        switch (name) {
+            case "title":
+                title = Utilities.nextTextObject(in, gson, TextObject.TextType.PLAIN);
+                return true;
+            case "image_url":
+                this.imageUrl = Utilities.nextURL(in);
+                return true;
+            case "alt_text":
+                altText = Utilities.nextString(in);
+                return true;
+            default:
+                return super.readField(name, in, gson);
         }
-        altText = Utilities.getAsString(root.get("alt_text"));
-        
     }
     
     @Override
-    protected JsonObject save(JsonObject root, JsonSerializationContext context) {
-        super.save(root, context);
-        Utilities.serializeTextObject(root,"title",title,context);
-        root.addProperty("alt_text",altText);
-        root.addProperty("image_url",imageUrl.toString());
-        return root;
+    protected void save(JsonWriter out, Gson gson) throws IOException {
+        super.save(out, gson);
+        Utilities.writeTextObject(out,"title",title,gson);
+        if(altText != null) {
+            out.name("alt_text").value(altText);
+        }
+        out.name("image_url").value(imageUrl.toString());
     }
 }
@@ -4,11 +4,13 @@ import au.com.addstar.slackapi.internal.Utilities;
 import au.com.addstar.slackapi.objects.blocks.composition.TextObject;
 import au.com.addstar.slackapi.objects.blocks.elements.Element;
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -28,37 +30,32 @@ public class Section extends Block {
     }
 
     @Override
-    protected JsonObject save(final JsonObject root, final JsonSerializationContext context) {
-        super.save(root, context);
-        root.add("text",context.serialize(this.text));
+    protected void save(final JsonWriter out, final Gson gson) throws IOException {
+        super.save(out, gson);
+        Utilities.writeTextObject(out, "text", this.text, gson);
         if(this.fields != null && !this.fields.isEmpty()){
-            final JsonArray out = new JsonArray();
-            for(final TextObject t:this.fields){
-                out.add(context.serialize(t));
-            }
-            root.add("fields",out);
+            Utilities.writeList(out, "fields", this.fields, gson);
         }
         if(this.accessory!=null){
-            root.add("accessory",context.serialize(this.accessory));
+            out.name("accessory");
+            Utilities.writeValue(out, this.accessory, gson);
         }
-        return root;
 }
     
     @Override
-    protected void load(JsonObject root, JsonDeserializationContext context) {
-        super.load(root, context);
-        this.setText(context.deserialize(root.get("text"),TextObject.class));
-        if(root.has("fields")) {
-            JsonArray ar = root.getAsJsonArray("fields");
-            this.setFields(new ArrayList<>());
-            for (JsonElement el : ar) {
-                this.fields.add(Utilities.getTextObject(el,context,null));
-            }
-        }else{
-            this.setFields(null);
-        }
-        if(root.has("accessory")){
-            this.setAccessory(context.deserialize(root.get("accessory"),Element.class));
+    protected boolean readField(String name, JsonReader in, Gson gson) throws IOException {
+        switch (name) {
+            case "text":
+                this.setText(Utilities.nextTextObject(in, gson, null));
+                return true;
+            case "fields":
+                this.setFields(Utilities.nextList(in, gson.getAdapter(TextObject.class)));
+                return true;
+            case "accessory":
+                this.setAccessory(Element.TYPES.read(in, gson));
+                return true;
+            default:
+                return super.readField(name, in, gson);
         }
     }
 }
@@ -1,58 +1,35 @@
 package au.com.addstar.slackapi.objects.blocks.composition;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
 
 import au.com.addstar.slackapi.objects.BaseObject;
-import com.google.gson.*;
-import com.google.gson.annotations.JsonAdapter;
+import au.com.addstar.slackapi.objects.TypeRegistry;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
 
 /**
  * Created for the AddstarMC Project. Created by Narimm on 21/02/2019.
  */
 public abstract class CompositionObject extends BaseObject {
+
+    /**
+     * The composition objects that carry a type, which are the text objects
+     */
+    public static final TypeRegistry<CompositionObject> TYPES = new TypeRegistry<CompositionObject>("composition object")
+            .register(TextObject.TextType.PLAIN.getValue(), () -> TextObject.builder().type(TextObject.TextType.PLAIN).build())
+            .register(TextObject.TextType.MARKDOWN.getValue(), () -> TextObject.builder().type(TextObject.TextType.MARKDOWN).build());
     
     
     public static void addGsonAdapters(GsonBuilder builder)
     {
-        builder.registerTypeAdapter(TextObject.class, TextObject.getGsonAdapter());
-        builder.registerTypeAdapter(Option.class, Option.getGsonAdapter());
-        builder.registerTypeAdapter(ConfirmObject.class,ConfirmObject.getGsonAdapter());
-        builder.registerTypeAdapter(OptionGroup.class,OptionGroup.getGsonAdapter());
-    }
-    
-    public static CompositionObjectJSONAdapter getGsonAdapter(){
-        return new CompositionObjectJSONAdapter();
-    }
-    
-    private static class CompositionObjectJSONAdapter implements JsonDeserializer<CompositionObject>, JsonSerializer<CompositionObject> {
-        @Override
-        public JsonElement serialize(CompositionObject compositionObject, Type type, JsonSerializationContext context) {
-            JsonObject root = new JsonObject();
-            compositionObject.save(root,context);
-            return root;
-        }
-    
-        @Override
-        public CompositionObject deserialize(JsonElement json, Type type, JsonDeserializationContext context) throws JsonParseException {
-            if (!(json instanceof JsonObject))
-                throw new JsonParseException("Expected JSONObject as channel root");
-            JsonObject root = (JsonObject)json;
-            CompositionObject object;
-            if(type.equals(TextObject.class)){
-                object = new TextObject();
-            } else if (type.equals(Option.class)){
-                object = new Option();
-            } else if(type.equals(ConfirmObject.class)){
-                object = new ConfirmObject();
-            } else if(type.equals(OptionGroup.class)){
-                object = new OptionGroup();
-            } else {
-                throw new JsonParseException("Cant load unknown Composition type");
-            }
-            object.load(root,context);
-            return object;
-        }
+        builder.registerTypeAdapterFactory(TYPES.factory(CompositionObject.class));
+        builder.registerTypeAdapterFactory(factory(TextObject.class, TextObject::new));
+        builder.registerTypeAdapterFactory(factory(Option.class, Option::new));
+        builder.registerTypeAdapterFactory(factory(ConfirmObject.class, ConfirmObject::new));
+        builder.registerTypeAdapterFactory(factory(OptionGroup.class, OptionGroup::new));
     }
     
-    protected abstract JsonElement save(JsonObject root, JsonSerializationContext context);
+    @Override
+    protected abstract void save(JsonWriter out, Gson gson) throws IOException;
 }
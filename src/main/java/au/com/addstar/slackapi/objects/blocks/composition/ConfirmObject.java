@@ -1,12 +1,12 @@
 package au.com.addstar.slackapi.objects.blocks.composition;
 
 import au.com.addstar.slackapi.internal.Utilities;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonSerializationContext;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.*;
-import org.checkerframework.checker.units.qual.A;
+
+import java.io.IOException;
 
 /**
  * Created for the AddstarMC Project. Created by Narimm on 21/02/2019.
@@ -24,19 +24,30 @@ public class ConfirmObject extends CompositionObject{
     private TextObject deny;
 
     @Override
-    protected JsonElement save(JsonObject root, JsonSerializationContext context) {
-        Utilities.serializeTextObject(root,"title",title,context);
-        Utilities.serializeTextObject(root,"text",text,context);
-        Utilities.serializeTextObject(root,"confirm",confirm,context);
-        Utilities.serializeTextObject(root,"deny",deny,context);
-        return root;
+    protected void save(JsonWriter out, Gson gson) throws IOException {
+        Utilities.writeTextObject(out,"title",title,gson);
+        Utilities.writeTextObject(out,"text",text,gson);
+        Utilities.writeTextObject(out,"confirm",confirm,gson);
+        Utilities.writeTextObject(out,"deny",deny,gson);
     }
     
     @Override
-    protected void load(JsonObject root, JsonDeserializationContext context) {
-        title = Utilities.getTextObject(root.get("title"),context, TextObject.TextType.PLAIN);
-        text = Utilities.getTextObject(root.get("text"),context,null);
-        confirm = Utilities.getTextObject(root.get("confirm"),context, TextObject.TextType.PLAIN);
-        deny = Utilities.getTextObject(root.get("deny"),context, TextObject.TextType.PLAIN);
+    protected boolean readField(String name, JsonReader in, Gson gson) throws IOException {
+        switch (name) {
+            case "title":
+                title = Utilities.nextTextObject(in, gson, TextObject.TextType.PLAIN);
+                return true;
+            case "text":
+                text = Utilities.nextTextObject(in, gson, null);
+                return true;
+            case "confirm":
+                confirm = Utilities.nextTextObject(in, gson, TextObject.TextType.PLAIN);
+                return true;
+            case "deny":
+                deny = Utilities.nextTextObject(in, gson, TextObject.TextType.PLAIN);
+                return true;
+            default:
+                return false;
+        }
     }
 }
@@ -1,12 +1,13 @@
 package au.com.addstar.slackapi.objects.blocks.composition;
 
 import au.com.addstar.slackapi.internal.Utilities;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonSerializationContext;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.*;
 
+import java.io.IOException;
+
 /**
  * Created for the AddstarMC Project. Created by Narimm on 21/02/2019.
  */
@@ -20,16 +21,24 @@ public class Option extends CompositionObject {
     private String value;
     
     @Override
-    protected void load(JsonObject root, JsonDeserializationContext context) {
-        text = Utilities.getTextObject(root.get("text"),context, TextObject.TextType.PLAIN);
-        value = Utilities.getAsString(root.get("value"));
+    protected boolean readField(String name, JsonReader in, Gson gson) throws IOException {
+        switch (name) {
+            case "text":
+                text = Utilities.nextTextObject(in, gson, TextObject.TextType.PLAIN);
+                return true;
+            case "value":
+                value = Utilities.nextString(in);
+                return true;
+            default:
+                return false;
+        }
     }
     
     @Override
-    protected JsonElement save(JsonObject root, JsonSerializationContext context) {
-        JsonObject t = new JsonObject();
-        root.add("text",context.serialize(text));
-        root.addProperty("value",value);
-        return root;
+    protected void save(JsonWriter out, Gson gson) throws IOException {
+        Utilities.writeTextObject(out,"text",text,gson);
+        if(value != null) {
+            out.name("value").value(value);
+        }
     }
 }
@@ -1,15 +1,16 @@
 package au.com.addstar.slackapi.objects.blocks.composition;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.List;
 
 import au.com.addstar.slackapi.internal.Utilities;
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import org.checkerframework.checker.nullness.Opt;
 
 /**
  * Created for the AddstarMC Project. Created by Narimm on 21/02/2019.
@@ -22,23 +23,22 @@ public class OptionGroup extends CompositionObject{
     private TextObject label;
     private List<Option> options;
     @Override
-    protected JsonElement save(JsonObject root, JsonSerializationContext context) {
-        Utilities.serializeTextObject(root,"label",label,context);
-        JsonArray arr = new JsonArray();
-        for(Option opt:options){
-            arr.add(context.serialize(opt,Option.class));
-        }
-        root.add("options",arr);
-        return root;
+    protected void save(JsonWriter out, Gson gson) throws IOException {
+        Utilities.writeTextObject(out,"label",label,gson);
+        Utilities.writeList(out,"options",options,gson);
     }
     
     @Override
-    protected void load(JsonObject root, JsonDeserializationContext context) {
-        label = Utilities.getTextObject(root.get("label"),context, TextObject.TextType.PLAIN);
-        JsonArray array = root.getAsJsonArray("options");
-        options = new ArrayList<>();
-        for(JsonElement el: array){
-            options.add(context.deserialize(el,Option.class));
+    protected boolean readField(String name, JsonReader in, Gson gson) throws IOException {
+        switch (name) {
+            case "label":
+                label = Utilities.nextTextObject(in, gson, TextObject.TextType.PLAIN);
+                return true;
+            case "options":
+                options = Utilities.nextList(in, gson.getAdapter(Option.class));
+                return true;
+            default:
+                return false;
         }
     }
 }
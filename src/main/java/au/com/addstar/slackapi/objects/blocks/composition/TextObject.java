@@ -1,10 +1,11 @@
 package au.com.addstar.slackapi.objects.blocks.composition;
 
-import java.lang.management.PlatformLoggingMXBean;
+import java.io.IOException;
 
 import au.com.addstar.slackapi.internal.Utilities;
-import au.com.addstar.slackapi.objects.BaseObject;
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.*;
 
 /**
@@ -25,26 +26,47 @@ public class TextObject extends CompositionObject  {
     }
 
     @Override
-    protected void load(JsonObject root, JsonDeserializationContext context) {
-        type = TextType.getTextType(root.get("type").getAsString());
-        emoji = Utilities.getAsBoolean(root.get("emoji"), false);
-        verbatim = Utilities.getAsBoolean(root.get("verbatim"), false);
-        text =  root.get("text").getAsString();
+    protected boolean readField(String name, JsonReader in, Gson gson) throws IOException {
+        switch (name) {
+            case "type":
+                type = TextType.getTextType(in.nextString());
+                return true;
+            case "emoji":
+                emoji = Utilities.nextBoolean(in, false);
+                return true;
+            case "verbatim":
+                verbatim = Utilities.nextBoolean(in, false);
+                return true;
+            case "text":
+                text = Utilities.nextString(in);
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    @Override
+    protected void afterLoad() {
+        if(emoji == null) {
+            emoji = false;
+        }
+        if(verbatim == null) {
+            verbatim = false;
+        }
     }
     
     @Override
-    protected JsonElement save(JsonObject root, JsonSerializationContext context) {
-        root.addProperty("type",type.getValue());
+    protected void save(JsonWriter out, Gson gson) throws IOException {
+        out.name("type").value(type.getValue());
         if(emoji !=null && type==TextType.PLAIN) {
-            root.addProperty("emoji",emoji);
+            out.name("emoji").value(emoji);
         }
         if(verbatim != null) {
-            root.addProperty("verbatim", verbatim);
+            out.name("verbatim").value(verbatim);
         }
-        root.addProperty("text",text);
-        return root;
+        out.name("text").value(text);
     }
-    
+
     public enum TextType {
         PLAIN("plain_text"),
         MARKDOWN("mrkdwn");
@@ -1,14 +1,14 @@
 package au.com.addstar.slackapi.objects.blocks.elements;
 
-import java.net.MalformedURLException;
+import java.io.IOException;
 import java.net.URL;
 
 import au.com.addstar.slackapi.internal.Utilities;
+import au.com.addstar.slackapi.objects.blocks.composition.ConfirmObject;
 import au.com.addstar.slackapi.objects.blocks.composition.TextObject;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParseException;
-import com.google.gson.JsonSerializationContext;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -26,27 +26,48 @@ public class ButtonElement extends Element {
     private String action_id;
     private URL url;
     private String value;
-    private Object confirm;
+    private ConfirmObject confirm;
 
     public ButtonElement() {
         setType(ElementType.BUTTON);
     }
 
     @Override
-    protected void load(JsonObject root, JsonDeserializationContext context) {
-        super.load(root, context);
-        text  =  Utilities.getTextObject(root.get("text"), context, TextObject.TextType.PLAIN);
-        action_id = Utilities.getAsString(root.get("action_id"));
-        value = Utilities.getAsString(root.get("value"));
-        try {
-            this.url = new URL(root.get("url").getAsString());
-        } catch (MalformedURLException e) {
-            throw new JsonParseException("URL could not be decoded");
+    protected boolean readField(String name, JsonReader in, Gson gson) throws IOException {
+        switch (name) {
+            case "text":
+                text = Utilities.nextTextObject(in, gson, TextObject.TextType.PLAIN);
+                return true;
+            case "action_id":
+                action_id = Utilities.nextString(in);
+                return true;
+            case "value":
+                value = Utilities.nextString(in);
+                return true;
+            case "url":
+                this.url = Utilities.nextURL(in);
+                return true;
+            case "confirm":
+                confirm = gson.getAdapter(ConfirmObject.class).read(in);
+                return true;
+            default:
+                return super.readField(name, in, gson);
         }
     }
     
     @Override
-    protected JsonObject save(JsonObject root, JsonSerializationContext context) {
-        return super.save(root, context);
+    protected void save(JsonWriter out, Gson gson) throws IOException {
+        super.save(out, gson);
+        Utilities.writeTextObject(out, "text", text, gson);
+        if (action_id != null)
+            out.name("action_id").value(action_id);
+        if (url != null)
+            out.name("url").value(url.toString());
+        if (value != null)
+            out.name("value").value(value);
+        if (confirm != null) {
+            out.name("confirm");
+            gson.getAdapter(ConfirmObject.class).write(out, confirm);
+        }
     }
 }
@@ -1,13 +1,12 @@
 package au.com.addstar.slackapi.objects.blocks.elements;
 
-import java.net.MalformedURLException;
+import java.io.IOException;
 import java.net.URL;
 
 import au.com.addstar.slackapi.internal.Utilities;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParseException;
-import com.google.gson.JsonSerializationContext;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -30,25 +29,27 @@ public class ImageElement extends Element {
     }
 
     @Override
-    protected void load(JsonObject root, JsonDeserializationContext context) {
-        super.load(root, context);
-        try {
-            this.imageURL = new URL(root.get("imageURL").getAsString());
-        } catch (MalformedURLException e) {
-            throw new JsonParseException("URL could not be decoded");
+    protected boolean readField(String name, JsonReader in, Gson gson) throws IOException {
+        switch (name) {
+            case "image_url":
+                this.imageURL = Utilities.nextURL(in);
+                return true;
+            case "alt_text":
+                altText = Utilities.nextString(in);
+                return true;
+            default:
+                return super.readField(name, in, gson);
         }
-        altText = Utilities.getAsString(root.get("alt_text"));
     }
     
     @Override
-    protected JsonObject save(JsonObject root, JsonSerializationContext context) {
-        super.save(root, context);
+    protected void save(JsonWriter out, Gson gson) throws IOException {
+        super.save(out, gson);
         if(this.imageURL != null) {
-            root.addProperty("imageUrl",this.imageURL.toString());
+            out.name("image_url").value(this.imageURL.toString());
         }
         if(altText !=null) {
-            root.addProperty("alt_test",altText);
+            out.name("alt_text").value(altText);
         }
-        return root;
     }
 }
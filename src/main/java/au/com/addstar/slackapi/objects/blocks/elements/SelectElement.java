@@ -1,6 +1,6 @@
 package au.com.addstar.slackapi.objects.blocks.elements;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.List;
 
 import au.com.addstar.slackapi.internal.Utilities;
@@ -9,11 +9,12 @@ import au.com.addstar.slackapi.objects.blocks.composition.Option;
 import au.com.addstar.slackapi.objects.blocks.composition.OptionGroup;
 import au.com.addstar.slackapi.objects.blocks.composition.TextObject;
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import org.checkerframework.checker.nullness.Opt;
 
 /**
  * Created for the AddstarMC Project. Created by Narimm on 21/02/2019.
@@ -35,53 +36,68 @@ public class SelectElement extends Element {
 
 
     @Override
-    protected void load(JsonObject root, JsonDeserializationContext context) {
-        super.load(root, context);
-        placeHolder  =  Utilities.getTextObject(root.get("placeholder"), context, TextObject.TextType.PLAIN);
-        action_id = Utilities.getAsString(root.get("action_id"));
-        if(root.has("optons")) {
-            if(root.has("optionGroups")) {
+    protected boolean readField(String name, JsonReader in, Gson gson) throws IOException {
+        switch (name) {
+            case "placeholder":
+                placeHolder = Utilities.nextTextObject(in, gson, TextObject.TextType.PLAIN);
+                return true;
+            case "action_id":
+                action_id = Utilities.nextString(in);
+                return true;
+            case "options":
+                options = Utilities.nextList(in, gson.getAdapter(Option.class));
+                return true;
+            case "option_groups":
+                optionGroups = Utilities.nextList(in, gson.getAdapter(OptionGroup.class));
+                return true;
+            case "initial_option":
+                initialOption = gson.getAdapter(Option.class).read(in);
+                return true;
+            case "confirm":
+                confirm = gson.getAdapter(ConfirmObject.class).read(in);
+                return true;
+            default:
+                return super.readField(name, in, gson);
+        }
+    }
+
+    @Override
+    protected void afterLoad() {
+        if(options != null) {
+            if(optionGroups != null) {
                 throw new JsonParseException("SelectElement cannot have both Options and OptionGroups");
-            } else {
-                options = new ArrayList<>();
-                JsonArray arr = root.getAsJsonArray("options");
-                for(JsonElement el:arr){
-                    options.add(context.deserialize(el,Option.class));
-                }
-            }
-        } else {
-            if (!root.has("optionGroups")) {
-                throw new JsonParseException("SelectElement must have either Options or OptionGroups");
             }
-            optionGroups = context.deserialize(root.get("optionGroups"),OptionGroup.class);
+        } else if(optionGroups == null) {
+            throw new JsonParseException("SelectElement must have either Options or OptionGroups");
         }
-        initialOption = context.deserialize(root.get("initial_option"),Option.class);
-        confirm = context.deserialize(root.get("confirm"),ConfirmObject.class);
     }
     
     @Override
-    protected JsonObject save(JsonObject root, JsonSerializationContext context) {
-        super.save(root, context);
-        Utilities.serializeTextObject(root,"placeholder",placeHolder,context);
-        root.addProperty("action_id",action_id);
+    protected void save(JsonWriter out, Gson gson) throws IOException {
+        super.save(out, gson);
+        Utilities.writeTextObject(out,"placeholder",placeHolder,gson);
+        if(action_id != null) {
+            out.name("action_id").value(action_id);
+        }
         if(options !=null && !options.isEmpty()) {
             if(optionGroups !=null && !optionGroups.isEmpty()) {
                 throw new JsonParseException("SelectElement cannot have both Options and OptionGroups");
             }
-            JsonArray arr = new JsonArray();
-            for (Option opt : options) {
-                arr.add(context.serialize(opt, Option.class));
-            }
-            root.add("options", arr);
+            Utilities.writeList(out, "options", options, gson);
         } else {
             if(optionGroups !=null && !optionGroups.isEmpty()) {
-                root.add("optionGroups",context.serialize(optionGroups,OptionGroup.class));
+                Utilities.writeList(out, "option_groups", optionGroups, gson);
             } else {
                 throw new JsonParseException("SelectElement must have either Options or OptionGroups");
             }
         }
-        root.add("initial_options",context.serialize(initialOption,Option.class));
-        root.add("confirm",context.serialize(confirm,ConfirmObject.class));
-        return root;
+        if(initialOption != null) {
+            out.name("initial_option");
+            gson.getAdapter(Option.class).write(out, initialOption);
+        }
+        if(confirm != null) {
+            out.name("confirm");
+            gson.getAdapter(ConfirmObject.class).write(out, confirm);
+        }
     }
 }
@@ -0,0 +1,112 @@
+package au.com.addstar.slackapi;
+
+import au.com.addstar.slackapi.exceptions.SlackException;
+import au.com.addstar.slackapi.exceptions.SlackRequestLimitException;
+import au.com.addstar.slackapi.internal.SlackConnection;
+import au.com.addstar.slackapi.internal.SlackConstants;
+import au.com.addstar.slackapi.objects.Conversation;
+import au.com.addstar.slackapi.objects.Message;
+import au.com.addstar.slackapi.objects.ObjectID;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BroadcastTest {
+
+    private static Conversation conversation(String id) {
+        return JsonCodec.getDefault().decode(new JsonParser().parse("{\"id\":\"" + id + "\",\"created\":1}"), Conversation.class);
+    }
+
+    private static Message text(String text) {
+        return Message.builder().text(text).build();
+    }
+
+    @Test
+    public void postsOncePerConversation() throws Exception {
+        PostingConnection connection = new PostingConnection();
+        SlackAPI api = new SlackAPI(connection, JsonCodec.getDefault());
+
+        BroadcastResult result = api.broadcast(text("hi"), Arrays.asList(conversation("C1"), conversation("C2"), conversation("C1")));
+
+        assertTrue(result.isSuccess());
+        assertEquals(2, connection.posts.size());
+        assertEquals(Arrays.asList(ObjectID.of("C1"), ObjectID.of("C2")), Arrays.asList(result.getSent().keySet().toArray()));
+        assertEquals("hi", result.getSent().get(ObjectID.of("C2")).getText());
+    }
+
+    @Test
+    public void retriesPostsThatAreRateLimited() throws Exception {
+        PostingConnection connection = new PostingConnection();
+        connection.limited.put("C2", new AtomicInteger(2));
+        SlackAPI api = new SlackAPI(connection, JsonCodec.getDefault());
+
+        BroadcastResult result = api.broadcast(text("hi"), Arrays.asList(conversation("C1"), conversation("C2")));
+
+        assertTrue(result.isSuccess());
+        assertEquals(4, connection.posts.size());
+        assertEquals(3, Collections.frequency(connection.posts, "C2"));
+    }
+
+    @Test
+    public void collectsEachFailure() throws Exception {
+        PostingConnection connection = new PostingConnection();
+        connection.limited.put("C2", new AtomicInteger(10));
+        connection.missing.add("C3");
+        SlackAPI api = new SlackAPI(connection, JsonCodec.getDefault());
+
+        BroadcastResult result = api.broadcast(text("hi"), Arrays.asList(conversation("C1"), conversation("C2"), conversation("C3")));
+
+        assertFalse(result.isSuccess());
+        assertEquals(Collections.singleton(ObjectID.of("C1")), result.getSent().keySet());
+        assertEquals(Arrays.asList(ObjectID.of("C2"), ObjectID.of("C3")), Arrays.asList(result.getFailed().keySet().toArray()));
+        assertTrue(result.getFailed().get(ObjectID.of("C2")) instanceof SlackRequestLimitException);
+        assertEquals("channel_not_found", ((SlackException) result.getFailed().get(ObjectID.of("C3"))).getCode());
+    }
+
+    private static class PostingConnection extends SlackConnection {
+        private final List<String> posts = new CopyOnWriteArrayList<>();
+        private final Map<String, AtomicInteger> limited = new ConcurrentHashMap<>();
+        private final List<String> missing = new CopyOnWriteArrayList<>();
+
+        PostingConnection() {
+            super("xoxb-test");
+            getRateLimits().limit(SlackConstants.CHAT_POST, 600000);
+        }
+
+        @Override
+        public JsonObject callMethodHandled(SlackConstants method, byte[] body) throws SlackRequestLimitException, SlackException {
+            assertEquals(SlackConstants.CHAT_POST, method);
+            JsonObject request = new JsonParser().parse(new String(body, StandardCharsets.UTF_8)).getAsJsonObject();
+            String channel = request.get("channel").getAsString();
+            posts.add(channel);
+
+            AtomicInteger limits = limited.get(channel);
+            if (limits != null && limits.getAndDecrement() > 0)
+                throw new SlackRequestLimitException(System.currentTimeMillis() + 10);
+            if (missing.contains(channel))
+                throw new SlackException("channel_not_found");
+
+            JsonObject message = new JsonObject();
+            message.addProperty("text", request.get("text").getAsString());
+            message.addProperty("channel", channel);
+            message.addProperty("ts", "1.000001");
+            JsonObject result = new JsonObject();
+            result.addProperty("ok", true);
+            result.add("message", message);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package au.com.addstar.slackapi;
+
+import au.com.addstar.slackapi.internal.SlackConnection;
+import au.com.addstar.slackapi.internal.SlackConstants;
+import au.com.addstar.slackapi.objects.FileObject;
+import au.com.addstar.slackapi.objects.ObjectID;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.HttpsURLConnection;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.cert.Certificate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class FileManagerTest {
+
+    private static final String CONTENTS = "hello world";
+
+    private static FileObject file(long size) {
+        return JsonCodec.getDefault().decode(new JsonParser().parse("{\"id\":\"F1\",\"created\":1,\"size\":" + size
+                + ",\"url_private_download\":\"https://files.slack.com/files-pri/T1-F1/download/a.txt\"}"), FileObject.class);
+    }
+
+    private static String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+
+    private static void write(Path path, String contents) throws IOException {
+        Files.write(path, contents.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void downloadsToAPartFileAndReplacesTheTarget() throws IOException {
+        Path dir = Files.createTempDirectory("download");
+        Path target = dir.resolve("a.txt");
+        // A shorter file that is not a part file must not be resumed
+        write(target, "hel");
+
+        FakeConnection connection = new FakeConnection();
+        connection.respond(200, CONTENTS, -1);
+        assertEquals(11, new FileManager(JsonCodec.getDefault(), connection).download(file(11), target, null));
+
+        assertEquals(Arrays.asList(0L), connection.offsets);
+        assertEquals(CONTENTS, read(target));
+        assertFalse(Files.exists(dir.resolve("a.txt.part")));
+    }
+
+    @Test
+    public void resumesFromThePartFile() throws IOException {
+        Path dir = Files.createTempDirectory("download");
+        Path target = dir.resolve("a.txt");
+        write(dir.resolve("a.txt.part"), "hello ");
+
+        FakeConnection connection = new FakeConnection();
+        connection.respond(206, "world", -1);
+        new FileManager(JsonCodec.getDefault(), connection).download(file(11), target, null);
+
+        assertEquals(Arrays.asList(6L), connection.offsets);
+        assertEquals(CONTENTS, read(target));
+    }
+
+    @Test
+    public void resumesAfterATransferFails() throws IOException {
+        Path target = Files.createTempDirectory("download").resolve("a.txt");
+
+        FakeConnection connection = new FakeConnection();
+        connection.respond(200, CONTENTS, 4);
+        connection.respond(206, "o world", -1);
+        new FileManager(JsonCodec.getDefault(), connection).download(file(11), target, null);
+
+        assertEquals(Arrays.asList(0L, 4L), connection.offsets);
+        assertEquals(CONTENTS, read(target));
+    }
+
+    @Test
+    public void restartsWhenTheRangeIsIgnored() throws IOException {
+        Path dir = Files.createTempDirectory("download");
+        Path target = dir.resolve("a.txt");
+        write(dir.resolve("a.txt.part"), "stale");
+
+        FakeConnection connection = new FakeConnection();
+        connection.respond(200, CONTENTS, -1);
+        new FileManager(JsonCodec.getDefault(), connection).download(file(11), target, null);
+
+        assertEquals(Arrays.asList(5L), connection.offsets);
+        assertEquals(CONTENTS, read(target));
+    }
+
+    @Test
+    public void finishesWhenTheRangeIsNotSatisfiable() throws IOException {
+        Path dir = Files.createTempDirectory("download");
+        Path target = dir.resolve("a.txt");
+        write(dir.resolve("a.txt.part"), CONTENTS);
+
+        // Without a size the part can only be trusted
+        FakeConnection connection = new FakeConnection();
+        connection.respond(416, "", -1);
+        assertEquals(11, new FileManager(JsonCodec.getDefault(), connection).download(file(0), target, null));
+        assertEquals(Arrays.asList(11L), connection.offsets);
+        assertEquals(CONTENTS, read(target));
+    }
+
+    @Test
+    public void restartsWhenTheRangeIsNotSatisfiableForAShorterPart() throws IOException {
+        Path dir = Files.createTempDirectory("download");
+        Path target = dir.resolve("a.txt");
+        write(dir.resolve("a.txt.part"), "hello");
+
+        FakeConnection connection = new FakeConnection();
+        connection.respond(416, "", -1);
+        connection.respond(200, CONTENTS, -1);
+        new FileManager(JsonCodec.getDefault(), connection).download(file(11), target, null);
+
+        assertEquals(Arrays.asList(5L, 0L), connection.offsets);
+        assertEquals(CONTENTS, read(target));
+    }
+
+    @Test
+    public void listsFilesAPageAtATime() throws Exception {
+        FakeConnection connection = new FakeConnection();
+        connection.getRateLimits().limit(SlackConstants.FILE_LIST, 60000);
+        connection.pages.add("{\"ok\":true,\"files\":[{\"id\":\"F1\",\"created\":1},{\"id\":\"F2\",\"created\":1}],\"paging\":{\"pages\":2,\"total\":3}}");
+        connection.pages.add("{\"ok\":true,\"files\":[{\"id\":\"F3\",\"created\":1}],\"paging\":{\"pages\":2,\"total\":3}}");
+
+        FileIterator files = new FileManager(JsonCodec.getDefault(), connection).listFiles(FileQuery.builder().pageSize(2).build());
+        assertEquals(-1, files.getTotal());
+
+        List<ObjectID> ids = new ArrayList<>();
+        while (files.hasNext())
+            ids.add(files.next().getId());
+
+        assertEquals(Arrays.asList(ObjectID.of("F1"), ObjectID.of("F2"), ObjectID.of("F3")), ids);
+        assertEquals(3, files.getTotal());
+        assertEquals(2, connection.requests.size());
+        assertEquals(1, connection.requests.get(0).get("page"));
+        assertEquals(2, connection.requests.get(1).get("page"));
+        assertEquals(2, connection.requests.get(1).get("count"));
+    }
+
+    private static class FakeConnection extends SlackConnection {
+        private final Deque<FakeDownload> downloads = new ArrayDeque<>();
+        private final List<Long> offsets = new ArrayList<>();
+        private final Deque<String> pages = new ArrayDeque<>();
+        private final List<Map<String, Object>> requests = new ArrayList<>();
+
+        FakeConnection() {
+            super("xoxb-test");
+        }
+
+        void respond(int code, String body, int failAfter) {
+            downloads.add(new FakeDownload(code, body.getBytes(StandardCharsets.UTF_8), failAfter));
+        }
+
+        @Override
+        public HttpsURLConnection openDownload(URI url, long offset) {
+            offsets.add(offset);
+            return downloads.remove();
+        }
+
+        @Override
+        public JsonObject callMethodHandled(SlackConstants method, Map<String, Object> params) {
+            requests.add(new HashMap<>(params));
+            return new JsonParser().parse(pages.remove()).getAsJsonObject();
+        }
+    }
+
+    private static class FakeDownload extends HttpsURLConnection {
+        private final int code;
+        private final byte[] body;
+        private final int failAfter;
+
+        FakeDownload(int code, byte[] body, int failAfter) {
+            super(null);
+            this.code = code;
+            this.body = body;
+            this.failAfter = failAfter;
+        }
+
+        @Override
+        public int getResponseCode() {
+            return code;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            if (failAfter < 0)
+                return new ByteArrayInputStream(body);
+            // Sends the first bytes then drops the connection
+            return new InputStream() {
+                private int position;
+
+                @Override
+                public int read() throws IOException {
+                    if (position == failAfter)
+                        throw new IOException("Connection reset");
+                    return body[position++] & 0xFF;
+                }
+            };
+        }
+
+        @Override
+        public void connect() {
+        }
+
+        @Override
+        public void disconnect() {
+        }
+
+        @Override
+        public boolean usingProxy() {
+            return false;
+        }
+
+        @Override
+        public String getCipherSuite() {
+            return null;
+        }
+
+        @Override
+        public Certificate[] getLocalCertificates() {
+            return null;
+        }
+
+        @Override
+        public Certificate[] getServerCertificates() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package au.com.addstar.slackapi;
+
+import au.com.addstar.slackapi.objects.Message;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JsonCodecTest {
+
+    @Test
+    public void defaultsToGson() {
+        assertTrue(JsonCodec.getDefault() instanceof GsonCodec);
+    }
+
+    @Test
+    public void elementMethodsMatchStreaming() throws Exception {
+        JsonCodec codec = new GsonCodec();
+        String json = "{\"type\":\"message\",\"text\":\"hi\",\"ts\":\"1561412399.000200\",\"channel\":\"C1\"}";
+        Message streamed = codec.decode(new StringReader(json), Message.class);
+        JsonObject tree = codec.encodeTree(streamed).getAsJsonObject();
+        Message decoded = codec.decode(tree, Message.class);
+
+        assertEquals("hi", decoded.getText());
+        assertEquals("C1", tree.get("channel").getAsString());
+        assertEquals(codec.encode(streamed), codec.encode(decoded));
+    }
+}
@@ -0,0 +1,159 @@
+package au.com.addstar.slackapi;
+
+import au.com.addstar.slackapi.events.RealTimeEvent;
+import au.com.addstar.slackapi.exceptions.SlackRTException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ListenerStatsTest {
+
+    private static class RecordingListener implements RealTimeListener {
+        private final List<String> calls = new CopyOnWriteArrayList<>();
+        private final List<Thread> threads = new CopyOnWriteArrayList<>();
+        private final CountDownLatch closed = new CountDownLatch(1);
+        private volatile long sleep;
+
+        private void called(String call) {
+            calls.add(call);
+            threads.add(Thread.currentThread());
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void onLoginComplete() {
+            called("login");
+        }
+
+        @Override
+        public void onEvent(RealTimeEvent event) {
+            called("event");
+        }
+
+        @Override
+        public void onError(SlackRTException cause) {
+            called("error");
+        }
+
+        @Override
+        public void onClose() {
+            called("close");
+            closed.countDown();
+        }
+    }
+
+    @Test
+    public void bucketsArePowersOfTwoMicroseconds() {
+        ListenerStats stats = new ListenerStats();
+        stats.record(TimeUnit.MICROSECONDS.toNanos(0));
+        stats.record(TimeUnit.MICROSECONDS.toNanos(1));
+        stats.record(TimeUnit.MICROSECONDS.toNanos(3));
+        stats.record(TimeUnit.MICROSECONDS.toNanos(4));
+        stats.record(TimeUnit.MICROSECONDS.toNanos(1000));
+        stats.record(TimeUnit.DAYS.toNanos(7));
+
+        long[] histogram = stats.getHistogram();
+        assertEquals(32, histogram.length);
+        assertEquals(1, histogram[0]);
+        assertEquals(1, histogram[1]);
+        assertEquals(1, histogram[2]);
+        assertEquals(1, histogram[3]);
+        // 1000us is under 1024us
+        assertEquals(1, histogram[10]);
+        // Anything longer goes in the last bucket
+        assertEquals(1, histogram[31]);
+
+        assertEquals(6, stats.getInvocations());
+        assertEquals(TimeUnit.DAYS.toMicros(7), stats.getMaxLatency(TimeUnit.MICROSECONDS));
+        assertEquals(4, stats.getLatencyPercentile(50, TimeUnit.MICROSECONDS));
+        assertEquals(1024, stats.getLatencyPercentile(80, TimeUnit.MICROSECONDS));
+        assertEquals(1L << 31, stats.getLatencyPercentile(100, TimeUnit.MICROSECONDS));
+    }
+
+    @Test
+    public void emptyStatsReportZero() {
+        ListenerStats stats = new ListenerStats();
+        assertEquals(0, stats.getMeanLatency(TimeUnit.NANOSECONDS));
+        assertEquals(0, stats.getLatencyPercentile(99, TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void slowListenersAreFlaggedButStayInlineWithoutQuarantine() {
+        RecordingListener listener = new RecordingListener();
+        ListenerHandle handle = new ListenerHandle(listener, TimeUnit.MILLISECONDS.toNanos(50), false);
+
+        listener.sleep = 100;
+        handle.deliver(RealTimeListener::onLoginComplete);
+        listener.sleep = 0;
+        handle.deliver(l -> l.onEvent(null));
+
+        assertTrue(handle.stats.isSlow());
+        assertFalse(handle.stats.isQuarantined());
+        assertEquals(Thread.currentThread(), listener.threads.get(1));
+        handle.shutdown();
+    }
+
+    @Test
+    public void quarantinedListenersGetLaterCallsOnTheirOwnThread() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        ListenerHandle handle = new ListenerHandle(listener, TimeUnit.MILLISECONDS.toNanos(50), true);
+
+        handle.deliver(RealTimeListener::onLoginComplete);
+        assertFalse(handle.stats.isQuarantined());
+
+        // Over budget, so the next calls are handed to its own executor
+        listener.sleep = 100;
+        handle.deliver(l -> l.onEvent(null));
+        assertTrue(handle.stats.isSlow());
+        assertTrue(handle.stats.isQuarantined());
+        listener.sleep = 0;
+        handle.deliver(l -> l.onError(null));
+
+        // onClose still reaches it once the session shuts the handle down
+        handle.deliver(RealTimeListener::onClose);
+        handle.shutdown();
+        assertTrue(listener.closed.await(1, TimeUnit.SECONDS));
+
+        assertEquals(4, listener.calls.size());
+        assertEquals("close", listener.calls.get(3));
+        assertEquals(Thread.currentThread(), listener.threads.get(1));
+        assertNotEquals(Thread.currentThread(), listener.threads.get(2));
+        assertEquals(listener.threads.get(2), listener.threads.get(3));
+
+        // Calls after the shutdown run inline rather than being lost
+        handle.deliver(l -> l.onEvent(null));
+        assertEquals(Thread.currentThread(), listener.threads.get(4));
+    }
+
+    @Test
+    public void errorsAreCounted() {
+        ListenerHandle handle = new ListenerHandle(new RecordingListener() {
+            @Override
+            public void onEvent(RealTimeEvent event) {
+                throw new IllegalStateException("bad");
+            }
+        }, 0, false);
+
+        handle.deliver(l -> l.onEvent(null));
+        handle.deliver(RealTimeListener::onLoginComplete);
+
+        assertEquals(2, handle.stats.getInvocations());
+        assertEquals(1, handle.stats.getErrors());
+        assertTrue(handle.stats.getLastError() instanceof IllegalStateException);
+        assertFalse(handle.stats.isSlow());
+    }
+}
@@ -0,0 +1,112 @@
+package au.com.addstar.slackapi;
+
+import au.com.addstar.slackapi.exceptions.SlackMesssageInvalidException;
+import au.com.addstar.slackapi.objects.Message;
+import au.com.addstar.slackapi.objects.ObjectID;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MessageTemplateTest {
+
+    private static MessageTemplate compile(String json) {
+        return MessageTemplate.compile(new JsonParser().parse(json).getAsJsonObject(), ObjectID.of("C024BE91L"));
+    }
+
+    private static JsonObject parse(byte[] filled) {
+        return new JsonParser().parse(new String(filled, StandardCharsets.UTF_8)).getAsJsonObject();
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    @Test
+    public void fillsSlotsWithEscapedValues() {
+        MessageTemplate template = compile("{\"text\":\"Alert {{name}}: {{detail}}\",\"blocks\":[{\"type\":\"section\",\"text\":{\"type\":\"mrkdwn\",\"text\":\"*{{name}}*\"}}]}");
+        assertEquals(2, template.getSlotNames().size());
+
+        Map<String, Object> values = new HashMap<>();
+        values.put("name", "disk \"full\"");
+        values.put("detail", "line1\nline2 \\ \u00e9 \ud83d\ude00 \u0001");
+        JsonObject message = parse(template.fill(values));
+
+        assertEquals("C024BE91L", message.get("channel").getAsString());
+        assertEquals("Alert disk \"full\": line1\nline2 \\ \u00e9 \ud83d\ude00 \u0001", message.get("text").getAsString());
+        assertEquals("*disk \"full\"*", message.getAsJsonArray("blocks").get(0).getAsJsonObject()
+                .getAsJsonObject("text").get("text").getAsString());
+    }
+
+    @Test
+    public void swapsChannel() {
+        MessageTemplate template = compile("{\"text\":\"{{x}} and {{not a slot}}\"}");
+        JsonObject message = parse(template.fill(ObjectID.of("G024BE91L"), Collections.singletonMap("x", 1)));
+        assertEquals("G024BE91L", message.get("channel").getAsString());
+        assertEquals("1 and {{not a slot}}", message.get("text").getAsString());
+    }
+
+    @Test
+    public void rejectsMissingValues() {
+        MessageTemplate template = compile("{\"text\":\"{{x}}\"}");
+        assertThrows(IllegalArgumentException.class, () -> template.fill(Collections.emptyMap()));
+    }
+
+    @Test
+    public void channelSlotIsOnlyWhereTheCompilerPutIt() {
+        MessageTemplate template = compile("{\"channel\":\"C1\",\"text\":\"see {{#channel}} {{x}}\"}");
+        assertEquals(Collections.singleton("x"), template.getSlotNames());
+
+        JsonObject message = parse(template.fill(Collections.singletonMap("x", "y")));
+        assertEquals("C024BE91L", message.get("channel").getAsString());
+        assertEquals("see {{#channel}} y", message.get("text").getAsString());
+
+        message = parse(MessageTemplate.compileChannelOnly(new JsonObject()).fill(ObjectID.of("C2"), Collections.emptyMap()));
+        assertEquals("{\"channel\":\"C2\"}", message.toString());
+    }
+
+    @Test
+    public void checksLengthsWhenFilled() throws Exception {
+        SlackAPI api = new SlackAPI("xoxb-test");
+        MessageTemplate template = api.compileTemplate(Message.builder().text("{{x}}").conversationID(ObjectID.of("C1")).build(), MessageOptions.DEFAULT);
+
+        char[] tooLong = new char[40001];
+        Arrays.fill(tooLong, 'a');
+        assertThrows(SlackMesssageInvalidException.class,
+                () -> api.sendMessage(template, Collections.singletonMap("x", new String(tooLong))));
+    }
+
+    @Test
+    public void slotsShareTheLimitOfTheirString() {
+        MessageTemplate template = compile("{\"text\":\"x\",\"blocks\":[{\"type\":\"section\",\"text\":{\"type\":\"mrkdwn\",\"text\":\"*{{a}}{{b}}*\"}}]}");
+        Map<String, Object> values = new HashMap<>();
+        // A section text can have 3000 characters, two are the asterisks
+        values.put("a", repeat('a', 2000));
+        values.put("b", repeat('b', 998));
+        assertEquals(3000, parse(template.fill(values)).getAsJsonArray("blocks").get(0).getAsJsonObject()
+                .getAsJsonObject("text").get("text").getAsString().length());
+
+        values.put("b", repeat('b', 999));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> template.fill(values));
+        assertEquals("chat.postMessage : blocks[0].text.text is longer than 3000 characters", e.getMessage());
+    }
+
+    @Test
+    public void slotsInUnlimitedStringsAreNotChecked() {
+        MessageTemplate template = compile("{\"text\":\"x\",\"{{key}}\":\"{{value}}\"}");
+        Map<String, Object> values = new HashMap<>();
+        values.put("key", "k");
+        values.put("value", repeat('v', 50000));
+        assertEquals(50000, parse(template.fill(values)).get("k").getAsString().length());
+    }
+}
@@ -0,0 +1,171 @@
+package au.com.addstar.slackapi;
+
+import au.com.addstar.slackapi.exceptions.SlackAuthException;
+import au.com.addstar.slackapi.exceptions.SlackException;
+import au.com.addstar.slackapi.internal.SlackConnection;
+import au.com.addstar.slackapi.internal.SlackConstants;
+import au.com.addstar.slackapi.objects.Message;
+import au.com.addstar.slackapi.objects.ObjectID;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OutboxTest {
+
+    private static class RecordingConnection extends SlackConnection {
+        private final List<String> texts = new CopyOnWriteArrayList<>();
+        private final boolean offline;
+
+        RecordingConnection(boolean offline) {
+            super("token");
+            this.offline = offline;
+        }
+
+        @Override
+        public JsonObject callMethodHandled(SlackConstants method, byte[] body) throws IOException {
+            if (offline)
+                throw new IOException("offline");
+            assertEquals(SlackConstants.CHAT_POST, method);
+            JsonObject object = new JsonParser().parse(new String(body, StandardCharsets.UTF_8)).getAsJsonObject();
+            texts.add(object.get("text").getAsString());
+            return new JsonObject();
+        }
+    }
+
+    private static class FailingConnection extends SlackConnection {
+        // The errors returned for each text before it is posted
+        private final Map<String, List<String>> errors = new ConcurrentHashMap<>();
+        private final List<String> texts = new CopyOnWriteArrayList<>();
+
+        FailingConnection() {
+            super("token");
+        }
+
+        @Override
+        public JsonObject callMethodHandled(SlackConstants method, byte[] body) throws SlackException {
+            JsonObject object = new JsonParser().parse(new String(body, StandardCharsets.UTF_8)).getAsJsonObject();
+            String text = object.get("text").getAsString();
+            List<String> pending = errors.get(text);
+            if (pending != null && !pending.isEmpty()) {
+                String error = pending.remove(0);
+                throw "invalid_auth".equals(error) ? new SlackAuthException(error) : new SlackException(error);
+            }
+            texts.add(text);
+            return new JsonObject();
+        }
+    }
+
+    private static Message text(String text) {
+        return Message.builder().text(text).conversationID(ObjectID.of("C1")).build();
+    }
+
+    private static void waitFor(List<String> texts, int count) throws InterruptedException {
+        waitFor(texts, count, 200);
+    }
+
+    private static void waitFor(List<String> texts, int count, int tries) throws InterruptedException {
+        for (int i = 0; i < tries && texts.size() < count; ++i)
+            Thread.sleep(10);
+    }
+
+    @Test
+    public void replaysMessagesThatWereNotPosted() throws Exception {
+        Path directory = Files.createTempDirectory("outbox");
+        SlackAPI api = new SlackAPI("token");
+
+        try (Outbox outbox = new Outbox(api, new RecordingConnection(true), directory, OutboxOptions.DEFAULT)) {
+            assertTrue(outbox.send(text("one"), MessageOptions.DEFAULT, "a"));
+            assertFalse(outbox.send(text("again"), MessageOptions.DEFAULT, "a"));
+            outbox.send(text("two"));
+            outbox.flush();
+            assertEquals(2, outbox.getPendingCount());
+        }
+
+        // A write cut off by a crash
+        try (Stream<Path> files = Files.list(directory)) {
+            Path segment = files.sorted().collect(Collectors.toList()).get(0);
+            Files.write(segment, new byte[] {1, 0, 0}, StandardOpenOption.APPEND);
+        }
+
+        RecordingConnection online = new RecordingConnection(false);
+        try (Outbox outbox = new Outbox(api, online, directory, OutboxOptions.DEFAULT)) {
+            assertFalse(outbox.send(text("again"), MessageOptions.DEFAULT, "a"));
+            waitFor(online.texts, 2);
+            assertEquals(2, online.texts.size());
+            assertEquals("one", online.texts.get(0));
+            assertEquals("two", online.texts.get(1));
+        }
+
+        RecordingConnection after = new RecordingConnection(false);
+        try (Outbox outbox = new Outbox(api, after, directory, OutboxOptions.DEFAULT)) {
+            Thread.sleep(100);
+            assertEquals(0, outbox.getPendingCount());
+            assertTrue(after.texts.isEmpty());
+        }
+    }
+
+    @Test
+    public void sendReturnsOnceTheMessageIsOnDisk() throws Exception {
+        Path directory = Files.createTempDirectory("outbox");
+        try (Outbox outbox = new Outbox(new SlackAPI("token"), new RecordingConnection(true), directory, OutboxOptions.DEFAULT)) {
+            outbox.send(text("durable"));
+            assertTrue(contents(directory).contains("durable"));
+
+            assertTrue(outbox.enqueue(text("queued"), MessageOptions.DEFAULT, "b"));
+            assertFalse(outbox.enqueue(text("queued"), MessageOptions.DEFAULT, "b"));
+            outbox.flush();
+            assertTrue(contents(directory).contains("queued"));
+        }
+    }
+
+    @Test
+    public void retriesTransientErrorsAndReportsDroppedMessages() throws Exception {
+        Path directory = Files.createTempDirectory("outbox");
+        FailingConnection connection = new FailingConnection();
+        connection.errors.put("retried", new CopyOnWriteArrayList<>(Arrays.asList("internal_error", "invalid_auth")));
+        connection.errors.put("rejected", new CopyOnWriteArrayList<>(Collections.singletonList("channel_not_found")));
+        Map<String, String> dropped = new ConcurrentHashMap<>();
+        OutboxOptions options = OutboxOptions.builder()
+                .maxRetryDelay(0)
+                .listener((key, cause) -> dropped.put(key, cause.getCode()))
+                .build();
+
+        try (Outbox outbox = new Outbox(new SlackAPI("token"), connection, directory, options)) {
+            outbox.send(text("retried"), MessageOptions.DEFAULT, "a");
+            outbox.send(text("rejected"), MessageOptions.DEFAULT, "b");
+            outbox.send(text("after"), MessageOptions.DEFAULT, "c");
+            waitFor(connection.texts, 2, 500);
+
+            assertEquals(Arrays.asList("retried", "after"), connection.texts);
+            assertEquals(Collections.singletonMap("b", "channel_not_found"), dropped);
+            assertEquals(0, outbox.getPendingCount());
+        }
+    }
+
+    private static String contents(Path directory) throws IOException {
+        StringBuilder contents = new StringBuilder();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.collect(Collectors.toList()))
+                contents.append(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        }
+        return contents.toString();
+    }
+}
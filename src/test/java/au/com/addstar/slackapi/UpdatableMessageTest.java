@@ -0,0 +1,208 @@
+package au.com.addstar.slackapi;
+
+import au.com.addstar.slackapi.exceptions.SlackRequestLimitException;
+import au.com.addstar.slackapi.internal.SlackConnection;
+import au.com.addstar.slackapi.internal.SlackConstants;
+import au.com.addstar.slackapi.objects.Message;
+import au.com.addstar.slackapi.objects.ObjectID;
+import au.com.addstar.slackapi.objects.SlackTimestamp;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UpdatableMessageTest {
+
+    private static class RecordingConnection extends SlackConnection {
+        private final List<JsonObject> calls = new CopyOnWriteArrayList<>();
+        // Thrown by the next calls instead of recording them
+        private final List<Exception> failures = new CopyOnWriteArrayList<>();
+
+        RecordingConnection() {
+            super("token");
+            // Updates are let through straight away
+            getRateLimits().limit(SlackConstants.CHAT_UPDATE, 60000);
+        }
+
+        @Override
+        public JsonObject callMethodHandled(SlackConstants method, byte[] body) throws IOException, SlackRequestLimitException {
+            assertEquals(SlackConstants.CHAT_UPDATE, method);
+            if (!failures.isEmpty()) {
+                Exception failure = failures.remove(0);
+                if (failure instanceof IOException)
+                    throw (IOException) failure;
+                throw (SlackRequestLimitException) failure;
+            }
+            calls.add(new JsonParser().parse(new String(body, StandardCharsets.UTF_8)).getAsJsonObject());
+            return new JsonObject();
+        }
+    }
+
+    /**
+     * Holds scheduled tasks until the test runs them, as if their delay had passed
+     */
+    private static class ManualScheduler extends ScheduledThreadPoolExecutor {
+        private final List<Task> tasks = new ArrayList<>();
+
+        ManualScheduler() {
+            super(1);
+        }
+
+        @Override
+        public synchronized ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            Task task = new Task(command, unit.toNanos(delay));
+            tasks.add(task);
+            return task;
+        }
+
+        synchronized List<Task> getScheduled() {
+            List<Task> scheduled = new ArrayList<>();
+            for (Task task : tasks) {
+                if (!task.isCancelled())
+                    scheduled.add(task);
+            }
+            return scheduled;
+        }
+
+        void runScheduled() {
+            List<Task> due;
+            synchronized (this) {
+                due = new ArrayList<>(tasks);
+                tasks.clear();
+            }
+            for (Task task : due)
+                task.run();
+        }
+    }
+
+    private static class Task extends FutureTask<Void> implements ScheduledFuture<Void> {
+        private final long delayNanos;
+
+        Task(Runnable command, long delayNanos) {
+            super(command, null);
+            this.delayNanos = delayNanos;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(delayNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    private static Message text(String text) {
+        Message message = new Message();
+        message.setText(text);
+        return message;
+    }
+
+    private static UpdatableMessage updatable(RecordingConnection connection, ManualScheduler scheduler) {
+        return new UpdatableMessage(new SlackAPI("token"), connection, scheduler,
+                ObjectID.of("C1"), SlackTimestamp.parse("1.000001"), MessageOptions.DEFAULT, 1, TimeUnit.HOURS);
+    }
+
+    @Test
+    public void coalescesAndSkipsIdenticalUpdates() throws Exception {
+        RecordingConnection connection = new RecordingConnection();
+        ManualScheduler scheduler = new ManualScheduler();
+        try {
+            UpdatableMessage message = updatable(connection, scheduler);
+
+            assertFalse(message.flush());
+            for (int i = 0; i <= 100; ++i)
+                message.update(text(i + "%"));
+            assertEquals(1, scheduler.getScheduled().size());
+            assertEquals(0, scheduler.getScheduled().get(0).getDelay(TimeUnit.NANOSECONDS));
+            scheduler.runScheduled();
+
+            assertEquals(1, connection.calls.size());
+            JsonObject sent = connection.calls.get(0);
+            assertEquals("C1", sent.get("channel").getAsString());
+            assertEquals("1.000001", sent.get("ts").getAsString());
+            assertEquals("100%", sent.get("text").getAsString());
+
+            // Waits for the interval
+            message.update(text("done"));
+            assertTrue(scheduler.getScheduled().get(0).getDelay(TimeUnit.MINUTES) > 50);
+            assertTrue(message.flush());
+            assertEquals("done", connection.calls.get(1).get("text").getAsString());
+            assertTrue(scheduler.getScheduled().isEmpty());
+
+            message.update(text("done"));
+            assertFalse(message.flush());
+            assertEquals(2, connection.calls.size());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void doesNotResendTheFirstState() throws Exception {
+        RecordingConnection connection = new RecordingConnection();
+        ManualScheduler scheduler = new ManualScheduler();
+        try {
+            UpdatableMessage message = updatable(connection, scheduler);
+            message.seed(text("0%"));
+
+            message.update(text("0%"));
+            message.flush();
+            assertEquals(0, connection.calls.size());
+            message.update(text("1%"));
+            assertTrue(message.flush());
+            assertEquals(1, connection.calls.size());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void retriesAFailedStateUnlessANewerOneArrived() throws Exception {
+        RecordingConnection connection = new RecordingConnection();
+        ManualScheduler scheduler = new ManualScheduler();
+        try {
+            UpdatableMessage message = updatable(connection, scheduler);
+
+            connection.failures.add(new IOException("offline"));
+            message.update(text("1%"));
+            scheduler.runScheduled();
+            assertTrue(connection.calls.isEmpty());
+            // Put back and tried again after the interval
+            assertEquals(1, scheduler.getScheduled().size());
+            connection.failures.add(new SlackRequestLimitException(System.currentTimeMillis() + 1000));
+            scheduler.runScheduled();
+            scheduler.runScheduled();
+            assertEquals(1, connection.calls.size());
+            assertEquals("1%", connection.calls.get(0).get("text").getAsString());
+
+            connection.failures.add(new IOException("offline"));
+            message.update(text("2%"));
+            assertThrows(IOException.class, message::flush);
+            message.update(text("3%"));
+            assertTrue(message.flush());
+            assertEquals("3%", connection.calls.get(1).get("text").getAsString());
+            assertFalse(message.flush());
+            assertEquals(2, connection.calls.size());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package au.com.addstar.slackapi.internal;
+
+import au.com.addstar.slackapi.exceptions.SlackCircuitOpenException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CircuitBreakersTest {
+
+    private static void fail(CircuitBreakers breakers, SlackConstants method, int times) throws Exception {
+        for (int i = 0; i < times; ++i) {
+            breakers.onFailure(method, breakers.acquire(method));
+        }
+    }
+
+    @Test
+    public void opensOnFailuresAndFailsFast() throws Exception {
+        CircuitBreakers breakers = new CircuitBreakers(10, 4, 0.5, 1, 1, TimeUnit.HOURS);
+        breakers.onSuccess(SlackConstants.CONVERSATION_HISTORY, breakers.acquire(SlackConstants.CONVERSATION_HISTORY), 1000);
+        fail(breakers, SlackConstants.CONVERSATION_HISTORY, 2);
+        assertEquals(CircuitBreakers.State.CLOSED, breakers.getState(SlackConstants.CONVERSATION_HISTORY));
+
+        fail(breakers, SlackConstants.CONVERSATION_HISTORY, 1);
+        assertEquals(CircuitBreakers.State.OPEN, breakers.getState(SlackConstants.CONVERSATION_HISTORY));
+        SlackCircuitOpenException e = assertThrows(SlackCircuitOpenException.class,
+                () -> breakers.acquire(SlackConstants.CONVERSATION_HISTORY));
+        assertSame(SlackConstants.CONVERSATION_HISTORY, e.getMethod());
+
+        // Other methods have their own breaker
+        breakers.acquire(SlackConstants.CHAT_POST);
+    }
+
+    @Test
+    public void slowCallsCountAsFailures() throws Exception {
+        CircuitBreakers breakers = new CircuitBreakers(4, 2, 1.0, 10, 1, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 2; ++i) {
+            breakers.onSuccess(SlackConstants.CHAT_POST, breakers.acquire(SlackConstants.CHAT_POST), TimeUnit.SECONDS.toNanos(1));
+        }
+        assertEquals(CircuitBreakers.State.OPEN, breakers.getState(SlackConstants.CHAT_POST));
+    }
+
+    @Test
+    public void halfOpenLetsOneProbeThrough() throws Exception {
+        CircuitBreakers breakers = new CircuitBreakers(4, 2, 0.5, 1, 20, TimeUnit.MILLISECONDS);
+        fail(breakers, SlackConstants.CHAT_POST, 2);
+        Thread.sleep(40);
+        assertEquals(CircuitBreakers.State.HALF_OPEN, breakers.getState(SlackConstants.CHAT_POST));
+
+        long probe = breakers.acquire(SlackConstants.CHAT_POST);
+        assertThrows(SlackCircuitOpenException.class, () -> breakers.acquire(SlackConstants.CHAT_POST));
+        breakers.onFailure(SlackConstants.CHAT_POST, probe);
+        assertEquals(CircuitBreakers.State.OPEN, breakers.getState(SlackConstants.CHAT_POST));
+
+        Thread.sleep(40);
+        breakers.onSuccess(SlackConstants.CHAT_POST, breakers.acquire(SlackConstants.CHAT_POST), 1000);
+        assertEquals(CircuitBreakers.State.CLOSED, breakers.getState(SlackConstants.CHAT_POST));
+        breakers.acquire(SlackConstants.CHAT_POST);
+        breakers.acquire(SlackConstants.CHAT_POST);
+    }
+
+    @Test
+    public void onlyTheProbeDecidesAHalfOpenBreaker() throws Exception {
+        CircuitBreakers breakers = new CircuitBreakers(4, 2, 0.5, 1, 20, TimeUnit.MILLISECONDS);
+        // Started before the breaker opened and still in flight when the probe starts
+        long early = breakers.acquire(SlackConstants.CHAT_POST);
+        fail(breakers, SlackConstants.CHAT_POST, 2);
+        Thread.sleep(40);
+        long probe = breakers.acquire(SlackConstants.CHAT_POST);
+
+        breakers.onSuccess(SlackConstants.CHAT_POST, early, 1000);
+        assertEquals(CircuitBreakers.State.HALF_OPEN, breakers.getState(SlackConstants.CHAT_POST));
+        breakers.onFailure(SlackConstants.CHAT_POST, early);
+        assertEquals(CircuitBreakers.State.HALF_OPEN, breakers.getState(SlackConstants.CHAT_POST));
+
+        breakers.onSuccess(SlackConstants.CHAT_POST, probe, 1000);
+        assertEquals(CircuitBreakers.State.CLOSED, breakers.getState(SlackConstants.CHAT_POST));
+    }
+
+    @Test
+    public void replacesAProbeThatNeverReports() throws Exception {
+        CircuitBreakers breakers = new CircuitBreakers(4, 2, 0.5, 1, 20, TimeUnit.MILLISECONDS);
+        fail(breakers, SlackConstants.CHAT_POST, 2);
+        Thread.sleep(40);
+        long lost = breakers.acquire(SlackConstants.CHAT_POST);
+        Thread.sleep(40);
+        long probe = breakers.acquire(SlackConstants.CHAT_POST);
+
+        // The first probe was given up on so it can no longer decide
+        breakers.onFailure(SlackConstants.CHAT_POST, lost);
+        assertEquals(CircuitBreakers.State.HALF_OPEN, breakers.getState(SlackConstants.CHAT_POST));
+        breakers.onSuccess(SlackConstants.CHAT_POST, probe, 1000);
+        assertEquals(CircuitBreakers.State.CLOSED, breakers.getState(SlackConstants.CHAT_POST));
+    }
+}
@@ -0,0 +1,70 @@
+package au.com.addstar.slackapi.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompactBitmapTest {
+
+    private static void assertBits(BitSet expected, CompactBitmap actual) {
+        assertEquals(expected.cardinality(), actual.cardinality());
+        assertEquals(expected, toBitSet(actual));
+    }
+
+    private static BitSet toBitSet(CompactBitmap bitmap) {
+        BitSet set = new BitSet();
+        bitmap.forEach(set::set);
+        return set;
+    }
+
+    @Test
+    public void addsAndRemovesAcrossContainerKinds() {
+        Random random = new Random(42);
+        BitSet expected = new BitSet();
+        CompactBitmap bitmap = new CompactBitmap();
+        for (int i = 0; i < 20000; ++i) {
+            int value = random.nextInt(200000);
+            assertEquals(!expected.get(value), bitmap.add(value));
+            expected.set(value);
+        }
+        for (int i = 0; i < 15000; ++i) {
+            int value = random.nextInt(200000);
+            assertEquals(expected.get(value), bitmap.remove(value));
+            expected.clear(value);
+        }
+        assertBits(expected, bitmap);
+        assertTrue(bitmap.contains(expected.nextSetBit(0)));
+        assertFalse(bitmap.contains(-1));
+    }
+
+    @Test
+    public void intersectsAndUnites() {
+        Random random = new Random(7);
+        BitSet left = new BitSet();
+        BitSet right = new BitSet();
+        CompactBitmap a = new CompactBitmap();
+        CompactBitmap b = new CompactBitmap();
+        for (int i = 0; i < 30000; ++i) {
+            int value = random.nextInt(70000);
+            left.set(value);
+            a.add(value);
+            value = random.nextInt(i % 2 == 0 ? 70000 : 5000);
+            right.set(value);
+            b.add(value);
+        }
+
+        BitSet and = (BitSet) left.clone();
+        and.and(right);
+        assertBits(and, CompactBitmap.and(a, b));
+
+        BitSet or = (BitSet) left.clone();
+        or.or(right);
+        assertBits(or, CompactBitmap.or(a, b));
+        assertBits(left, a);
+    }
+}
@@ -0,0 +1,61 @@
+package au.com.addstar.slackapi.internal;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrencyLimiterTest {
+
+    private static void runSaturated(ConcurrencyLimiter limiter, int requests, long latency) throws Exception {
+        for (int i = 0; i < requests; ++i) {
+            int limit = limiter.getLimit();
+            for (int j = 0; j < limit; ++j)
+                limiter.acquire();
+            for (int j = 0; j < limit; ++j)
+                limiter.onSuccess(latency);
+        }
+    }
+
+    @Test
+    public void growsWhileLatencyIsFlat() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 1, 64);
+        runSaturated(limiter, 20, 1000000);
+        assertTrue(limiter.getLimit() > 4, "Limit is " + limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void doesNotGrowWhenIdle() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(8, 1, 64);
+        for (int i = 0; i < 100; ++i) {
+            limiter.acquire();
+            limiter.onSuccess(1000000);
+        }
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    public void halvesOnRateLimit() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(16, 2, 64);
+        limiter.acquire();
+        limiter.onLimited();
+        assertEquals(8, limiter.getLimit());
+        for (int i = 0; i < 10; ++i) {
+            limiter.acquire();
+            limiter.onLimited();
+        }
+        assertEquals(2, limiter.getLimit());
+        assertEquals(11, limiter.getLimitedCount());
+    }
+
+    @Test
+    public void backsOffWhenLatencyRises() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 1, 64);
+        limiter.acquire();
+        limiter.onSuccess(1000000);
+        limiter.acquire();
+        limiter.onSuccess(5000000);
+        assertEquals(9, limiter.getLimit());
+    }
+}
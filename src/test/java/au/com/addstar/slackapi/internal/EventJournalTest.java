@@ -0,0 +1,154 @@
+package au.com.addstar.slackapi.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EventJournalTest {
+
+    private static List<String> readAll(EventJournal journal, long offset) {
+        List<String> frames = new ArrayList<>();
+        journal.read(offset, (recordOffset, ts, frame) -> frames.add(frame));
+        return frames;
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void recoversUpToATornRecord() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        long end;
+        try (EventJournal journal = new EventJournal(directory, 4096, 4, 1000)) {
+            journal.append(CharBuffer.wrap("{\"a\":1}"), 1);
+            journal.append(CharBuffer.wrap("{\"b\":2}"), 2);
+            end = journal.getEndOffset();
+        }
+
+        // A record whose frame and ts were written but not its length, which is written last
+        try (FileChannel channel = FileChannel.open(segments(directory).get(0), StandardOpenOption.WRITE)) {
+            ByteBuffer torn = ByteBuffer.allocate(12 + 5);
+            torn.putInt(0).putLong(3).put("{\"c\":".getBytes("UTF-8"));
+            torn.flip();
+            channel.write(torn, end);
+        }
+
+        try (EventJournal journal = new EventJournal(directory, 4096, 4, 1000)) {
+            assertEquals(end, journal.getEndOffset());
+            assertEquals(2, readAll(journal, 0).size());
+
+            // New records go where the torn one was
+            assertEquals(end, journal.append(CharBuffer.wrap("{\"d\":4}"), 4));
+            List<String> frames = readAll(journal, 0);
+            assertEquals(3, frames.size());
+            assertEquals("{\"d\":4}", frames.get(2));
+        }
+    }
+
+    @Test
+    public void aShorterRecordOverATornOneStillRecovers() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        try (EventJournal journal = new EventJournal(directory, 4096, 4, 1000)) {
+            journal.append(CharBuffer.wrap("{\"a\":1}"), 1);
+        }
+
+        // A torn record whose frame holds what looks like another record header
+        try (FileChannel channel = FileChannel.open(segments(directory).get(0), StandardOpenOption.WRITE)) {
+            ByteBuffer torn = ByteBuffer.allocate(64);
+            torn.putInt(0).putLong(2);
+            while (torn.remaining() >= 4)
+                torn.putInt(8);
+            torn.flip();
+            channel.write(torn, 12 + 7);
+        }
+
+        try (EventJournal journal = new EventJournal(directory, 4096, 4, 1000)) {
+            journal.append(CharBuffer.wrap("x"), 3);
+        }
+        try (EventJournal journal = new EventJournal(directory, 4096, 4, 1000)) {
+            List<String> frames = readAll(journal, 0);
+            assertEquals(2, frames.size());
+            assertEquals("x", frames.get(1));
+        }
+    }
+
+    @Test
+    public void rotatesIntoNewSegmentsWithContinuousOffsets() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        try (EventJournal journal = new EventJournal(directory, 128, 100, 1000)) {
+            long last = -1;
+            for (int i = 0; i < 20; ++i) {
+                long offset = journal.append(CharBuffer.wrap("{\"event\":" + i + "}"), i + 1);
+                assertTrue(offset > last);
+                last = offset;
+            }
+            assertTrue(segments(directory).size() > 1);
+
+            List<String> frames = readAll(journal, 0);
+            assertEquals(20, frames.size());
+            for (int i = 0; i < 20; ++i)
+                assertEquals("{\"event\":" + i + "}", frames.get(i));
+        }
+
+        // Reopening finds every segment again
+        try (EventJournal journal = new EventJournal(directory, 128, 100, 1000)) {
+            assertEquals(20, readAll(journal, 0).size());
+        }
+    }
+
+    @Test
+    public void deletesSegmentsPastTheRetainedCount() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        try (EventJournal journal = new EventJournal(directory, 128, 2, 1000)) {
+            for (int i = 0; i < 40; ++i)
+                journal.append(CharBuffer.wrap("{\"event\":" + i + "}"), i + 1);
+
+            assertEquals(2, segments(directory).size());
+            assertTrue(journal.getStartOffset() > 0);
+
+            // Reading from before the retained segments starts at the oldest record
+            List<String> frames = readAll(journal, 0);
+            assertTrue(frames.size() < 40);
+            assertEquals("{\"event\":39}", frames.get(frames.size() - 1));
+            assertEquals(frames, readAll(journal, journal.getStartOffset()));
+        }
+    }
+
+    @Test
+    public void replaysFromATimestampInTheMiddleOfASegment() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        try (EventJournal journal = new EventJournal(directory, 4096, 4, 1000)) {
+            journal.append(CharBuffer.wrap("ten"), 10);
+            journal.append(CharBuffer.wrap("twenty"), 20);
+            long thirty = journal.append(CharBuffer.wrap("thirty"), 30);
+            journal.append(CharBuffer.wrap("no ts"), -1);
+            journal.append(CharBuffer.wrap("forty"), 40);
+
+            assertEquals(thirty, journal.offsetOf(25));
+            assertEquals(thirty, journal.offsetOf(30));
+            List<String> frames = readAll(journal, journal.offsetOf(25));
+            assertEquals(3, frames.size());
+            assertEquals("thirty", frames.get(0));
+            assertEquals("forty", frames.get(2));
+
+            assertEquals(journal.getEndOffset(), journal.offsetOf(50));
+            assertTrue(readAll(journal, journal.offsetOf(50)).isEmpty());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package au.com.addstar.slackapi.internal;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FrameReaderTest {
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    @Test
+    public void assemblesAMessageFromFragments() throws Exception {
+        FrameReader frame = new FrameReader();
+        String text = repeat('x', 10000);
+        frame.append("{\"type\":\"mess");
+        frame.append("age\",\"text\":\"");
+        // Larger than the initial buffer, so it grows part way through
+        frame.append(text);
+        frame.append("\"}");
+
+        assertEquals(28 + text.length(), frame.length());
+        JsonObject json = new JsonParser().parse(new JsonReader(frame)).getAsJsonObject();
+        assertEquals("message", json.get("type").getAsString());
+        assertEquals(text, json.get("text").getAsString());
+
+        // Read again from the start
+        frame.rewind();
+        char[] start = new char[8];
+        assertEquals(8, frame.read(start, 0, 8));
+        assertEquals("{\"type\":", new String(start));
+        assertEquals(frame.toString(), frame.asCharBuffer().toString());
+    }
+
+    @Test
+    public void clearStartsTheNextMessage() {
+        FrameReader frame = new FrameReader();
+        frame.append("first");
+        frame.clear();
+        frame.append("sec");
+        frame.append("ond");
+
+        assertEquals("second", frame.toString());
+        char[] read = new char[16];
+        assertEquals(6, frame.read(read, 0, 16));
+        assertEquals(-1, frame.read(read, 0, 16));
+    }
+
+    @Test
+    public void keepsItsBufferUpTo1MBAndShrinksAfterLargerMessages() {
+        FrameReader frame = new FrameReader();
+        int initial = frame.capacity();
+
+        frame.append(repeat('a', 1 << 20));
+        int grown = frame.capacity();
+        frame.clear();
+        assertEquals(grown, frame.capacity());
+
+        frame.append(repeat('b', (1 << 20) + 1));
+        frame.append("c");
+        assertEquals((1 << 20) + 2, frame.length());
+        frame.clear();
+        assertEquals(initial, frame.capacity());
+        assertEquals(0, frame.length());
+
+        frame.append("small");
+        assertEquals("small", frame.toString());
+    }
+}
@@ -0,0 +1,35 @@
+package au.com.addstar.slackapi.internal;
+
+import au.com.addstar.slackapi.objects.ObjectID;
+import au.com.addstar.slackapi.objects.SlackTimestamp;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MessageDeduplicatorTest {
+
+    @Test
+    public void rejectsRepeatedMessage() {
+        MessageDeduplicator dedup = new MessageDeduplicator(16, 60000);
+        assertTrue(dedup.firstSeen(ObjectID.of("C024BE91L"), SlackTimestamp.parse("1561412399.000200")));
+        assertFalse(dedup.firstSeen(ObjectID.of("C024BE91L"), SlackTimestamp.parse("1561412399.000200")));
+        assertTrue(dedup.firstSeen(ObjectID.of("C024BE91L"), SlackTimestamp.parse("1561412399.000201")));
+        assertTrue(dedup.firstSeen(ObjectID.of("G024BE91L"), SlackTimestamp.parse("1561412399.000200")));
+        // Ids too long to pack are hashed from their text
+        assertTrue(dedup.firstSeen(ObjectID.of("C024BE91L024BE91L"), SlackTimestamp.parse("1561412399.000200")));
+        assertFalse(dedup.firstSeen(ObjectID.of("C024BE91L024BE91L"), SlackTimestamp.parse("1561412399.000200")));
+    }
+
+    @Test
+    public void forgetsOldestWhenFull() {
+        MessageDeduplicator dedup = new MessageDeduplicator(4, 60000);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(dedup.firstSeen(ObjectID.of("C1"), SlackTimestamp.parse("100." + i)));
+        }
+        assertEquals(4, dedup.size());
+        assertTrue(dedup.firstSeen(ObjectID.of("C1"), SlackTimestamp.parse("100.0")));
+        assertFalse(dedup.firstSeen(ObjectID.of("C1"), SlackTimestamp.parse("100.4")));
+    }
+}
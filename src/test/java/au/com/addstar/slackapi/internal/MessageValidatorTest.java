@@ -0,0 +1,59 @@
+package au.com.addstar.slackapi.internal;
+
+import au.com.addstar.slackapi.exceptions.SlackMesssageInvalidException;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MessageValidatorTest {
+
+    private static JsonObject parse(String json) {
+        return new JsonParser().parse(json).getAsJsonObject();
+    }
+
+    @Test
+    public void acceptsValidMessage() throws Exception {
+        JsonObject message = parse("{\"channel\":\"C1\",\"blocks\":[{\"type\":\"section\",\"text\":{\"type\":\"mrkdwn\",\"text\":\"hi\"}},{\"type\":\"divider\"}]}");
+        assertTrue(MessageValidator.findViolations(message, SlackConstants.CHAT_POST).isEmpty());
+        MessageValidator.validateMessage(message, SlackConstants.CHAT_POST);
+    }
+
+    @Test
+    public void collectsEveryViolation() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 3001; ++i)
+            text.append('a');
+
+        JsonObject message = parse("{\"channel\":\"C1\",\"blocks\":[]}");
+        JsonArray blocks = message.getAsJsonArray("blocks");
+        blocks.add(parse("{\"type\":\"section\",\"text\":{\"type\":\"plain_text\",\"text\":\"" + text + "\"}}"));
+        blocks.add(parse("{\"type\":\"actions\",\"elements\":[{},{},{},{},{},{}]}"));
+        blocks.add(parse("{\"type\":\"context\",\"elements\":[{},{},{},{},{},{},{},{},{},{},{}]}"));
+        for (int i = blocks.size(); i < 51; ++i)
+            blocks.add(parse("{\"type\":\"divider\"}"));
+
+        List<String> violations = MessageValidator.findViolations(message, SlackConstants.CHAT_POST);
+        assertEquals(4, violations.size());
+        assertEquals("blocks has 51 entries, the limit is 50", violations.get(0));
+        assertEquals("blocks[0].text.text is longer than 3000 characters", violations.get(1));
+
+        SlackMesssageInvalidException e = assertThrows(SlackMesssageInvalidException.class,
+                () -> MessageValidator.validateMessage(message, SlackConstants.CHAT_POST));
+        assertEquals(4, e.getViolations().size());
+    }
+
+    @Test
+    public void checksEphemeralRequirements() {
+        List<String> violations = MessageValidator.findViolations(parse("{\"channel\":\"C1\"}"), SlackConstants.CHAT_POSTEMPHEMERAL);
+        assertEquals(2, violations.size());
+        assertTrue(MessageValidator.findViolations(parse("{\"channel\":\"C1\",\"user\":\"U1\",\"attachments\":[]}"),
+                SlackConstants.CHAT_POSTEMPHEMERAL).isEmpty());
+    }
+}
@@ -0,0 +1,60 @@
+package au.com.addstar.slackapi.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MultipartBodyTest {
+
+    @Test
+    public void streamsFileWithExactLength() throws Exception {
+        byte[] contents = new byte[200 * 1024];
+        for (int i = 0; i < contents.length; ++i)
+            contents[i] = (byte) i;
+        Path file = Files.createTempFile("upload", ".bin");
+        try {
+            Files.write(file, contents);
+            MultipartBody body = new MultipartBody()
+                    .field("channels", "C1,C2")
+                    .field("title", null)
+                    .file("file", "crash \"1\".log", file);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            AtomicLong progress = new AtomicLong();
+            body.writeTo(out, (sent, total) -> {
+                assertEquals(contents.length, total);
+                progress.set(sent);
+            });
+
+            assertEquals(body.getLength(), out.size());
+            assertEquals(contents.length, progress.get());
+            String text = new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+            assertTrue(text.contains("name=\"channels\"\r\n\r\nC1,C2\r\n"));
+            assertTrue(!text.contains("name=\"title\""));
+            assertTrue(text.contains("filename=\"crash %221%22.log\""));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void streamOfUnknownLength() throws Exception {
+        MultipartBody body = new MultipartBody()
+                .file("file", "a.txt", new ByteArrayInputStream("hello".getBytes(StandardCharsets.UTF_8)), -1);
+        assertEquals(-1, body.getLength());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out, null);
+        String text = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(text.contains("\r\n\r\nhello\r\n--"));
+        assertTrue(text.endsWith("--\r\n"));
+    }
+}
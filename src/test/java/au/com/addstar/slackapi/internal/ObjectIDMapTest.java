@@ -0,0 +1,120 @@
+package au.com.addstar.slackapi.internal;
+
+import au.com.addstar.slackapi.objects.ObjectID;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ObjectIDMapTest {
+
+    // Same as the map, for a table of 16 slots
+    private static int homeSlot(ObjectID id) {
+        return (int) ((id.getPacked() * 0x9E3779B97F4A7C15L) >>> 32) & 15;
+    }
+
+    private static List<ObjectID> idsWithHome(int slot, int count) {
+        List<ObjectID> ids = new ArrayList<>();
+        for (int i = 0; ids.size() < count; ++i) {
+            ObjectID id = ObjectID.of("U" + Integer.toString(i, 36).toUpperCase());
+            if (homeSlot(id) == slot)
+                ids.add(id);
+        }
+        return ids;
+    }
+
+    @Test
+    public void putGetRemove() {
+        ObjectIDMap<String> map = new ObjectIDMap<>();
+        ObjectID user = ObjectID.of("U024BE7LH");
+        ObjectID channel = ObjectID.of("C024BE91L");
+        ObjectID longId = ObjectID.of("U024BE7LH024BE7LH");
+        assertFalse(longId.isCompact());
+
+        assertNull(map.put(user, "user"));
+        assertNull(map.put(channel, "channel"));
+        assertNull(map.put(longId, "long"));
+        assertEquals("user", map.put(user, "user2"));
+        assertEquals(3, map.size());
+
+        assertEquals("user2", map.get(user));
+        assertEquals("channel", map.get(channel));
+        assertEquals("long", map.get(longId));
+        assertNull(map.get(ObjectID.of("G024BE91L")));
+        assertNull(map.get(null));
+
+        assertEquals("user2", map.remove(user));
+        assertEquals("long", map.remove(longId));
+        assertNull(map.remove(user));
+        assertFalse(map.containsKey(user));
+        assertTrue(map.containsKey(channel));
+        assertEquals(1, map.size());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(channel));
+    }
+
+    @Test
+    public void removeShiftsBackAcrossTheEndOfTheTable() {
+        ObjectIDMap<ObjectID> map = new ObjectIDMap<>(4);
+        // A cluster starting in the last slot and wrapping into the first ones
+        List<ObjectID> last = idsWithHome(15, 3);
+        List<ObjectID> first = idsWithHome(0, 2);
+        List<ObjectID> all = new ArrayList<>(last);
+        all.addAll(first);
+        for (ObjectID id : all)
+            map.put(id, id);
+
+        assertEquals(last.get(0), map.remove(last.get(0)));
+        for (ObjectID id : all.subList(1, all.size()))
+            assertEquals(id, map.get(id));
+
+        // Removing from the wrapped part must not move entries behind their home slot
+        assertEquals(first.get(0), map.remove(first.get(0)));
+        assertEquals(last.get(1), map.get(last.get(1)));
+        assertEquals(last.get(2), map.get(last.get(2)));
+        assertEquals(first.get(1), map.get(first.get(1)));
+        assertEquals(3, map.size());
+
+        map.put(last.get(0), last.get(0));
+        for (ObjectID id : all.subList(0, 3))
+            assertEquals(id, map.get(id));
+    }
+
+    @Test
+    public void growsAndKeepsEveryEntry() {
+        ObjectIDMap<Integer> map = new ObjectIDMap<>();
+        for (int i = 0; i < 5000; ++i)
+            map.put(ObjectID.of("C" + Integer.toString(i, 36).toUpperCase()), i);
+        assertEquals(5000, map.size());
+        for (int i = 0; i < 5000; ++i)
+            assertEquals(i, (int) map.get(ObjectID.of("C" + Integer.toString(i, 36).toUpperCase())));
+        assertEquals(5000, map.values().size());
+    }
+
+    @Test
+    public void matchesHashMapUnderRandomChanges() {
+        Random random = new Random(42);
+        ObjectIDMap<Integer> map = new ObjectIDMap<>();
+        Map<ObjectID, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 20000; ++i) {
+            ObjectID id = ObjectID.of("U" + Integer.toString(random.nextInt(300), 36).toUpperCase());
+            if (random.nextInt(3) == 0)
+                assertEquals(expected.remove(id), map.remove(id));
+            else
+                assertEquals(expected.put(id, i), map.put(id, i));
+        }
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<ObjectID, Integer> entry : expected.entrySet())
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+    }
+}
@@ -0,0 +1,103 @@
+package au.com.addstar.slackapi.internal;
+
+import au.com.addstar.slackapi.MessageOptions.Priority;
+import org.junit.jupiter.api.Test;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RateLimitsTest {
+
+    @Test
+    public void criticalCallsOvertakeQueuedBulkCalls() throws Exception {
+        RateLimits limits = new RateLimits();
+        limits.limit(SlackConstants.CHAT_POST, 1200);
+        limits.acquire(SlackConstants.CHAT_POST, Priority.Bulk);
+
+        List<Priority> order = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 6; ++i)
+            threads.add(start(limits, Priority.Bulk, order));
+        Thread.sleep(20);
+        threads.add(start(limits, Priority.Critical, order));
+
+        for (Thread thread : threads)
+            thread.join();
+
+        assertEquals(7, order.size());
+        // In arrival order it would be last, bulk calls still queued behind it go after it
+        assertTrue(order.indexOf(Priority.Critical) <= 4, "Critical was let through at " + order.indexOf(Priority.Critical));
+    }
+
+    @Test
+    public void methodsWithoutLimitsDoNotWait() throws Exception {
+        RateLimits limits = new RateLimits();
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; ++i)
+            limits.acquire(SlackConstants.USER_LIST, Priority.Bulk);
+        assertTrue(System.nanoTime() - start < 1000000000L);
+    }
+
+    @Test
+    public void keysAreLimitedSeparately() throws Exception {
+        RateLimits limits = new RateLimits();
+        limits.limitPerKey(SlackConstants.CHAT_POST, 1);
+        limits.acquire(SlackConstants.CHAT_POST, "C1", Priority.Normal);
+
+        // The next call for C1 would wait a minute
+        long start = System.nanoTime();
+        limits.acquire(SlackConstants.CHAT_POST, "C2", Priority.Normal);
+        limits.acquire(SlackConstants.CHAT_POST, "C3", Priority.Normal);
+        assertTrue(System.nanoTime() - start < 1000000000L);
+    }
+
+    @Test
+    public void waitingCanBeInterrupted() throws Exception {
+        RateLimits limits = new RateLimits();
+        limits.limit(SlackConstants.CHAT_POST, 1);
+        limits.acquire(SlackConstants.CHAT_POST, Priority.Normal);
+
+        List<Object> results = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 2; ++i) {
+            // One waits for the next free time, the other in the queue behind it
+            Thread thread = new Thread(() -> {
+                try {
+                    limits.acquire(SlackConstants.CHAT_POST, Priority.Normal);
+                    results.add("acquired");
+                } catch (InterruptedIOException e) {
+                    results.add(Thread.currentThread().isInterrupted());
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        Thread.sleep(50);
+        for (Thread thread : threads) {
+            thread.interrupt();
+            thread.join(1000);
+            assertFalse(thread.isAlive());
+        }
+        assertEquals(Arrays.asList(true, true), results);
+    }
+
+    private static Thread start(RateLimits limits, Priority priority, List<Priority> order) {
+        Thread thread = new Thread(() -> {
+            try {
+                limits.acquire(SlackConstants.CHAT_POST, priority);
+                order.add(priority);
+            } catch (InterruptedIOException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        return thread;
+    }
+}
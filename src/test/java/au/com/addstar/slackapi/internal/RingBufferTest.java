@@ -0,0 +1,148 @@
+package au.com.addstar.slackapi.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RingBufferTest {
+
+    private static class Slot {
+        long value;
+        long doubled;
+    }
+
+    @Test
+    public void slotsPassThroughEveryStageInOrder() throws Exception {
+        List<Long> seen = new CopyOnWriteArrayList<>();
+        List<RingBuffer.Handler<Slot>> stages = Arrays.asList(
+                (slot, sequence) -> slot.doubled = slot.value * 2,
+                (slot, sequence) -> seen.add(slot.doubled));
+        RingBuffer<Slot> buffer = new RingBuffer<>("test", 4, Slot::new, stages, Throwable::printStackTrace);
+        buffer.start();
+
+        for (long i = 0; i < 1000; ++i) {
+            long sequence = buffer.next();
+            buffer.get(sequence).value = i;
+            buffer.publish(sequence);
+        }
+        for (int i = 0; i < 500 && seen.size() < 1000; ++i)
+            Thread.sleep(10);
+        buffer.close();
+
+        assertEquals(1000, seen.size());
+        for (int i = 0; i < 1000; ++i)
+            assertEquals(i * 2L, (long) seen.get(i));
+    }
+
+    @Test
+    public void handlerErrorsGoToTheErrorHandler() throws Exception {
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        AtomicLong handled = new AtomicLong();
+        List<RingBuffer.Handler<Slot>> stages = Arrays.asList(
+                (slot, sequence) -> {
+                    if (slot.value == 1)
+                        throw new IllegalStateException("bad");
+                },
+                (slot, sequence) -> handled.incrementAndGet());
+        RingBuffer<Slot> buffer = new RingBuffer<>("test", 4, Slot::new, stages, errors::add);
+        buffer.start();
+
+        for (long i = 0; i < 3; ++i) {
+            long sequence = buffer.next();
+            buffer.get(sequence).value = i;
+            buffer.publish(sequence);
+        }
+        for (int i = 0; i < 100 && handled.get() < 3; ++i)
+            Thread.sleep(10);
+        buffer.close();
+
+        assertEquals(3, handled.get());
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof IllegalStateException);
+    }
+
+    @Test
+    public void closeFinishesPublishedSlots() throws Exception {
+        List<Long> seen = new CopyOnWriteArrayList<>();
+        CountDownLatch release = new CountDownLatch(1);
+        List<RingBuffer.Handler<Slot>> stages = Arrays.asList(
+                (slot, sequence) -> release.await(),
+                (slot, sequence) -> seen.add(slot.value));
+        RingBuffer<Slot> buffer = new RingBuffer<>("test", 8, Slot::new, stages, Throwable::printStackTrace);
+        buffer.start();
+
+        for (long i = 0; i < 5; ++i) {
+            long sequence = buffer.next();
+            buffer.get(sequence).value = i;
+            buffer.publish(sequence);
+        }
+        Thread closer = new Thread(buffer::close);
+        closer.start();
+        Thread.sleep(50);
+        release.countDown();
+        closer.join(1000);
+
+        assertFalse(closer.isAlive());
+        assertEquals(Arrays.asList(0L, 1L, 2L, 3L, 4L), seen);
+    }
+
+    @Test
+    public void nextFailsOnceClosed() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RingBuffer<Slot> buffer = new RingBuffer<>("test", 2, Slot::new,
+                Arrays.asList((slot, sequence) -> release.await()), Throwable::printStackTrace);
+        buffer.start();
+        for (int i = 0; i < 2; ++i)
+            buffer.publish(buffer.next());
+
+        // The buffer is full, so the producer waits for a slot until the buffer is closed
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        Thread producer = new Thread(() -> {
+            try {
+                buffer.next();
+            } catch (IllegalStateException e) {
+                errors.add(e);
+            }
+        });
+        producer.start();
+        Thread.sleep(50);
+        Thread closer = new Thread(buffer::close);
+        closer.start();
+        producer.join(1000);
+        release.countDown();
+        closer.join(1000);
+
+        assertEquals(1, errors.size());
+        assertThrows(IllegalStateException.class, buffer::next);
+    }
+
+    @Test
+    public void idleStagesBlockAndCloseStopsThem() throws Exception {
+        RingBuffer<Slot> buffer = new RingBuffer<>("idle-test", 4, Slot::new,
+                Arrays.asList((slot, sequence) -> { }, (slot, sequence) -> { }), Throwable::printStackTrace);
+        buffer.start();
+        Thread.sleep(100);
+
+        List<Thread> stages = new CopyOnWriteArrayList<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("idle-test-"))
+                stages.add(thread);
+        }
+        assertEquals(2, stages.size());
+        for (Thread thread : stages)
+            assertEquals(Thread.State.WAITING, thread.getState());
+
+        buffer.close();
+        for (Thread thread : stages)
+            assertTrue(!thread.isAlive());
+    }
+}
@@ -0,0 +1,75 @@
+package au.com.addstar.slackapi.objects;
+
+import au.com.addstar.slackapi.JsonCodec;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ConversationTest {
+
+    private static Conversation load(String json) {
+        return JsonCodec.getDefault().decode(new JsonParser().parse(json), Conversation.class);
+    }
+
+    @Test
+    public void equalById() {
+        Conversation first = load("{\"id\":\"C1\",\"created\":1,\"name\":\"a\",\"members\":[\"U1\",\"U2\"]}");
+        Conversation renamed = load("{\"id\":\"C1\",\"created\":1,\"name\":\"b\"}");
+        assertEquals(first, renamed);
+        assertEquals(first.hashCode(), renamed.hashCode());
+    }
+
+    @Test
+    public void decodesMembers() {
+        Conversation conversation = load("{\"id\":\"C1\",\"created\":1,\"members\":[\"U1\",\"U2\"]}");
+        assertEquals(Arrays.asList(ObjectID.of("U1"), ObjectID.of("U2")), conversation.getMembers());
+        assertThrows(UnsupportedOperationException.class, () -> conversation.getMembers().add(ObjectID.of("U3")));
+
+        Conversation im = load("{\"id\":\"D1\",\"created\":1,\"is_im\":true,\"user\":\"U1\"}");
+        assertEquals(Collections.singletonList(ObjectID.of("U1")), im.getMembers());
+    }
+
+    @Test
+    public void savesWhatItReads() {
+        Conversation conversation = load("{\"id\":\"C1\",\"created\":1561412399,\"name\":\"general\",\"is_channel\":true,"
+                + "\"creator\":\"U1\",\"is_general\":true,\"members\":[\"U1\",\"U2\"],\"previous_names\":[\"old\"],"
+                + "\"topic\":{\"value\":\"hi\",\"creator\":\"U2\",\"last_set\":1561412400}}");
+        Conversation copy = load(JsonCodec.getDefault().encode(conversation));
+
+        assertEquals(conversation.getId(), copy.getId());
+        assertEquals(1561412399000L, copy.getCreationDate());
+        assertEquals("general", copy.getName());
+        assertEquals(ObjectID.of("U1"), copy.getCreationUserId());
+        assertEquals(true, copy.isChannel());
+        assertEquals(true, copy.isGeneral());
+        assertEquals(conversation.getMembers(), copy.getMembers());
+        assertEquals(Collections.singletonList("old"), copy.getPrevious_names());
+        assertEquals("hi", copy.getTopic());
+        assertEquals(ObjectID.of("U2"), copy.getTopicUpdateUserId());
+        assertEquals(1561412400000L, copy.getTopicUpdateDate());
+        assertEquals(null, copy.getPurpose());
+    }
+
+    @Test
+    public void decodesMembersOfAParsedTreeOnFirstUse() {
+        JsonObject json = new JsonParser().parse("{\"id\":\"C1\",\"created\":1,\"members\":[\"U1\"]}").getAsJsonObject();
+        Conversation conversation = JsonCodec.getDefault().decode(json, Conversation.class);
+
+        // The members are still the array of the tree
+        json.getAsJsonArray("members").add("U2");
+        assertEquals(Arrays.asList(ObjectID.of("U1"), ObjectID.of("U2")), conversation.getMembers());
+    }
+
+    @Test
+    public void savesAnEmptyConversation() {
+        Conversation copy = load(JsonCodec.getDefault().encode(new Conversation()));
+        assertEquals(Collections.emptyList(), copy.getMembers());
+        assertEquals(Collections.emptyList(), copy.getPrevious_names());
+    }
+}
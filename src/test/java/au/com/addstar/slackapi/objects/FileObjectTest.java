@@ -0,0 +1,32 @@
+package au.com.addstar.slackapi.objects;
+
+import au.com.addstar.slackapi.JsonCodec;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FileObjectTest {
+
+    private static FileObject load(String json) {
+        return JsonCodec.getDefault().decode(new JsonParser().parse(json), FileObject.class);
+    }
+
+    @Test
+    public void savesWhatItReads() {
+        FileObject file = load("{\"id\":\"F1\",\"created\":1561412399,\"name\":\"a.txt\",\"mimetype\":\"text/plain\","
+                + "\"user\":\"U1\",\"size\":1234,\"mode\":\"snippet\",\"url_private\":\"https://files.example.com/a.txt\"}");
+        FileObject copy = load(JsonCodec.getDefault().encode(file));
+
+        assertEquals(file.getId(), copy.getId());
+        assertEquals(1561412399000L, copy.getCreationDate());
+        assertEquals("a.txt", copy.getName());
+        assertEquals("text/plain", copy.getMimeType());
+        assertEquals(ObjectID.of("U1"), copy.getUser());
+        assertEquals(1234L, copy.getSize());
+        assertEquals(FileObject.Mode.SNIPPET, copy.getMode());
+        assertEquals(URI.create("https://files.example.com/a.txt"), copy.getUrlPrivate());
+    }
+}
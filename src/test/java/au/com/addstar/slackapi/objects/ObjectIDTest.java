@@ -0,0 +1,63 @@
+package au.com.addstar.slackapi.objects;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ObjectIDTest {
+
+    @Test
+    public void internsIds() {
+        assertSame(ObjectID.of("U024BE7LH"), ObjectID.of("U024BE7LH"));
+    }
+
+    @Test
+    public void internsOneInstanceAcrossThreads() throws Exception {
+        int threads = 8;
+        ObjectID[] seen = new ObjectID[threads];
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; ++i) {
+            int index = i;
+            workers[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                seen[index] = ObjectID.of("UCONCURRENT1");
+            });
+            workers[i].start();
+        }
+        start.countDown();
+        for (Thread worker : workers)
+            worker.join();
+
+        for (ObjectID id : seen)
+            assertSame(seen[0], id);
+    }
+
+    @Test
+    public void packsSlackIds() {
+        ObjectID id = ObjectID.of("C024BE91L");
+        assertTrue(id.isCompact());
+        assertEquals("C024BE91L", id.toString());
+        assertEquals("024BE91L", id.getId());
+        assertNotEquals(ObjectID.of("C0").getPacked(), ObjectID.of("C00").getPacked());
+        assertNotEquals(ObjectID.of("C024BE91L"), ObjectID.of("G024BE91L"));
+    }
+
+    @Test
+    public void fallsBackToStrings() {
+        ObjectID id = ObjectID.of("Ulowercase");
+        assertFalse(id.isCompact());
+        assertEquals(ObjectID.of("Ulowercase"), id);
+        assertEquals("Xunknown", ObjectID.of("Xunknown").toString());
+    }
+}
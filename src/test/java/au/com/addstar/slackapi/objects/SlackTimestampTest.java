@@ -0,0 +1,47 @@
+package au.com.addstar.slackapi.objects;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SlackTimestampTest {
+
+    @Test
+    public void keepsMicroseconds() {
+        SlackTimestamp first = SlackTimestamp.parse("1561412399.000200");
+        SlackTimestamp second = SlackTimestamp.parse("1561412399.000201");
+        assertEquals(1561412399000200L, first.toMicros());
+        assertEquals(first.toMillis(), second.toMillis());
+        assertNotEquals(first, second);
+        assertTrue(first.compareTo(second) < 0);
+        assertTrue(first.isBefore(second));
+        assertTrue(second.isAfter(first));
+    }
+
+    @Test
+    public void roundTrips() {
+        assertEquals("1561412399.000200", SlackTimestamp.parse("1561412399.000200").toString());
+        assertEquals("1561412399.000000", SlackTimestamp.parse("1561412399").toString());
+        assertEquals("1561412399.500000", SlackTimestamp.parse("1561412399.5").toString());
+        assertEquals(SlackTimestamp.parse("1561412399.000200"), SlackTimestamp.ofMicros(1561412399000200L));
+    }
+
+    @Test
+    public void checksWindows() {
+        SlackTimestamp ts = SlackTimestamp.parse("100.000001");
+        assertTrue(ts.isBetween(SlackTimestamp.parse("100.000001"), SlackTimestamp.parse("200")));
+        assertTrue(ts.isBetween(null, null));
+        assertFalse(ts.isBetween(SlackTimestamp.parse("100.000002"), null));
+    }
+
+    @Test
+    public void rejectsInvalid() {
+        assertThrows(NumberFormatException.class, () -> SlackTimestamp.parse(""));
+        assertThrows(NumberFormatException.class, () -> SlackTimestamp.parse("12a.5"));
+        assertThrows(NumberFormatException.class, () -> SlackTimestamp.parse("1.0000001"));
+    }
+}
@@ -0,0 +1,50 @@
+package au.com.addstar.slackapi.objects;
+
+import au.com.addstar.slackapi.JsonCodec;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class UserTest {
+
+    private static User load(String json) {
+        return JsonCodec.getDefault().decode(new JsonParser().parse(json), User.class);
+    }
+
+    @Test
+    public void equalById() {
+        User first = load("{\"id\":\"U1\",\"name\":\"a\",\"profile\":{\"image_24\":\"https://example.com/a.png\"}}");
+        User renamed = load("{\"id\":\"U1\",\"name\":\"b\"}");
+        User other = load("{\"id\":\"U2\",\"name\":\"a\"}");
+
+        assertEquals(first, renamed);
+        assertEquals(first.hashCode(), renamed.hashCode());
+        assertNotEquals(first, other);
+    }
+
+    @Test
+    public void parsesImagesOnAccess() {
+        User user = load("{\"id\":\"U1\",\"profile\":{\"image_24\":\"https://example.com/a.png\"}}");
+        assertEquals(URI.create("https://example.com/a.png"), user.getProfileImage24());
+        assertNull(user.getProfileImage192());
+    }
+
+    @Test
+    public void savesWhatItReads() {
+        User user = load("{\"id\":\"U1\",\"name\":\"a\",\"is_admin\":true,"
+                + "\"profile\":{\"real_name\":\"A B\",\"image_24\":\"https://example.com/a.png\"}}");
+        User copy = load(JsonCodec.getDefault().encode(user));
+
+        assertEquals(user.getId(), copy.getId());
+        assertEquals("a", copy.getName());
+        assertEquals(true, copy.isAdmin());
+        assertEquals("A B", copy.getRealName());
+        assertEquals(user.getProfileImage24(), copy.getProfileImage24());
+        assertNull(copy.getEmail());
+    }
+}
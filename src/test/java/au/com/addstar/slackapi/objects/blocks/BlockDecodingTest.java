@@ -0,0 +1,93 @@
+package au.com.addstar.slackapi.objects.blocks;
+
+import au.com.addstar.slackapi.GsonCodec;
+import au.com.addstar.slackapi.objects.Message;
+import au.com.addstar.slackapi.objects.blocks.composition.CompositionObject;
+import au.com.addstar.slackapi.objects.blocks.composition.TextObject;
+import au.com.addstar.slackapi.objects.blocks.elements.ButtonElement;
+import au.com.addstar.slackapi.objects.blocks.elements.Element;
+import au.com.addstar.slackapi.objects.blocks.elements.ImageElement;
+import au.com.addstar.slackapi.objects.blocks.elements.SelectElement;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BlockDecodingTest {
+
+    private static Gson createGson() {
+        GsonBuilder builder = new GsonBuilder();
+        builder.registerTypeAdapterFactory(Message.getGsonAdapter());
+        Block.addGsonAdapters(builder);
+        CompositionObject.addGsonAdapters(builder);
+        Element.addGsonAdapters(builder);
+        return builder.create();
+    }
+
+    @Test
+    public void decodesBlocksByType() {
+        Message message = createGson().fromJson("{\"text\":\"x\",\"ts\":\"1.0\",\"blocks\":["
+                + "{\"type\":\"section\",\"text\":{\"type\":\"mrkdwn\",\"text\":\"*hi*\"},"
+                + "\"accessory\":{\"type\":\"static_select\",\"options\":[{\"text\":{\"type\":\"plain_text\",\"text\":\"a\"},\"value\":\"1\"}]}},"
+                + "{\"type\":\"divider\"},"
+                + "{\"type\":\"actions\",\"elements\":[{\"type\":\"button\",\"text\":{\"type\":\"plain_text\",\"text\":\"b\"}}]},"
+                + "{\"type\":\"context\",\"elements\":[{\"type\":\"mrkdwn\",\"text\":\"c\"},{\"type\":\"image\",\"image_url\":\"http://example.com/a.png\",\"alt_text\":\"a\"}]}"
+                + "]}", Message.class);
+
+        List<Block> blocks = message.getBlocks();
+        assertEquals(4, blocks.size());
+        Section section = (Section) blocks.get(0);
+        assertEquals(TextObject.TextType.MARKDOWN, section.getText().getType());
+        assertTrue(section.getAccessory() instanceof SelectElement);
+        assertTrue(blocks.get(1) instanceof Divider);
+        assertTrue(((ActionBlock) blocks.get(2)).getElements().get(0) instanceof ButtonElement);
+        ContextBlock context = (ContextBlock) blocks.get(3);
+        assertTrue(context.getElements().get(0) instanceof TextObject);
+        assertTrue(context.getElements().get(1) instanceof ImageElement);
+    }
+
+    @Test
+    public void replaysMembersBeforeType() {
+        Block block = createGson().fromJson("{\"block_id\":\"b1\",\"text\":{\"text\":\"late\",\"type\":\"plain_text\"},\"type\":\"section\"}", Block.class);
+        assertTrue(block instanceof Section);
+        assertEquals("b1", block.getBlock_id());
+        assertEquals("late", ((Section) block).getText().getText());
+    }
+
+    @Test
+    public void skipsUnknownTypes() {
+        Message message = createGson().fromJson("{\"ts\":\"1.0\",\"blocks\":[{\"type\":\"rich_text\",\"elements\":[{\"type\":\"rich_text_section\"}]},{\"type\":\"divider\"}]}", Message.class);
+        assertEquals(1, message.getBlocks().size());
+        assertTrue(message.getBlocks().get(0) instanceof Divider);
+    }
+
+    @Test
+    public void keepsBlocksUntilAskedFor() {
+        Gson gson = createGson();
+        Message message = gson.fromJson("{\"ts\":\"1.0\",\"blocks\":[{\"type\":\"divider\",\"block_id\":\"d\"}]}", Message.class);
+        assertEquals("{\"type\":\"message\",\"as_user\":true,\"blocks\":[{\"type\":\"divider\",\"block_id\":\"d\"}]}", gson.toJson(message));
+
+        message = gson.fromJson("{\"ts\":\"1.0\",\"blocks\":[{\"type\":\"divider\"}]}", Message.class);
+        message.setBlocks(null);
+        message.addBlock(new Section());
+        assertEquals(1, message.getBlocks().size());
+        assertTrue(message.getBlocks().get(0) instanceof Section);
+    }
+
+    @Test
+    public void keepsThePartsOfAParsedTreeWithoutCopying() {
+        JsonObject json = new JsonParser().parse("{\"ts\":\"1.0\",\"blocks\":[{\"type\":\"rich_text\"},{\"type\":\"divider\"}]}").getAsJsonObject();
+        Message message = new GsonCodec().decode(json, Message.class);
+
+        // The message refers to the blocks of the tree it was decoded from
+        json.getAsJsonArray("blocks").add(new JsonParser().parse("{\"type\":\"divider\"}"));
+        assertEquals(2, message.getBlocks().size());
+        assertTrue(message.getBlocks().get(1) instanceof Divider);
+    }
+}